@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Takes the usual JMH command line and always
+ * adds the allocation profiler, so every result comes with the bytes allocated
+ * per operation (gc.alloc.rate.norm).
+ */
+public class BenchmarkMain {
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *          the JMH command line, e.g., a regular expression of the benchmarks
+	 *          to run or -p size=64
+	 * @throws RunnerException
+	 *           if a benchmark fails
+	 * @throws CommandLineOptionException
+	 *           if the command line is not valid
+	 * @throws IOException
+	 *           if the list of benchmarks cannot be read
+	 */
+	public static void main(String[] args)
+			throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats() || cmd.shouldListWithParams()) {
+			// nothing to run, let JMH answer
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		Options options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
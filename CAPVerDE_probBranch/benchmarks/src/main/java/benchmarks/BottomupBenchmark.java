@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import architecture.Architecture;
+import gui.ArchitectureFunctions;
+import properties.Property;
+import properties.RulesOfInferenceParserBottomup;
+
+/**
+ * Benchmarks of {@link RulesOfInferenceParserBottomup#verifyStatement(Property, int)}
+ * for all properties of an architecture, with an empty result history (cold) and
+ * with all results already in the history (warm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BottomupBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	@Param({ "eager", "lazy", "congruence" })
+	public String mode;
+
+	private Architecture arch;
+	private List<Property> props;
+	private RulesOfInferenceParserBottomup warmParser;
+	private RulesOfInferenceParserBottomup coldParser;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ArchitectureFunctions archFunc = Models.create(size, mode);
+		archFunc.finish();
+		arch = archFunc.getArch();
+		props = new ArrayList<Property>(archFunc.getpSet());
+		warmParser = new RulesOfInferenceParserBottomup(arch);
+		for (Property prop : props) {
+			warmParser.verifyStatement(prop, 0);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void newParser() {
+		// the consistency check of the constructor is not measured
+		coldParser = new RulesOfInferenceParserBottomup(arch);
+	}
+
+	@Benchmark
+	public void cold(Blackhole bh) {
+		for (Property prop : props) {
+			bh.consume(coldParser.verifyStatement(prop, 0));
+		}
+	}
+
+	@Benchmark
+	public void warm(Blackhole bh) {
+		for (Property prop : props) {
+			bh.consume(warmParser.verifyStatement(prop, 0));
+		}
+	}
+}
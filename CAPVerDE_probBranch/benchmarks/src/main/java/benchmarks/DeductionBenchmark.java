@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import architecture.Architecture;
+import architecture.Component;
+import architecture.Equation;
+import gui.ArchitectureFunctions;
+
+/**
+ * Benchmark of the eager instantiation of the deductions of all components
+ * (Component.makeDeduction), which is triggered by setting the known equations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeductionBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	// lazy mode does not instantiate anything up front
+	@Param({ "eager", "congruence" })
+	public String mode;
+
+	private ArchitectureFunctions archFunc;
+	private List<Equation> equations;
+	private List<Component> comps;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		archFunc = Models.create(size, mode);
+		archFunc.finish();
+		// the equations the top-down parser shares with the components
+		equations = archFunc.getArch().getAllEquations();
+	}
+
+	@Setup(Level.Invocation)
+	public void newComponents() {
+		Architecture arch = archFunc.build();
+		comps = arch.getCompList();
+	}
+
+	@Benchmark
+	public void makeDeduction(Blackhole bh) {
+		for (Component comp : comps) {
+			comp.setEqSet(new LinkedHashSet<Equation>(equations));
+			bh.consume(comp.getDeductionCapability().size());
+		}
+	}
+}
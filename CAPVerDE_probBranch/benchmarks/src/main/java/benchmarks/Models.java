@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import gui.ArchitectureFunctions;
+import utils.ArchGenerator;
+
+/**
+ * Helper class that creates the architectures the benchmarks run on.
+ */
+final class Models {
+
+	// the seed of all generated architectures, so every run measures the same models
+	static final long SEED = 20200101L;
+
+	private Models() {
+	}
+
+	/**
+	 * Method that generates an architecture with the given number of components and
+	 * twice as many variables.
+	 *
+	 * @param size
+	 *          the number of components
+	 * @param mode
+	 *          the deduction mode: eager, lazy or congruence
+	 * @return the architecture functions, not yet finished
+	 */
+	static ArchitectureFunctions create(int size, String mode) {
+		quiet();
+		ArchitectureFunctions archFunc = new ArchitectureFunctions();
+		new ArchGenerator(SEED).setComponents(size).setVariables(2 * size).setFanOut(2)
+				.setProperties(4 * size).generate(archFunc);
+		switch (mode) {
+		case "lazy":
+			archFunc.setLazyDeduction(true);
+			break;
+		case "congruence":
+			archFunc.setCongruenceClosure(true);
+			break;
+		default:
+			// eager
+			break;
+		}
+		return archFunc;
+	}
+
+	/**
+	 * Method that drops the progress messages the engine prints to standard out,
+	 * so they do not end up in the benchmark output.
+	 */
+	static void quiet() {
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// drop
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// drop
+			}
+		}));
+	}
+}
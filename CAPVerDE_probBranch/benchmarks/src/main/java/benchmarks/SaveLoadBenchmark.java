@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gui.ArchitectureFunctions;
+import utils.SaveLoadArch;
+
+/**
+ * Benchmarks of saving and loading a finished architecture with {@link SaveLoadArch}.
+ * The files are written to the saves directory of the working directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveLoadBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	private ArchitectureFunctions archFunc;
+	private String name;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Files.createDirectories(Paths.get("saves"));
+		archFunc = Models.create(size, "congruence");
+		archFunc.finish();
+		name = "benchmark-" + size;
+		SaveLoadArch.saveArch(archFunc, name);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Path file = Paths.get("saves", name + ".arch");
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void save() {
+		SaveLoadArch.saveArch(archFunc, name);
+	}
+
+	@Benchmark
+	public ArchitectureFunctions load() {
+		return SaveLoadArch.loadArch(name);
+	}
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import architecture.Component;
+import gui.ArchitectureFunctions;
+import properties.Property;
+import solver.SmtHandler;
+
+/**
+ * Benchmark of the SMT script generation: the declarations, the assertions for the
+ * collected properties of all components and one assertion per property to verify.
+ * The solver itself is not run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmtBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	private Architecture arch;
+	private Map<Component, List<Property>> compProps;
+	private List<Property> props;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ArchitectureFunctions archFunc = Models.create(size, "congruence");
+		archFunc.finish();
+		arch = archFunc.getArch();
+		// the properties the top-down parser collected, by owner
+		compProps = new LinkedHashMap<Component, List<Property>>();
+		for (Component comp : arch.getCompList()) {
+			compProps.put(comp, new ArrayList<Property>());
+		}
+		for (Property prop : arch.getAllProperties()) {
+			List<Property> owned = compProps.get(prop.getOwner());
+			if (owned != null) {
+				owned.add(prop);
+			}
+		}
+		props = new ArrayList<Property>(archFunc.getpSet());
+	}
+
+	@Benchmark
+	public String generate() {
+		SmtHandler smt = new SmtHandler(arch);
+		for (Map.Entry<Component, List<Property>> entry : compProps.entrySet()) {
+			smt.generateSmtfromPropList(entry.getKey(), entry.getValue());
+		}
+		int counter = 0;
+		for (Property prop : props) {
+			counter++;
+			smt.generateSmtfromStatement(prop, counter);
+		}
+		return smt.getBuffer();
+	}
+}
@@ -0,0 +1,115 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import architecture.Component;
+import architecture.Deduction;
+import architecture.Equation;
+import architecture.Term;
+import architecture.Term.TermType;
+import gui.ArchitectureFunctions;
+
+/**
+ * Benchmarks of the hashing and equality of terms and equations, on all equations
+ * known after the deductions of an architecture were instantiated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TermBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	private List<Equation> equations;
+	private List<Equation> copies;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ArchitectureFunctions archFunc = Models.create(size, "eager");
+		archFunc.finish();
+		equations = new ArrayList<Equation>();
+		for (Component comp : archFunc.getArch().getCompList()) {
+			equations.addAll(comp.getEqSet());
+			for (Deduction ded : comp.getDeductionCapability()) {
+				equations.addAll(ded.getPremises());
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void newCopies() {
+		// copies do not have their hash cached yet and are not identical to the originals
+		copies = new ArrayList<Equation>();
+		for (Equation eq : equations) {
+			copies.add(new Equation(eq, eq.getName()));
+		}
+	}
+
+	@Benchmark
+	public void internTerms(Blackhole bh) {
+		for (Equation eq : equations) {
+			bh.consume(rebuild(eq.getOp1()));
+			bh.consume(rebuild(eq.getOp2()));
+		}
+	}
+
+	@Benchmark
+	public void equationHashCode(Blackhole bh) {
+		for (Equation eq : copies) {
+			bh.consume(new Equation(eq, eq.getName()).hashCode());
+		}
+	}
+
+	@Benchmark
+	public void equationEquals(Blackhole bh) {
+		for (int i = 0; i < equations.size(); i++) {
+			bh.consume(equations.get(i).equals(copies.get(i)));
+			bh.consume(equations.get(i).equals(copies.get(copies.size() - 1 - i)));
+		}
+	}
+
+	/**
+	 * Helper method that builds a term again from its parts, which looks it up in
+	 * the table of interned terms at every level.
+	 */
+	private static Term rebuild(Term term) {
+		if (term == null) {
+			return null;
+		}
+		if (term.getType() == TermType.ATOM) {
+			return Term.of(TermType.ATOM, term.getAtom(), term.isMatchVar());
+		}
+		switch (term.getOpType()) {
+		case UNARY:
+			return Term.of(term.getType(), term.getOpType(), term.getOp(), term.getFuncName(),
+					rebuild(term.getT1()), term.isMatchVar());
+		case BINARY:
+			return Term.of(term.getType(), term.getOpType(), term.getOp(), term.getFuncName(),
+					rebuild(term.getT1()), rebuild(term.getT2()), term.isMatchVar());
+		default:
+			return Term.of(term.getType(), term.getOpType(), term.getOp(), term.getFuncName(),
+					rebuild(term.getT1()), rebuild(term.getT2()), rebuild(term.getT3()),
+					term.isMatchVar());
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import gui.ArchitectureFunctions;
+import properties.RulesOfInferenceParserTopdown;
+
+/**
+ * Benchmark of the construction of {@link RulesOfInferenceParserTopdown}, which
+ * collects and saturates all properties, instantiates the deductions and generates
+ * the SMT assertions of an architecture.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopdownBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int size;
+
+	@Param({ "eager", "lazy", "congruence" })
+	public String mode;
+
+	private ArchitectureFunctions archFunc;
+	private Architecture arch;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		archFunc = Models.create(size, mode);
+	}
+
+	@Setup(Level.Invocation)
+	public void newSnapshot() {
+		// the parser fills the architecture, so each invocation needs a new one
+		arch = archFunc.build();
+	}
+
+	@Benchmark
+	public RulesOfInferenceParserTopdown construct() {
+		return new RulesOfInferenceParserTopdown(arch);
+	}
+}
@@ -0,0 +1,113 @@
+package architecture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+import gui.ArchitectureFunctions;
+import properties.Property;
+import properties.RulesOfInferenceParserBottomup;
+import utils.ArchReader;
+
+/**
+ * Regression tests of the congruence closure on the smart metering architecture.
+ */
+public class EGraphTest {
+
+	// equalities that only follow by substituting the equations of the model
+	private static final String SUBSTITUTED = "equation sub_ppd: ppd = phi(readings, Dec(encBill, k), pw)\n"
+			+ "equation sub_encBill: encBill = Enc(beta(readings), k)\n"
+			+ "equation sub_encR: encBill = Enc(beta(Dec(encR, k)), k)\n"
+			+ "property knows(SM, sub_ppd, 1.0)\n"
+			+ "property knows(MI, sub_encBill, 1.0)\n"
+			+ "property knows(MI, sub_encR, 1.0)\n";
+
+	/**
+	 * Adding the second side of an equality merges a new composition into the class
+	 * of the first side, which must not be compared with its root from before.
+	 */
+	@Test
+	public void entailsAfterMergeByAdding() {
+		Term ppd = atom("ppd");
+		Term bill = atom("bill");
+		Term readings = atom("readings");
+		Term pw = atom("pw");
+		Term dec = Term.of(TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "Dec",
+				atom("encBill"), atom("k"), false);
+		EGraph egraph = new EGraph();
+		egraph.merge(equality("bill_dec", bill, dec));
+		egraph.merge(equality("ppd_phi", ppd, phi(readings, bill, pw)));
+		assertTrue(egraph.entails(equality("sub_ppd", ppd, phi(readings, dec, pw))));
+	}
+
+	/**
+	 * The bottom-up parser proves the same properties with congruence closure as
+	 * with the instantiated equality axioms.
+	 */
+	@Test
+	public void congruenceClosureMatchesEagerMode() throws IOException {
+		PrintStream out = System.out;
+		// the parsers trace to standard output
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			ArchitectureFunctions eager = smartMetering(false);
+			ArchitectureFunctions congruence = smartMetering(true);
+			RulesOfInferenceParserBottomup eagerParser = new RulesOfInferenceParserBottomup(eager.getArch());
+			RulesOfInferenceParserBottomup congruenceParser =
+					new RulesOfInferenceParserBottomup(congruence.getArch());
+			for (Property prop : congruence.getpSet()) {
+				boolean holds = congruenceParser.verifyStatement(prop, 0);
+				if (prop.toString().contains("Knows_")) {
+					assertTrue(holds, prop.toString());
+				}
+				for (Property same : eager.getpSet()) {
+					if (same.toString().equals(prop.toString())) {
+						assertEquals(eagerParser.verifyStatement(same, 0), holds, prop.toString());
+					}
+				}
+			}
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * Helper method that reads the smart metering architecture with the substituted
+	 * equalities and finishes it.
+	 */
+	private static ArchitectureFunctions smartMetering(boolean congruenceClosure) throws IOException {
+		String model = new String(Files.readAllBytes(Paths.get("..", "saves", "sem.cap")),
+				StandardCharsets.UTF_8);
+		ArchitectureFunctions archFunc = ArchReader.read(new StringReader(model + "\n" + SUBSTITUTED));
+		archFunc.setCongruenceClosure(congruenceClosure);
+		archFunc.finish();
+		return archFunc;
+	}
+
+	private static Term atom(String name) {
+		return Term.of(TermType.ATOM, new Variable(name), false);
+	}
+
+	private static Term phi(Term t1, Term t2, Term t3) {
+		return Term.of(TermType.COMPOSITION, OperatorType.TERTIARY, Operator.FUNC, "phi", t1, t2, t3,
+				false);
+	}
+
+	private static Equation equality(String name, Term op1, Term op2) {
+		return new Equation(name, Type.RELATION, Relation.EQUALITY, op1, op2);
+	}
+}
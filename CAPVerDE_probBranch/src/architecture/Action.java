@@ -168,6 +168,20 @@ public class Action implements Serializable {
 		this(action, component, null, null, comPartner, null, null, null, null, null);
 	}
 
+	/**
+	 * Method to get a copy of this action that is performed by other (equal)
+	 * components, e.g., the copies of a new architecture snapshot.
+	 * 
+	 * @param component
+	 *          the component that executes the action
+	 * @param comPartner
+	 *          the component that is interacted with, if any
+	 * @return the copy
+	 */
+	Action rebind(Component component, Component comPartner) {
+		return new Action(action, component, var, eq, comPartner, varSet, eqSet, stSet, pro, att);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -1,17 +1,25 @@
 package architecture;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import properties.Property;
 
 /**
  * Objects describing an architecture as a whole with all its components,
- * relations properties, and so on.
+ * relations properties, and so on. Once the verifiers are set up, the
+ * architecture is frozen and can be read by any number of threads, edits go
+ * into a new snapshot created with a {@link Builder}.
  */
 public class Architecture implements Serializable {
 
@@ -28,6 +36,11 @@ public class Architecture implements Serializable {
   private List<Property> allProperties;
   private List<Variable> allVariables;
   private List<Equation> allEquations;
+  private transient SymbolTable<Component> compIds;
+  private transient SymbolTable<Variable> variableIds;
+  private transient SymbolTable<Equation> equationIds;
+  private transient BitSet trustMatrix;
+  private boolean frozen;
 
   /**
    * The full Constructor of an architecture that is typically only invoked for
@@ -53,6 +66,8 @@ public class Architecture implements Serializable {
     allProperties = new ArrayList<Property>();
     allVariables = new ArrayList<Variable>();
     allEquations = new ArrayList<Equation>();
+    createSymbolTables();
+    createTrustMatrix();
     // Collect a list of all actions in the architecture
     allActions = new ArrayList<Action>();
     collectActions();
@@ -71,6 +86,71 @@ public class Architecture implements Serializable {
     this(compList, new LinkedHashSet<Action>(), new LinkedHashSet<Trust>());
   }
 
+  /**
+   * Helper method that assigns the dense ids to all components, variables and
+   * equations in the order of their lists.
+   */
+  private void createSymbolTables() {
+    compIds = new SymbolTable<Component>(compList);
+    variableIds = new SymbolTable<Variable>(allVariables);
+    equationIds = new SymbolTable<Equation>(allEquations);
+  }
+
+  /**
+   * Helper method that stores the trust relations as an adjacency matrix
+   * over the component ids, row-major with one row per truster.
+   */
+  private void createTrustMatrix() {
+    int size = compList.size();
+    trustMatrix = new BitSet(size * size);
+    for (Trust trust : trusts) {
+      int truster = compIds.id(trust.getTruster());
+      int trustee = compIds.id(trust.getTrustee());
+      if (truster >= 0 && trustee >= 0) {
+        trustMatrix.set(truster * size + trustee);
+      }
+    }
+  }
+
+  /**
+   * Method that makes the architecture read-only. Its lists can no longer be
+   * changed, and all setters and add methods throw an exception. The components
+   * still cache the deductions they instantiate on demand, which is thread-safe.
+   */
+  public void freeze() {
+    if (frozen) {
+      return;
+    }
+    compList = Collections.unmodifiableList(compList);
+    interCompActions = Collections.unmodifiableList(interCompActions);
+    allActions = Collections.unmodifiableList(allActions);
+    trusts = Collections.unmodifiableList(trusts);
+    allProperties = Collections.unmodifiableList(allProperties);
+    allVariables = Collections.unmodifiableList(allVariables);
+    allEquations = Collections.unmodifiableList(allEquations);
+    createSymbolTables();
+    createTrustMatrix();
+    frozen = true;
+  }
+
+  /**
+   * Method to check if the architecture is read-only.
+   * 
+   * @return true, if frozen
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Helper method that guards all changes of the architecture.
+   */
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException("The architecture is frozen, use a builder instead");
+    }
+  }
+
   /**
    * Method to check if a component trusts the other component.
    * 
@@ -81,6 +161,12 @@ public class Architecture implements Serializable {
    * @return true, if there exists such a trust relation
    */
   public boolean trust(Component comp1, Component comp2) {
+    int truster = compIds.id(comp1);
+    int trustee = compIds.id(comp2);
+    if (truster >= 0 && trustee >= 0) {
+      return trustMatrix.get(truster * compList.size() + trustee);
+    }
+    // trust in components outside the architecture is not in the matrix
     boolean trusted = false;
     for (Trust trust : trusts) {
       if (trust.isEqual(comp1, comp2, Collections.emptySet())) {
@@ -95,6 +181,7 @@ public class Architecture implements Serializable {
    * Helper method to collect all different equations in a list.
    */
   public void collectEquations() {
+    checkNotFrozen();
     // go through all properties and extract the equations
     for (Property prop : allProperties) {
       switch (prop.getType()) {
@@ -106,9 +193,21 @@ public class Architecture implements Serializable {
           break;
       }
     }
-    // also share this list of equations with its components
+    // also share this list of equations with its components, components with the
+    // same deductions instantiate them the same way, so only the first one does
+    Map<Set<Deduction>, Component> instantiated = new HashMap<Set<Deduction>, Component>();
     for (Component comp : compList) {
-      comp.setEqSet(new LinkedHashSet<Equation>(allEquations));
+      Component same = instantiated.get(comp.getDeducSet());
+      boolean fresh = comp.getDeductionCapability().isEmpty();
+      if (same != null && fresh && same.isLazyDeduction() == comp.isLazyDeduction()
+          && same.isCongruenceClosure() == comp.isCongruenceClosure()) {
+        comp.copyEqSet(same);
+      } else {
+        comp.setEqSet(new LinkedHashSet<Equation>(allEquations));
+        if (fresh) {
+          instantiated.putIfAbsent(comp.getDeducSet(), comp);
+        }
+      }
     }
   }
 
@@ -151,9 +250,10 @@ public class Architecture implements Serializable {
    *          the equation to add
    */
   public void addEquation(Equation eq) {
+    checkNotFrozen();
     // only add new equations
-    if ((eq != null) && (!allEquations.contains(eq))) {
-      allEquations.add(eq);
+    if (eq != null) {
+      equationIds.add(eq);
     }
   }
 
@@ -164,10 +264,64 @@ public class Architecture implements Serializable {
    *          the variable to add
    */
   public void addVariable(Variable var) {
+    checkNotFrozen();
     // Only add new variables to the list
-    if (!allVariables.contains(var)) {
-      allVariables.add(var);
-    }
+    variableIds.add(var);
+  }
+
+  /**
+   * Method to get the component of this architecture that equals the given one,
+   * e.g., the owner of a property that was created with the edited component.
+   * 
+   * @param comp
+   *          the component
+   * @return the component of this architecture, or the given one if not contained
+   */
+  public Component getComponent(Component comp) {
+    int id = compIds.id(comp);
+    return id < 0 ? comp : compList.get(id);
+  }
+
+  /**
+   * Method to get the id of a component, i.e., its position in the list.
+   * 
+   * @param comp
+   *          the component
+   * @return the id, or -1 if not contained
+   */
+  public int getComponentId(Component comp) {
+    return compIds.id(comp);
+  }
+
+  /**
+   * Method to get the id of a variable, i.e., its position in the list.
+   * 
+   * @param var
+   *          the variable
+   * @return the id, or -1 if not contained
+   */
+  public int getVariableId(Variable var) {
+    return variableIds.id(var);
+  }
+
+  /**
+   * Method to get the id of an equation, i.e., its position in the list.
+   * 
+   * @param eq
+   *          the equation
+   * @return the id, or -1 if not contained
+   */
+  public int getEquationId(Equation eq) {
+    return equationIds.id(eq);
+  }
+
+  /**
+   * Method that restores the ids after loading an architecture from a file.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    createSymbolTables();
+    createTrustMatrix();
   }
 
   // Getter and setter methods
@@ -176,11 +330,16 @@ public class Architecture implements Serializable {
   }
 
   public void setCompList(List<Component> compList) {
+    checkNotFrozen();
     this.compList = compList;
+    compIds = new SymbolTable<Component>(compList);
+    createTrustMatrix();
   }
 
   public void addComponent(Component comp) {
-    compList.add(comp);
+    checkNotFrozen();
+    compIds.add(comp);
+    createTrustMatrix();
   }
 
   public List<Action> getInterComp_Actions() {
@@ -188,10 +347,12 @@ public class Architecture implements Serializable {
   }
 
   public void setInterComp_Actions(List<Action> interCompActions) {
+    checkNotFrozen();
     this.interCompActions = interCompActions;
   }
 
   public void addInterComp_Action(Action action) {
+    checkNotFrozen();
     interCompActions.add(action);
   }
 
@@ -200,6 +361,7 @@ public class Architecture implements Serializable {
   }
 
   public void setAllActions(List<Action> allActions) {
+    checkNotFrozen();
     this.allActions = allActions;
   }
 
@@ -208,7 +370,9 @@ public class Architecture implements Serializable {
   }
 
   public void setTrusts(List<Trust> trusts) {
+    checkNotFrozen();
     this.trusts = trusts;
+    createTrustMatrix();
   }
 
   public List<Variable> getVariables() {
@@ -220,7 +384,9 @@ public class Architecture implements Serializable {
   }
 
   public void setAllEquations(List<Equation> allEquations) {
+    checkNotFrozen();
     this.allEquations = allEquations;
+    equationIds = new SymbolTable<Equation>(allEquations);
   }
 
   public List<Property> getAllProperties() {
@@ -228,7 +394,161 @@ public class Architecture implements Serializable {
   }
 
   public void setAllProperties(List<Property> allProperties) {
+    checkNotFrozen();
     this.allProperties = allProperties;
   }
 
+  /**
+   * Builder that assembles a new architecture from the parts that are edited,
+   * e.g., in the GUI. Each built architecture has its own copies of the
+   * components, so editing and finishing the next one does not change an
+   * architecture that is still being verified.
+   */
+  public static class Builder {
+
+    // class fields
+    private final Map<Component, Component> copies;
+    private final Set<Component> members;
+    private final Set<Action> interCompActions;
+    private final Set<Trust> trusts;
+    private boolean lazyDeduction;
+    private boolean congruenceClosure;
+
+    /**
+     * The constructor for an empty builder.
+     */
+    public Builder() {
+      copies = new LinkedHashMap<Component, Component>();
+      members = new LinkedHashSet<Component>();
+      interCompActions = new LinkedHashSet<Action>();
+      trusts = new LinkedHashSet<Trust>();
+    }
+
+    /**
+     * Method that adds a component together with its actions, deps and deductions.
+     * 
+     * @param comp
+     *          the component
+     * @return this builder
+     */
+    public Builder addComponent(Component comp) {
+      members.add(copyOf(comp));
+      return this;
+    }
+
+    /**
+     * Method that adds an action, either to its component or as an interaction
+     * between two components.
+     * 
+     * @param action
+     *          the action
+     * @return this builder
+     */
+    public Builder addAction(Action action) {
+      Component comp = copyOf(action.getComponent());
+      Component partner = action.getComPartner() == null ? null : copyOf(action.getComPartner());
+      Action copy = action.rebind(comp, partner);
+      if (action.getAction() == Action.ActionType.RECEIVE) {
+        interCompActions.add(copy);
+      } else {
+        comp.addAction(copy);
+      }
+      return this;
+    }
+
+    /**
+     * Method that adds a dep to a component.
+     * 
+     * @param comp
+     *          the component
+     * @param dep
+     *          the dep
+     * @return this builder
+     */
+    public Builder addDependence(Component comp, Dep dep) {
+      copyOf(comp).addDependence(dep);
+      return this;
+    }
+
+    /**
+     * Method that sets the deductions a component is capable of.
+     * 
+     * @param comp
+     *          the component
+     * @param deducSet
+     *          the deductions
+     * @return this builder
+     */
+    public Builder setDeductions(Component comp, Set<Deduction> deducSet) {
+      copyOf(comp).setDeducSet(deducSet);
+      return this;
+    }
+
+    /**
+     * Method that adds a trust relation.
+     * 
+     * @param trust
+     *          the trust relation
+     * @return this builder
+     */
+    public Builder addTrust(Trust trust) {
+      trusts.add(trust);
+      return this;
+    }
+
+    /**
+     * Method to choose the deduction modes of all components, see
+     * {@link Component#setLazyDeduction(boolean)} and
+     * {@link Component#setCongruenceClosure(boolean)}.
+     * 
+     * @param lazyDeduction
+     *          true, to instantiate deductions on demand
+     * @param congruenceClosure
+     *          true, to use congruence closure
+     * @return this builder
+     */
+    public Builder setDeductionModes(boolean lazyDeduction, boolean congruenceClosure) {
+      this.lazyDeduction = lazyDeduction;
+      this.congruenceClosure = congruenceClosure;
+      return this;
+    }
+
+    /**
+     * Method that creates the architecture. It can still be changed until it is
+     * frozen.
+     * 
+     * @return the new architecture
+     */
+    public Architecture build() {
+      for (Component comp : members) {
+        comp.setLazyDeduction(lazyDeduction);
+        comp.setCongruenceClosure(congruenceClosure);
+      }
+      return new Architecture(members, interCompActions, trusts);
+    }
+
+    /**
+     * Helper method to get the copy of a component that belongs to the new
+     * architecture.
+     */
+    private Component copyOf(Component comp) {
+      Component copy = copies.get(comp);
+      if (copy == null) {
+        copy = new Component(comp.getName());
+        copies.put(comp, copy);
+        for (Variable var : comp.getVarSet()) {
+          copy.addVar(var);
+        }
+        for (Dep dep : comp.getDepSet()) {
+          copy.addDependence(dep);
+        }
+        copy.setDeducSet(new LinkedHashSet<Deduction>(comp.getDeducSet()));
+        for (Action action : comp.getActions()) {
+          addAction(action);
+        }
+      }
+      return copy;
+    }
+  }
+
 }
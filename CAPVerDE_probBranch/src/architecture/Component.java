@@ -1,9 +1,18 @@
 package architecture;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import utils.SmtCleanup;
 
@@ -26,6 +35,10 @@ public class Component implements Serializable {
 	private Set<Deduction> deducSet;
 	private Set<Deduction> deductionCapability;
 	private Set<Equation> eqSet;
+	private boolean lazyDeduction;
+	private boolean congruenceClosure;
+	private transient EquationIndex eqIndex;
+	private transient Map<Equation, Set<Deduction>> demanded;
 
 	/**
 	 * The full Constructor typically invoked for an already complete component
@@ -82,55 +95,317 @@ public class Component implements Serializable {
 	private void makeDeduction() {
 		// go through deducSet and make explicit deduction with all known equations
 		for (Deduction deduc : deducSet) {
-			for (int index1 = 0; index1 < eqSet.size(); index1++) {
-				Equation eq1 = new ArrayList<Equation>(eqSet).get(index1);
-				Deduction tmpDeduc1 = new Deduction(deduc, deduc.getName() + "Explicit");
-				// for each equation that matches the first premise
-				Set<Equation> match1 = eq1.match2(new ArrayList<Equation>(deduc.getPremises()).get(0));
-				if (!match1.isEmpty()) {
-					// update the deduction with the real variables
-					tmpDeduc1.update(match1);
-					// go through the remaining premise and look for matches
-					if (deduc.getPremises().size() > 1) {
-						for (int index2 = 0; index2 < eqSet.size(); index2++) {
-							Equation eq2 = new ArrayList<Equation>(eqSet).get(index2);
-							if (eq2 == eq1) {
-								continue;
-							}
-							Deduction tmpDeduc2 = new Deduction(tmpDeduc1, tmpDeduc1.getName() + "Final");
-							Set<Equation> match2 = eq2.match2(new ArrayList<Equation>(tmpDeduc1.getPremises()).get(1));
-							if (!match2.isEmpty()) {
-								// further update the deduction with real values
-								tmpDeduc2.update(match2);
-								// TODO currently max two premises assumed
-
-								// TODO does this line destroy other deductions??
-								// here only the conclusion is updated with the second premise
-								tmpDeduc2.getConclusion().update(new ArrayList<Equation>(tmpDeduc2.getPremises()).get(1));
-
-								// add the explicit deduction to the list
-								tmpDeduc2.getConclusion().setName(tmpDeduc2.getConclusion().getName() + "_"
-										+ SmtCleanup.removeParantheses(tmpDeduc2.getConclusion().getOp1().toString()));
-								if (!tmpDeduc2.getPremises().contains(tmpDeduc2.getConclusion())) {
-									// only add the new deduction, if it is not too complex
-									// i.e., do not add: conclusions like -> f(g(f(g(y))))=y
-									addDeductionCapability(tmpDeduc2);
-								}
-							}
-						}
-					} else {
-						// add the deduction with only one premise
-						tmpDeduc1.getConclusion().setName(tmpDeduc1.getConclusion().getName() + "_"
-								+ SmtCleanup.removeParantheses(tmpDeduc1.getConclusion().getOp1().toString()));
-						// only add deduction that have something new to offer
-						if (!tmpDeduc1.getPremises().contains(tmpDeduc1.getConclusion())) {
-							addDeductionCapability(tmpDeduc1);
+			if (deduc.getPremises().isEmpty()) {
+				// only reflexive conclusions, which are never added
+				continue;
+			}
+			if (congruenceClosure && deduc.isEqualityAxiom()) {
+				// equalities are derived with an EGraph instead
+				continue;
+			}
+			// only add the new deduction, if it is not too complex
+			// i.e., do not add: conclusions like -> f(g(f(g(y))))=y
+			join(deduc, new Unifier(), Collections.emptyMap(), this::addDeductionCapability);
+		}
+	}
+
+	/**
+	 * Helper method that instantiates a deduction with any number of premises by
+	 * joining the premises with the known equations.
+	 * 
+	 * @param template
+	 *          the variable deduction
+	 * @param unifier
+	 *          the unifier, possibly with bindings for the conclusion
+	 * @param restricted
+	 *          candidate equations to use instead of the index for some premises
+	 * @param sink
+	 *          the consumer for the explicit deductions
+	 */
+	private void join(Deduction template, Unifier unifier, Map<Integer, List<Equation>> restricted,
+			Consumer<Deduction> sink) {
+		Equation[] premises = template.getPremises().toArray(new Equation[0]);
+		join(template, premises, new Equation[premises.length], unifier, restricted, sink);
+	}
+
+	/**
+	 * Helper method for the join. The next premise to bind is always the one with
+	 * the fewest candidate equations under the bindings so far, and the bindings
+	 * are kept in the unifier, which is reset after each candidate. The candidate
+	 * lists grow with added conclusions, so they are iterated by index.
+	 * 
+	 * @param template
+	 *          the variable deduction
+	 * @param premises
+	 *          the premises of the variable deduction
+	 * @param chosen
+	 *          the equation bound to each premise, null for unbound premises
+	 * @param unifier
+	 *          the bindings so far
+	 * @param restricted
+	 *          candidate equations to use instead of the index for some premises
+	 * @param sink
+	 *          the consumer for the explicit deductions
+	 */
+	private void join(Deduction template, Equation[] premises, Equation[] chosen, Unifier unifier,
+			Map<Integer, List<Equation>> restricted, Consumer<Deduction> sink) {
+		// pick the most selective unbound premise
+		int next = -1;
+		List<Equation> candidates = null;
+		for (int i = 0; i < chosen.length; i++) {
+			if (chosen[i] == null) {
+				List<Equation> tmp = restricted.containsKey(i) ? restricted.get(i)
+						: getEqIndex().candidates(unifier.apply(premises[i]));
+				if (candidates == null || tmp.size() < candidates.size()) {
+					next = i;
+					candidates = tmp;
+				}
+			}
+		}
+		if (next < 0) {
+			// all premises are bound
+			Deduction deduction = instance(template, premises, unifier);
+			if (finish(deduction)) {
+				sink.accept(deduction);
+			}
+			return;
+		}
+		for (int index = 0; index < candidates.size(); index++) {
+			Equation eq = candidates.get(index);
+			if (isChosen(chosen, eq)) {
+				// every premise needs its own equation
+				continue;
+			}
+			int mark = unifier.mark();
+			if (!unifier.unify(premises[next], eq)) {
+				continue;
+			}
+			chosen[next] = eq;
+			join(template, premises, chosen, unifier, restricted, sink);
+			chosen[next] = null;
+			unifier.undo(mark);
+		}
+	}
+
+	/**
+	 * Helper method that creates the explicit deduction for the bindings of all premises.
+	 * 
+	 * @param template
+	 *          the variable deduction
+	 * @param premises
+	 *          the premises of the variable deduction
+	 * @param unifier
+	 *          the bindings
+	 * @return the explicit deduction
+	 */
+	private static Deduction instance(Deduction template, Equation[] premises, Unifier unifier) {
+		Set<Equation> bound = new LinkedHashSet<Equation>();
+		for (Equation premise : premises) {
+			bound.add(unifier.apply(premise));
+		}
+		// one suffix per bound premise
+		StringBuilder name = new StringBuilder(template.getName()).append("Explicit");
+		for (int i = 1; i < premises.length; i++) {
+			name.append("Final");
+		}
+		return new Deduction(template.getType(), bound, unifier.apply(template.getConclusion()),
+				name.toString(), template.getProb());
+	}
+
+	/**
+	 * Helper method that updates the conclusion of a fully bound deduction with its
+	 * further premises and names it.
+	 * 
+	 * @param deduction
+	 *          the explicit deduction
+	 * @return true, if the deduction offers something new
+	 */
+	private boolean finish(Deduction deduction) {
+		// here only the conclusion is updated with the premises after the first one
+		Equation conclusion = deduction.getConclusion();
+		for (int i = 1; i < deduction.getPremises().size(); i++) {
+			conclusion = conclusion.substitute(deduction.getPremise(i));
+		}
+		// the conclusion may be shared with other deductions, so a renamed copy is used
+		deduction.setConclusion(new Equation(conclusion, conclusion.getName() + "_"
+				+ SmtCleanup.removeParantheses(conclusion.getOp1().toString())));
+		// only add deduction that have something new to offer
+		return !deduction.getPremises().contains(deduction.getConclusion());
+	}
+
+	private static boolean isChosen(Equation[] chosen, Equation eq) {
+		for (Equation other : chosen) {
+			if (other == eq) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to get the explicit deductions with a given conclusion.
+	 * In lazy mode, the deductions are only instantiated now: the conclusion of each
+	 * variable deduction is matched against the goal first, so only premises that
+	 * can lead to the goal are looked up. Substitutions cannot be bound backwards,
+	 * there only the second premises whose right-hand side occurs in the goal are tried.
+	 * The premises are looked up in the known equations and in the conclusions of
+	 * earlier goals, and the result is cached per goal.
+	 * 
+	 * @param goal
+	 *          the equation to deduce
+	 * @return the explicit deductions that conclude the goal
+	 */
+	public synchronized Set<Deduction> getDeductionsFor(Equation goal) {
+		if (!lazyDeduction) {
+			// everything was already instantiated
+			Set<Deduction> deductions = new LinkedHashSet<Deduction>();
+			for (Deduction ded : deductionCapability) {
+				if (ded.getConclusion().equals(goal)) {
+					deductions.add(ded);
+				}
+			}
+			return deductions;
+		}
+		if (demanded == null) {
+			demanded = new HashMap<Equation, Set<Deduction>>();
+		}
+		Set<Deduction> deductions = demanded.get(goal);
+		if (deductions != null) {
+			return deductions;
+		}
+		deductions = new LinkedHashSet<Deduction>();
+		for (Deduction deduc : deducSet) {
+			if (deduc.getPremises().isEmpty()) {
+				// only reflexive conclusions, which are never added
+				continue;
+			}
+			if (congruenceClosure && deduc.isEqualityAxiom()) {
+				// equalities are derived with an EGraph instead
+				continue;
+			}
+			if (deduc.getType() == Deduction.Type.SUBST) {
+				instantiateSubst(deduc, goal, deductions);
+			} else {
+				instantiate(deduc, goal, deductions);
+			}
+		}
+		demanded.put(goal, deductions);
+		for (Deduction ded : deductions) {
+			// the conclusion can be a premise for later goals
+			getEqIndex().add(ded.getConclusion());
+		}
+		return deductions;
+	}
+
+	/**
+	 * Method to get the explicit deductions needed to deduce some goals, i.e., the
+	 * deductions for the goals and, transitively, for their premises.
+	 * Without lazy mode, this is the whole deduction capability.
+	 * 
+	 * @param goals
+	 *          the equations to deduce
+	 * @return the explicit deductions
+	 */
+	public Set<Deduction> getRelevantDeductions(Collection<Equation> goals) {
+		if (!lazyDeduction) {
+			return deductionCapability;
+		}
+		Set<Deduction> deductions = new LinkedHashSet<Deduction>();
+		Set<Equation> visited = new HashSet<Equation>(goals);
+		Deque<Equation> pending = new ArrayDeque<Equation>(visited);
+		while (!pending.isEmpty()) {
+			for (Deduction ded : getDeductionsFor(pending.poll())) {
+				if (deductions.add(ded)) {
+					for (Equation eq : ded.getPremises()) {
+						if (visited.add(eq)) {
+							pending.add(eq);
 						}
 					}
 				}
 			}
+		}
+		return deductions;
+	}
 
+	/**
+	 * Helper method that instantiates a deduction backwards from its conclusion.
+	 * 
+	 * @param deduc
+	 *          the variable deduction
+	 * @param goal
+	 *          the equation to deduce
+	 * @param deductions
+	 *          the set to add the explicit deductions to
+	 */
+	private void instantiate(Deduction deduc, Equation goal, Set<Deduction> deductions) {
+		Unifier unifier = new Unifier();
+		if (!unifier.unify(deduc.getConclusion(), goal)) {
+			// the conclusion cannot become the goal
+			return;
 		}
+		join(deduc, unifier, Collections.emptyMap(), ded -> addDemanded(ded, goal, deductions));
+	}
+
+	/**
+	 * Helper method that instantiates a substitution for a goal.
+	 * The conclusion is the first premise with the left-hand side of the last
+	 * premise replaced by its right-hand side, so the right-hand side must occur in the goal.
+	 * 
+	 * @param deduc
+	 *          the variable substitution
+	 * @param goal
+	 *          the equation to deduce
+	 * @param deductions
+	 *          the set to add the explicit deductions to
+	 */
+	private void instantiateSubst(Deduction deduc, Equation goal, Set<Deduction> deductions) {
+		List<Equation> substitutions = new ArrayList<Equation>();
+		for (Equation eq2 : getEqIndex().getAll()) {
+			if (eq2.getType() == Equation.Type.RELATION
+					&& (containsTerm(goal.getOp1(), eq2.getOp2())
+							|| containsTerm(goal.getOp2(), eq2.getOp2()))) {
+				substitutions.add(eq2);
+			}
+		}
+		if (substitutions.isEmpty()) {
+			return;
+		}
+		int last = deduc.getPremises().size() - 1;
+		join(deduc, new Unifier(),
+				last > 0 ? Collections.singletonMap(last, substitutions) : Collections.emptyMap(),
+				ded -> addDemanded(ded, goal, deductions));
+	}
+
+	/**
+	 * Helper method that keeps an explicit deduction if it concludes the goal from
+	 * known premises and would also be kept by {@link #addDeductionCapability(Deduction)}.
+	 */
+	private void addDemanded(Deduction deduction, Equation goal, Set<Deduction> deductions) {
+		if (!deduction.getConclusion().equals(goal)) {
+			return;
+		}
+		for (Equation premise : deduction.getPremises()) {
+			if (!getEqIndex().contains(premise)) {
+				return;
+			}
+		}
+		if (!deduction.containsMatchVar() && !deduction.isReflexive() && !deduction.isTooComplex()) {
+			deductions.add(deduction);
+		}
+	}
+
+	/**
+	 * Helper method to check if a term occurs in another term.
+	 */
+	private static boolean containsTerm(Term term, Term sub) {
+		if (term == null || sub == null) {
+			return false;
+		}
+		if (term.equals(sub)) {
+			return true;
+		}
+		return containsTerm(term.getT1(), sub) || containsTerm(term.getT2(), sub)
+				|| containsTerm(term.getT3(), sub);
 	}
 
 	@Override
@@ -194,17 +469,38 @@ public class Component implements Serializable {
 
 	/**
 	 * Setter method for the equation list that subsequently calls the
-	 * {@link #makeDeduction() makeDeduction()} method.
+	 * {@link #makeDeduction() makeDeduction()} method, unless in lazy mode.
 	 * @param eqSet
 	 *          the list of equation to set
 	 */
-	public void setEqSet(Set<Equation> eqSet) {
+	public synchronized void setEqSet(Set<Equation> eqSet) {
 		// make copy to avoid equation sharing between components
 		this.eqSet = eqSet;
+		eqIndex = new EquationIndex(eqSet);
+		if (lazyDeduction) {
+			// deductions are instantiated on demand, see getDeductionsFor(Equation)
+			demanded = null;
+			return;
+		}
 		// also trigger the deduction capability
 		makeDeduction();
 	}
 
+	/**
+	 * Method that takes over the equations and the instantiated deductions of a
+	 * component with the same deductions and modes, instead of instantiating them
+	 * again with {@link #setEqSet(Set)}. The sets are copied, so both components
+	 * can derive more equations independently afterwards.
+	 * @param other
+	 *          the component whose equation list was set to the same equations
+	 */
+	public synchronized void copyEqSet(Component other) {
+		eqSet = new LinkedHashSet<Equation>(other.eqSet);
+		eqIndex = new EquationIndex(eqSet);
+		deductionCapability = new LinkedHashSet<Deduction>(other.deductionCapability);
+		demanded = null;
+	}
+
 	/**
 	 * Method to add an equation to the list if not already contained.
 	 * Also signals the success whether or not the equation was added.
@@ -214,7 +510,24 @@ public class Component implements Serializable {
 	 */
 	public boolean addEquation(Equation eq) {
 		// only add new equations
-		return eqSet.add(eq);
+		if (eqSet.add(eq)) {
+			getEqIndex().add(eq);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Helper method to get the index of the known equations, which is rebuilt
+	 * after deserialization.
+	 * 
+	 * @return the index
+	 */
+	private EquationIndex getEqIndex() {
+		if (eqIndex == null) {
+			eqIndex = new EquationIndex(eqSet);
+		}
+		return eqIndex;
 	}
 
 	/**
@@ -291,6 +604,35 @@ public class Component implements Serializable {
 		return deductionCapability;
 	}
 
+	public boolean isLazyDeduction() {
+		return lazyDeduction;
+	}
+
+	public synchronized void setLazyDeduction(boolean lazyDeduction) {
+		this.lazyDeduction = lazyDeduction;
+		// forget the conclusions derived on demand
+		eqIndex = null;
+		demanded = null;
+	}
+
+	public boolean isCongruenceClosure() {
+		return congruenceClosure;
+	}
+
+	/**
+	 * Method to choose whether the equality axioms (symmetry, transitivity,
+	 * substitution) among the deductions are instantiated, or left to the
+	 * congruence closure of the parsers, see {@link EGraph}.
+	 * Takes effect with the next {@link #setEqSet(Set)}.
+	 * 
+	 * @param congruenceClosure
+	 *          true, to skip the equality axioms
+	 */
+	public synchronized void setCongruenceClosure(boolean congruenceClosure) {
+		this.congruenceClosure = congruenceClosure;
+		demanded = null;
+	}
+
 	public void setDeductionCapability(Set<Deduction> deductionCapability) {
 		this.deductionCapability = deductionCapability;
 	}
@@ -1,11 +1,15 @@
 package architecture;
 
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
  * Objects that model a deduction a component can make.
+ * A deduction can have any number of premises. When it is instantiated, the
+ * conclusion is also rewritten with every premise after the first one, which
+ * is how substitutions are expressed.
  */
 public class Deduction implements Serializable {
 
@@ -48,7 +52,8 @@ public class Deduction implements Serializable {
 	}
 
 	/**
-	 * The copy constructor that creates deep copies for its equations.
+	 * The copy constructor. The equations are shared with the original, as
+	 * substitutions replace them instead of changing them.
 	 * 
 	 * @param original
 	 *          the deduction to be copied
@@ -58,31 +63,29 @@ public class Deduction implements Serializable {
 	public Deduction(Deduction original, String name) {
 		this.name = name;
 		type = original.getType();
-		premises = new LinkedHashSet<Equation>();
+		premises = new LinkedHashSet<Equation>(original.getPremises());
 		prob = original.getProb();
-		// deep copy for each equation
-		for (Equation eq : original.getPremises()) {
-			premises.add(new Equation(eq, eq.getName()));
-		}
-		conclusion = new Equation(original.getConclusion(), original.getConclusion().getName());
+		conclusion = original.getConclusion();
 	}
 
 	/**
 	 * Method that reevaluates this deduction based on a list of substitutions.
-	 * Calls {@link Equation#update(Equation) update(Equation)} method for premises and conclusion.
+	 * Calls {@link Equation#substitute(Equation) substitute(Equation)} for premises and conclusion.
+	 * Premises that become equal to each other are only kept once.
 	 * @param substitutions
 	 *          the substitutions
 	 */
 	public void update(Set<Equation> substitutions) {
-		// TODO change the deduction according to the substitution
 		// go through all substitutions and change the terms accordingly
 		for (Equation substitution : substitutions) {
+			Set<Equation> updated = new LinkedHashSet<Equation>();
 			for (Equation premise : premises) {
 				// update each premise
-				premise.update(substitution);
+				updated.add(premise.substitute(substitution));
 			}
+			premises = updated;
 			// also update the conclusion
-			conclusion.update(substitution);
+			conclusion = conclusion.substitute(substitution);
 		}
 	}
 
@@ -125,6 +128,26 @@ public class Deduction implements Serializable {
 		return conclusion.isReflexive();
 	}
 
+	/**
+	 * Checks if the deduction is an axiom of equality like symmetry or
+	 * transitivity, i.e., all its equations are equalities of match variables.
+	 * 
+	 * @return true, if the deduction only relates match variables by equality
+	 */
+	public boolean isEqualityAxiom() {
+		for (Equation eq : premises) {
+			if (!isVariableEquality(eq)) {
+				return false;
+			}
+		}
+		return isVariableEquality(conclusion);
+	}
+
+	private static boolean isVariableEquality(Equation eq) {
+		return eq.getType() == Equation.Type.RELATION && eq.getRel() == Equation.Relation.EQUALITY
+				&& Unifier.isVariable(eq.getOp1()) && Unifier.isVariable(eq.getOp2());
+	}
+
 	public boolean isTooComplex() {
 		// check if the deduction contains equation with a depth > 3
 		return conclusion.getDepth() > 3;
@@ -135,6 +158,21 @@ public class Deduction implements Serializable {
 		return premises;
 	}
 
+	/**
+	 * Method to get a premise by its position.
+	 * 
+	 * @param index
+	 *          the position of the premise
+	 * @return the premise
+	 */
+	public Equation getPremise(int index) {
+		Iterator<Equation> iterator = premises.iterator();
+		for (int i = 0; i < index; i++) {
+			iterator.next();
+		}
+		return iterator.next();
+	}
+
 	public void setPremises(Set<Equation> premises) {
 		this.premises = premises;
 	}
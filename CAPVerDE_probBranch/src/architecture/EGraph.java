@@ -0,0 +1,239 @@
+package architecture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+
+/**
+ * Congruence closure over the terms of known equations (an e-graph). Merged terms
+ * are in the same class, and compositions of the same function whose arguments are
+ * in the same classes are merged as well. So reflexivity, symmetry, transitivity
+ * and substitution of equalities are answered by comparing classes, without
+ * instantiating deductions and without a limit on the depth of terms.
+ */
+public class EGraph {
+
+	// class fields
+	private final Map<Term, Integer> ids;
+	private final List<Term> nodes;
+	private int[] parent;
+	private final List<List<Integer>> uses;
+	private final Map<Signature, Integer> signatures;
+	private final Deque<int[]> pending;
+
+	/**
+	 * The constructor for an empty e-graph.
+	 */
+	public EGraph() {
+		ids = new HashMap<Term, Integer>();
+		nodes = new ArrayList<Term>();
+		parent = new int[16];
+		uses = new ArrayList<List<Integer>>();
+		signatures = new HashMap<Signature, Integer>();
+		pending = new ArrayDeque<int[]>();
+	}
+
+	/**
+	 * Method that adds a term and all its sub-terms. A new composition is merged
+	 * with an existing one of the same function whose arguments are in the same classes.
+	 *
+	 * @param term
+	 *          the term
+	 * @return the id of the term
+	 */
+	public synchronized int add(Term term) {
+		Integer id = ids.get(term);
+		if (id != null) {
+			return id;
+		}
+		int[] children = new int[0];
+		if (term.getType() == TermType.COMPOSITION) {
+			switch (term.getOpType()) {
+			case UNARY:
+				children = new int[] { add(term.getT1()) };
+				break;
+			case BINARY:
+				children = new int[] { add(term.getT1()), add(term.getT2()) };
+				break;
+			case TERTIARY:
+				children = new int[] { add(term.getT1()), add(term.getT2()), add(term.getT3()) };
+				break;
+			default:
+				break;
+			}
+		}
+		int node = nodes.size();
+		nodes.add(term);
+		ids.put(term, node);
+		if (node == parent.length) {
+			parent = Arrays.copyOf(parent, node * 2);
+		}
+		parent[node] = node;
+		uses.add(new ArrayList<Integer>());
+		if (children.length > 0) {
+			for (int child : children) {
+				uses.get(find(child)).add(node);
+			}
+			Integer congruent = signatures.putIfAbsent(signature(node), node);
+			if (congruent != null) {
+				pending.add(new int[] { node, congruent });
+				propagate();
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Method that merges the two sides of an equality.
+	 *
+	 * @param eq
+	 *          the equation, other relations are ignored
+	 * @return true, if two classes were merged
+	 */
+	public synchronized boolean merge(Equation eq) {
+		if (!isEquality(eq)) {
+			return false;
+		}
+		int id1 = add(eq.getOp1());
+		int id2 = add(eq.getOp2());
+		if (find(id1) == find(id2)) {
+			return false;
+		}
+		pending.add(new int[] { id1, id2 });
+		propagate();
+		return true;
+	}
+
+	/**
+	 * Method to check if an equality follows from the merged equations.
+	 *
+	 * @param eq
+	 *          the equation
+	 * @return true, if both sides are in the same class
+	 */
+	public synchronized boolean entails(Equation eq) {
+		if (!isEquality(eq)) {
+			return false;
+		}
+		// adding the second side may merge the class of the first one, so both are added first
+		int id1 = add(eq.getOp1());
+		int id2 = add(eq.getOp2());
+		return find(id1) == find(id2);
+	}
+
+	/**
+	 * Helper method that merges the pending pairs and then all compositions that
+	 * became congruent by that.
+	 */
+	private void propagate() {
+		while (!pending.isEmpty()) {
+			int[] pair = pending.poll();
+			int root1 = find(pair[0]);
+			int root2 = find(pair[1]);
+			if (root1 == root2) {
+				continue;
+			}
+			// the class with fewer uses is merged into the other one
+			if (uses.get(root1).size() < uses.get(root2).size()) {
+				int tmp = root1;
+				root1 = root2;
+				root2 = tmp;
+			}
+			parent[root2] = root1;
+			// only the signatures of the uses of the merged class have changed
+			for (int use : uses.get(root2)) {
+				Integer congruent = signatures.putIfAbsent(signature(use), use);
+				if (congruent != null && find(congruent) != find(use)) {
+					pending.add(new int[] { use, congruent });
+				}
+			}
+			uses.get(root1).addAll(uses.get(root2));
+			uses.set(root2, null);
+		}
+	}
+
+	/**
+	 * Helper method to find the representative of a class.
+	 */
+	private int find(int node) {
+		while (parent[node] != node) {
+			// path halving
+			parent[node] = parent[parent[node]];
+			node = parent[node];
+		}
+		return node;
+	}
+
+	/**
+	 * Helper method to get the signature of a composition under the current classes.
+	 */
+	private Signature signature(int node) {
+		Term term = nodes.get(node);
+		int[] children;
+		switch (term.getOpType()) {
+		case UNARY:
+			children = new int[] { find(ids.get(term.getT1())) };
+			break;
+		case BINARY:
+			children = new int[] { find(ids.get(term.getT1())), find(ids.get(term.getT2())) };
+			break;
+		default:
+			children = new int[] { find(ids.get(term.getT1())), find(ids.get(term.getT2())),
+					find(ids.get(term.getT3())) };
+			break;
+		}
+		return new Signature(term.getOpType(), term.getOp(), term.getFuncName(), children);
+	}
+
+	private static boolean isEquality(Equation eq) {
+		return eq.getType() == Type.RELATION && eq.getRel() == Relation.EQUALITY;
+	}
+
+	/**
+	 * The function of a composition together with the classes of its arguments.
+	 */
+	private static final class Signature {
+
+		private final OperatorType opType;
+		private final Operator op;
+		private final String funcName;
+		private final int[] children;
+
+		private Signature(OperatorType opType, Operator op, String funcName, int[] children) {
+			this.opType = opType;
+			this.op = op;
+			this.funcName = funcName;
+			this.children = children;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(opType, op, funcName) * 31 + Arrays.hashCode(children);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Signature)) {
+				return false;
+			}
+			Signature other = (Signature) obj;
+			return opType == other.opType && op == other.op
+					&& Objects.equals(funcName, other.funcName)
+					&& Arrays.equals(children, other.children);
+		}
+	}
+}
@@ -42,6 +42,7 @@ public class Equation implements P, Serializable {
 	private Variable lefthandSide;
 	private int depth;
 	private Set<Variable> allAtoms;
+	private transient int hash;
 
 	/**
 	 * The full constructor for an equation
@@ -158,8 +159,9 @@ public class Equation implements P, Serializable {
 			switch (type) {
 			case RELATION:
 				rel = original.getRel();
-				op1 = new Term(original.getOp1());
-				op2 = new Term(original.getOp2());
+				// terms are immutable, so they can be shared
+				op1 = original.getOp1();
+				op2 = original.getOp2();
 				if (rel.equals(Relation.EQUALITY)) {
 					// Get the left-hand side of a standard equation
 					lefthandSide = new Variable(op1.toString());
@@ -175,21 +177,27 @@ public class Equation implements P, Serializable {
 			}
 			// Fill the term list
 			collectTerms(this);
-			//collectAtoms();
 		}
+		// the atoms do not change, so the set can be shared
+		allAtoms = original.allAtoms;
 		depth = original.depth;
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((eq1 == null) ? 0 : eq1.hashCode());
-		result = prime * result + ((eq2 == null) ? 0 : eq2.hashCode());
-		result = prime * result + ((op1 == null) ? 0 : op1.hashCode());
-		result = prime * result + ((op2 == null) ? 0 : op2.hashCode());
-		result = prime * result + ((rel == null) ? 0 : rel.hashCode());
-		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		// the hash is cached until the equation is changed (0 means not computed yet)
+		int result = hash;
+		if (result == 0) {
+			final int prime = 31;
+			result = 1;
+			result = prime * result + ((eq1 == null) ? 0 : eq1.hashCode());
+			result = prime * result + ((eq2 == null) ? 0 : eq2.hashCode());
+			result = prime * result + ((op1 == null) ? 0 : op1.hashCode());
+			result = prime * result + ((op2 == null) ? 0 : op2.hashCode());
+			result = prime * result + ((rel == null) ? 0 : rel.hashCode());
+			result = prime * result + ((type == null) ? 0 : type.hashCode());
+			hash = result;
+		}
 		return result;
 	}
 
@@ -209,6 +217,9 @@ public class Equation implements P, Serializable {
 			// empty equation equals everything
 			return true;
 		}
+		if (hashCode() != other.hashCode()) {
+			return false;
+		}
 		if (eq1 == null) {
 			if (other.eq1 != null) {
 				return false;
@@ -321,8 +332,15 @@ public class Equation implements P, Serializable {
 	
 	/**
 	 * Helper method to collect all atom variables from the two operands of this equation.
+	 * The terms already hold their atoms, so nothing is traversed here.
 	 */
 	private void collectAtoms() {
+		if (type == Type.CONJUNCTION) {
+			// collect the atoms of both sub-equations
+			allAtoms.addAll(eq1.getAtoms());
+			allAtoms.addAll(eq2.getAtoms());
+			return;
+		}
 		// collect the unique atoms from both sides of the equation
 		allAtoms.addAll(op1.getAtomSet());
 		allAtoms.addAll(op2.getAtomSet());
@@ -348,637 +366,81 @@ public class Equation implements P, Serializable {
 	}
 
 	/**
-	 * Method for pattern matching equations, recursive version, using
-	 * Term.match() method
+	 * Method for pattern matching equations, see {@link Unifier}.
 	 * 
 	 * @param pattern
 	 *          pattern equation, e.g. x=h(y)
 	 * @return a list of equations representing the matches, e.g. x=cp, y=p
 	 */
 	public Set<Equation> match2(Equation pattern) {
-		if (type == Type.CONJUNCTION) {
-			//TODO currently not supported
-			return Collections.emptySet();
-		}
-		if (!pattern.op1.isMatchVar()) {
-			// explicit term, must be equal
-			if (!op1.equals(pattern.op1)) {
-				return Collections.emptySet();
-			}
-			// now check the second term
-			return op2.match(pattern.op2);
-		}
-		// op1 is a matchVar
-		if (!pattern.op2.isMatchVar()) {
-			// explicit term must be equal
-			if (!op2.equals(pattern.op2)) {
-				return Collections.emptySet();
-			}
-			// just check the first term
-			return op1.match(pattern.op1);
-		}
-		// default: both terms are matchVars
-		Set<Equation> matches = new LinkedHashSet<Equation>();
-		matches.addAll(op1.match(pattern.op1));
-		int size = matches.size();
-		if (size < 1) {
-			// both sides must match
+		Unifier unifier = new Unifier();
+		if (!unifier.unify(pattern, this)) {
 			return Collections.emptySet();
 		}
-		matches.addAll(op2.match(pattern.op2));
-		if (matches.size() > size) {
-			// only if both sides of the equation were a match
-			return matches;
-		}
-		return Collections.emptySet();
-	}
-
-	/**
-	 * Method to "pattern match" the equation with another given one it checks if
-	 * the two equation are of the same structure, e.g. a = b, t = u
-	 * 
-	 * @param eq
-	 *          the equation to compare with, e.g. t = u
-	 * @return null, if not possible, else a list with two equations, e.g. t = a,
-	 *         u = b
-	 */
-	public Set<Equation> match_old(Equation eq) {
-		// TODO 2nd Op is no matchVar!!
-		// if matches, return the match update as a list of simple equations
-
-		// accepts only simple equations with equality
-		if ((type != Type.RELATION) || (eq.getType() != Type.RELATION)) {
-			return null;
-		}
-
-		// only match terms, that are marked as matchVars
-		if (!eq.getOp1().isMatchVar()) {
-			if (!eq.getOp1().equals(op1)) {
-				// no match
-				return null;
-			}
-			if (!eq.getOp2().isMatchVar()) {
-				// does not make sense to compare with no match variables
-				return null;
-			}
-			// match for op1
-			switch (eq.getOp2().getType()) {
-			case ATOM:
-				// second match is atom: a = u
-				// return only u = b
-				return Set.of(new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-						eq.getOp2(), op2));
-			case COMPOSITION:
-				switch (eq.getOp2().getOpType()) {
-				case UNARY:
-					// second is a unary function, e.g. a = f(u)
-					// only a match, if this equation also has the same function, e.g.
-					// a = f(b)
-					if (eq.getOp2().getFuncName().equals(op2.getFuncName())) {
-						// return only u = b
-						return Set.of(new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-								eq.getOp2().getT1(), op2.getT1()));
-					}
-					break;
-				case BINARY:
-					// second is a binary function, e.g. a = u + v
-					// only a match, if this equation also has the same form, e.g. a =
-					// b + c
-					if (eq.getOp2().getOp().equals(op2.getOp())
-							&& (eq.getOp2().getFuncName() == null
-							|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-						// return only u = b and v = c
-						return Set.of(
-								new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-										eq.getOp2().getT1(), op2.getT1()),
-								new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-										eq.getOp2().getT2(), op2.getT2()));
-					}
-					break;
-				case TERTIARY:
-					// second i a tertiary function, e.g. a = f(u,v,w)
-					// only a match, if this equation also has the same form, e.g. a =
-					// f(b,c,d)
-					if (eq.getOp2().getOp().equals(op2.getOp())
-							&& (eq.getOp2().getFuncName() == null
-							|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-						// return only u = b, v = c and w = d
-						return Set.of(
-								new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-										eq.getOp2().getT1(), op2.getT1()),
-								new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-										eq.getOp2().getT2(), op2.getT2()),
-								new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-										eq.getOp2().getT3(), op2.getT3()));
-					}
-					break;
-				default:
-					break;
-				}
-				break;
-			default:
-				break;
-			}
-		} else {
-			switch (eq.getOp1().getType()) {
-			case ATOM:
-				// check if second op is matchVar
-				if (!eq.getOp2().isMatchVar()) {
-					// only match if identical
-					if (!eq.getOp2().equals(op2)) {
-						return null;
-					}
-					// atom and constant: match t = b
-					// return only t = a
-					return Set.of(new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-							eq.getOp1(), op1));
-				}
-				// both ops are matchVars
-				// atom matches with everything
-				switch (eq.getOp2().getType()) {
-				case ATOM:
-					// two atoms: match t = u
-					// return t = a and u = b
-					return Set.of(
-							new Equation("subst1", Type.RELATION, Relation.EQUALITY,eq.getOp1(), op1),
-							new Equation("subst2", Type.RELATION, Relation.EQUALITY, eq.getOp2(), op2));
-				case COMPOSITION:
-					switch (eq.getOp2().getOpType()) {
-					case UNARY:
-						// an atom and a unary function, e.g. t = f(u)
-						// only a match, if this equation also has the same function,
-						// e.g. a = f(b)
-						if (eq.getOp2().getFuncName().equals(op2.getFuncName())) {
-							// return t = a and u = b
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY, eq.getOp1(), op1),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT1(), op2.getT1()));
-						}
-						break;
-					case BINARY:
-						// an atom and a binary function, e.g. t = u + v
-						// only a match, if this equation also has the same form, e.g.
-						// a = b + c
-						if (eq.getOp2().getOp().equals(op2.getOp())
-								&& (eq.getOp2().getFuncName() == null
-								|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-							// return t = a and u = b and v = c
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY, eq.getOp1(), op1),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT1(), op2.getT1()),
-									new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT2(), op2.getT2()));
-						}
-						break;
-					case TERTIARY:
-						// an atom and a tertiary function, e.g. t = f(u,v,w)
-						// only a match, if this equation also has the same form, e.g.
-						// a = f(b,c,d)
-						if (eq.getOp2().getOp().equals(op2.getOp())
-								&& (eq.getOp2().getFuncName() == null
-								|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-							// return t = a and u = b, v = c and w = d
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY, eq.getOp1(), op1),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT1(),op2.getT1()),
-									new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT2(), op2.getT2()),
-									new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2().getT3(), op2.getT3()));
-						}
-						break;
-					default:
-						break;
-					}
-					break;
-				default:
-					break;
-				}
-				break;
-			case COMPOSITION:
-				// first term is not an atom
-				switch (eq.getOp1().getOpType()) {
-				case UNARY:
-					// first term is a function, e.g. f(t)
-					// only a match if this equation is of a similar form
-					if (eq.getOp1().getFuncName().equals(op1.getFuncName())) {
-						// check if second op is matchVar
-						if (!eq.getOp2().isMatchVar()) {
-							// only match if identical
-							if (!eq.getOp2().equals(op2)) {
-								return null;
-							}
-							// function and constant: match f(t) = b
-							// return t = a
-							return Set.of(new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-									eq.getOp1(), op1));
-						}
-						// both ops are matchVars
-						switch (eq.getOp2().getType()) {
-						case ATOM:
-							// second term is an atom: match f(t) = u
-							// return t = a and u = b
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT1(), op1.getT1()),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY, eq.getOp2(), op2));
-						case COMPOSITION:
-							switch (eq.getOp2().getOpType()) {
-							case UNARY:
-								// second term is a unary function, e.g. f(t) = g(u)
-								// only a match, if this equation also has the same
-								// function, e.g. f(a) = g(b)
-								if (eq.getOp2().getFuncName().equals(op2.getFuncName())) {
-									// return t = a and u = b
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()));
-								}
-								break;
-							case BINARY:
-								// second term is a binary function, e.g. f(t) = u + v
-								// only a match, if this equation also has the same
-								// form, e.g. f(a) = b + c
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a and u = b and v = c
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()));
-								}
-								break;
-							case TERTIARY:
-								// second term is a tertiary function, e.g. f(t) =
-								// g(u,v,w)
-								// only a match, if this equation also has the same
-								// form, e.g. f(a) = g(b,c,d)
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a and u = b, v = c and w = d
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT3(), op2.getT3()));
-								}
-								break;
-							default:
-								break;
-							}
-							break;
-						default:
-							break;
-						}
-					}
-					break;
-				case BINARY:
-					// first term is a binary function, e.g. t + s
-					// only a match if this equation is of a similar form
-					if (eq.getOp1().getOp().equals(op1.getOp())
-							&& (eq.getOp1().getFuncName() == null
-							|| eq.getOp1().getFuncName().equals(op1.getFuncName()))) {
-						// check if op2 is matchVar
-						if (!eq.getOp2().isMatchVar()) {
-							// only match if identical
-							if (!eq.getOp2().equals(op2)) {
-								// no match
-								return null;
-							}
-							// binary function and constant: match t + s = b
-							// return only t = a and s = c
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT1(), op1.getT1()),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT2(), op1.getT2()));
-						}
-						switch (eq.getOp2().getType()) {
-						case ATOM:
-							// second term is an atom: match t + s = u
-							// return t = a and s = c and u = b
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT1(), op1.getT1()),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT2(), op1.getT2()),
-									new Equation("subst3", Type.RELATION, Relation.EQUALITY, eq.getOp2(), op2));
-						case COMPOSITION:
-							switch (eq.getOp2().getOpType()) {
-							case UNARY:
-								// second term is a unary function, e.g. t + s = f(u)
-								// only a match, if this equation also has the same
-								// function, e.g. a + c = f(b)
-								if (eq.getOp2().getFuncName().equals(op2.getFuncName())) {
-									// return t = a s = c and u = b
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()));
-								}
-								break;
-							case BINARY:
-								// second term is a binary function, e.g. t + s = u * v
-								// only a match, if this equation also has the same
-								// form, e.g. a + c = b * d
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a and s = c and u = b and v = d
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()));
-								}
-								break;
-							case TERTIARY:
-								// second term is a tertiary function, e.g. t + s =
-								// f(u,v,w)
-								// only a match, if this equation also has the same
-								// form, e.g. a + c = f(b,d,e)
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a and s = c and u = b, v = d and w = e
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()),
-											new Equation("subst5", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT3(), op2.getT3()));
-								}
-								break;
-							default:
-								break;
-							}
-							break;
-						default:
-							break;
-						}
-					}
-					break;
-				case TERTIARY:
-					// first term is a tertiary function, e.g. f(t,s,r)
-					// only a match if this equation is of a similar form
-					if (eq.getOp1().getOp().equals(op1.getOp())
-							&& (eq.getOp1().getFuncName() == null
-							|| eq.getOp1().getFuncName().equals(op1.getFuncName()))) {
-						// check if op2 is matchVar
-						if (!eq.getOp2().isMatchVar()) {
-							// only match if identical
-							if (!eq.getOp2().equals(op2)) {
-								// no match
-								return null;
-							}
-							// tertiary function and constant: match f(t,s,r) = b
-							// return only t = a, s = c and r = d
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT1(), op1.getT1()),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT2(), op1.getT2()),
-									new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT3(), op1.getT3()));
-						}
-						switch (eq.getOp2().getType()) {
-						case ATOM:
-							// second term is an atom: match f(t,s,r) = u
-							// return t = a and s = c, r = d and u = b
-							return Set.of(
-									new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT1(), op1.getT1()),
-									new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT2(), op1.getT2()),
-									new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-											eq.getOp1().getT3(), op1.getT3()),
-									new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-											eq.getOp2(), op2));
-						case COMPOSITION:
-							switch (eq.getOp2().getOpType()) {
-							case UNARY:
-								// second term is a unary function, e.g. f(t,s,r) = f(u)
-								// only a match, if this equation also has the same
-								// function, e.g. f(a,c,d) = f(b)
-								if (eq.getOp2().getFuncName().equals(op2.getFuncName())) {
-									// return t = a, s = c, r = d and u = b
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT3(), op1.getT3()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()));
-								}
-								break;
-							case BINARY:
-								// second term is a binary function, e.g. f(t,s,r) = u *
-								// v
-								// only a match, if this equation also has the same
-								// form, e.g. f(a,c,e) = b * d
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a, s = c, r = e, u = b and v = d
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT3(), op1.getT3()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst5", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()));
-								}
-								break;
-							case TERTIARY:
-								// second term is a tertiary function, e.g. f(t,s,r) =
-								// f(u,v,w)
-								// only a match, if this equation also has the same
-								// form, e.g. f(a,c,f) = f(b,d,e)
-								if (eq.getOp2().getOp().equals(op2.getOp())
-										&& (eq.getOp2().getFuncName() == null
-										|| eq.getOp2().getFuncName().equals(op2.getFuncName()))) {
-									// return t = a, s = c, r = f, u = b, v = d and w = e
-									return Set.of(
-											new Equation("subst1", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT1(), op1.getT1()),
-											new Equation("subst2", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT2(), op1.getT2()),
-											new Equation("subst3", Type.RELATION, Relation.EQUALITY,
-													eq.getOp1().getT3(), op1.getT3()),
-											new Equation("subst4", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT1(), op2.getT1()),
-											new Equation("subst5", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT2(), op2.getT2()),
-											new Equation("subst6", Type.RELATION, Relation.EQUALITY,
-													eq.getOp2().getT3(), op2.getT3()));
-								}
-								break;
-							default:
-								break;
-							}
-							break;
-						default:
-							break;
-						}
-					}
-					break;
-				default:
-					break;
-				}
-				break;
-			default:
-				break;
-			}
-		}
-		return null;
+		return unifier.getSubstitutions();
 	}
 
 	/**
-	 * Method that changes this equation according to a substitution equation in the form of z:=x.
+	 * Method that applies a substitution equation in the form of z:=x to this equation.
+	 * Only the paths down to the replaced terms are rebuilt, all other sub-terms are shared.
 	 * @param substitution
 	 *          the substitution equation
+	 * @return the new equation with the same name, or this equation if nothing is substituted
 	 */
-	public void update(Equation substitution) {
-		// TODO update the equation according to the substitution
+	public Equation substitute(Equation substitution) {
 		// TODO for now only simple equations considered
-		if (contains(this, substitution.getOp1())) {
-			// only if the term to substitute is contained
-			if (containsT(op1, substitution.getOp1())) {
-				// TODO call by value?
-				this.setOp1(updateT(this.op1, substitution));
-			}
-			if (containsT(op2, substitution.getOp1())) {
-				// TODO call by value?
-				this.setOp2(updateT(this.op2, substitution));
-			}
-			// now reset the collection of terms
-			termSet = new LinkedHashSet<Term>();
-			collectTerms(this);
-			// update the complexity
-			depth = checkDepth(this);
+		if (type != Type.RELATION) {
+			return this;
+		}
+		Term newOp1 = updateT(op1, substitution);
+		Term newOp2 = updateT(op2, substitution);
+		if (newOp1 == op1 && newOp2 == op2) {
+			// the term to substitute is not contained
+			return this;
 		}
+		return new Equation(name, type, rel, newOp1, newOp2);
 	}
 
 	private Term updateT(Term subeq, Equation substitution) {
-		// TODO update a term according to the substitution
-		Term tmp = new Term(subeq);
-		if (tmp.equals(substitution.op1)) {
+		if (subeq.equals(substitution.op1)) {
 			// replace the term
-			tmp = new Term(substitution.getOp2());
-		} else {
-			switch (tmp.getType()) {
-			case ATOM:
-				break;
-			case COMPOSITION:
-				switch (tmp.getOpType()) {
-				case UNARY:
-					// recursively check if a term needs to be updated
-					tmp.setT1(updateT(tmp.getT1(), substitution));
-					// also update the matchVar field from inside-out
-					tmp.setMatchVar(tmp.getT1().isMatchVar());
-					break;
-				case BINARY:
-					// recursively check if one of the two terms need to be updated
-					tmp.setT1(updateT(tmp.getT1(), substitution));
-					tmp.setT2(updateT(tmp.getT2(), substitution));
-					// also update the matchVar field from inside-out
-					tmp.setMatchVar(tmp.getT1().isMatchVar() || tmp.getT2().isMatchVar());
-					break;
-				case TERTIARY:
-					// recursively check if one of the three terms need to be updated
-					tmp.setT1(updateT(tmp.getT1(), substitution));
-					tmp.setT2(updateT(tmp.getT2(), substitution));
-					tmp.setT3(updateT(tmp.getT3(), substitution));
-					// also update the matchVar field from inside-out
-					tmp.setMatchVar(tmp.getT1().isMatchVar() || tmp.getT2().isMatchVar()
-							|| tmp.getT3().isMatchVar());
-					break;
-				default:
-					break;
-				}
-				break;
-			default:
-				break;
-			}
-		}
-		return tmp;
-	}
-
-	/**
-	 * Helper method to check if a term is contained in an equation.
-	 * 
-	 * @param eq
-	 *          the equation to look into
-	 * @param term
-	 *          the term looked for
-	 * @return true, if there is a match
-	 */
-	private boolean contains(Equation eq, Term term) {
-		// recursively check for a term in the equation
-		// assumed to be simple, i.e. no conjunction of equations
-		return (containsT(eq.getOp1(), term) || containsT(eq.getOp2(), term));
-	}
-
-	/**
-	 * Helper method to check if a term is contained in another term.
-	 * 
-	 * @param subeq
-	 *          the term to look into
-	 * @param term
-	 *          the term looked for
-	 * @return true, if there is a match
-	 */
-	private boolean containsT(Term subeq, Term term) {
-		if (subeq == null) {
-			return false;
-		}
-		if (term.equals(subeq)) {
-			return true;
+			return substitution.getOp2();
 		}
 		switch (subeq.getType()) {
 		case ATOM:
-			return false;
+			break;
 		case COMPOSITION:
 			switch (subeq.getOpType()) {
 			case UNARY:
-				return containsT(subeq.getT1(), term);
+				// recursively check if a term needs to be updated
+				Term t1 = updateT(subeq.getT1(), substitution);
+				if (t1 == subeq.getT1()) {
+					break;
+				}
+				// also update the matchVar field from inside-out
+				return Term.of(subeq.getType(), subeq.getOpType(), subeq.getOp(), subeq.getFuncName(),
+						t1, t1.isMatchVar());
 			case BINARY:
-				return (containsT(subeq.getT1(), term) || containsT(subeq.getT2(), term));
+				// recursively check if one of the two terms need to be updated
+				Term b1 = updateT(subeq.getT1(), substitution);
+				Term b2 = updateT(subeq.getT2(), substitution);
+				if (b1 == subeq.getT1() && b2 == subeq.getT2()) {
+					break;
+				}
+				// also update the matchVar field from inside-out
+				return Term.of(subeq.getType(), subeq.getOpType(), subeq.getOp(), subeq.getFuncName(),
+						b1, b2, b1.isMatchVar() || b2.isMatchVar());
 			case TERTIARY:
-				return (containsT(subeq.getT1(), term) || containsT(subeq.getT2(), term)
-						|| containsT(subeq.getT3(), term));
+				// recursively check if one of the three terms need to be updated
+				Term c1 = updateT(subeq.getT1(), substitution);
+				Term c2 = updateT(subeq.getT2(), substitution);
+				Term c3 = updateT(subeq.getT3(), substitution);
+				if (c1 == subeq.getT1() && c2 == subeq.getT2() && c3 == subeq.getT3()) {
+					break;
+				}
+				// also update the matchVar field from inside-out
+				return Term.of(subeq.getType(), subeq.getOpType(), subeq.getOp(), subeq.getFuncName(),
+						c1, c2, c3, c1.isMatchVar() || c2.isMatchVar() || c3.isMatchVar());
 			default:
 				break;
 			}
@@ -986,7 +448,8 @@ public class Equation implements P, Serializable {
 		default:
 			break;
 		}
-		return false;
+		// terms are immutable, so the term itself is returned if nothing changed
+		return subeq;
 	}
 
 	/**
@@ -1044,6 +507,7 @@ public class Equation implements P, Serializable {
 
 	public void setType(Type type) {
 		this.type = type;
+		hash = 0;
 	}
 
 	public Relation getRel() {
@@ -1052,6 +516,7 @@ public class Equation implements P, Serializable {
 
 	public void setRel(Relation rel) {
 		this.rel = rel;
+		hash = 0;
 	}
 
 	public Term getOp1() {
@@ -1060,6 +525,7 @@ public class Equation implements P, Serializable {
 
 	public void setOp1(Term op1) {
 		this.op1 = op1;
+		hash = 0;
 	}
 
 	public Term getOp2() {
@@ -1068,6 +534,7 @@ public class Equation implements P, Serializable {
 
 	public void setOp2(Term op2) {
 		this.op2 = op2;
+		hash = 0;
 	}
 
 	public Equation getEq1() {
@@ -1076,6 +543,7 @@ public class Equation implements P, Serializable {
 
 	public void setEq1(Equation eq1) {
 		this.eq1 = eq1;
+		hash = 0;
 		// update the complexity
 		depth = checkDepth(this);
 	}
@@ -1086,6 +554,7 @@ public class Equation implements P, Serializable {
 
 	public void setEq2(Equation eq2) {
 		this.eq2 = eq2;
+		hash = 0;
 		// update the complexity
 		depth = checkDepth(this);
 	}
@@ -0,0 +1,124 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import architecture.Term.TermType;
+
+/**
+ * Index over the equations known to a component, used to look up the equations
+ * that can match a premise of a deduction without trying every known equation.
+ * Equations are only ever added, and all lists keep the insertion order, so an
+ * index can be iterated while new equations (e.g. conclusions) are added.
+ */
+class EquationIndex {
+
+	// class fields
+	private final List<Equation> all;
+	private final Set<Equation> known;
+	private final List<Equation> relations;
+	private final List<Equation> compositeOp1;
+	private final List<Equation> compositeOp2;
+	private final Map<Term, List<Equation>> byOp1;
+	private final Map<Term, List<Equation>> byOp2;
+
+	/**
+	 * The constructor for an index of a set of equations.
+	 *
+	 * @param eqSet
+	 *          the equations to index
+	 */
+	EquationIndex(Set<Equation> eqSet) {
+		all = new ArrayList<Equation>();
+		known = new HashSet<Equation>();
+		relations = new ArrayList<Equation>();
+		compositeOp1 = new ArrayList<Equation>();
+		compositeOp2 = new ArrayList<Equation>();
+		byOp1 = new HashMap<Term, List<Equation>>();
+		byOp2 = new HashMap<Term, List<Equation>>();
+		for (Equation eq : eqSet) {
+			add(eq);
+		}
+	}
+
+	/**
+	 * Method that adds an equation if not already contained.
+	 *
+	 * @param eq
+	 *          the equation
+	 * @return true, if the equation was added
+	 */
+	boolean add(Equation eq) {
+		if (!known.add(eq)) {
+			return false;
+		}
+		all.add(eq);
+		if (eq.getType() == Equation.Type.RELATION) {
+			// only relations can match a premise, see Unifier#unify(Equation, Equation)
+			relations.add(eq);
+			byOp1.computeIfAbsent(eq.getOp1(), k -> new ArrayList<Equation>()).add(eq);
+			byOp2.computeIfAbsent(eq.getOp2(), k -> new ArrayList<Equation>()).add(eq);
+			if (eq.getOp1().getType() == TermType.COMPOSITION) {
+				compositeOp1.add(eq);
+			}
+			if (eq.getOp2().getType() == TermType.COMPOSITION) {
+				compositeOp2.add(eq);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Method to get the equations that may match a premise. This mirrors
+	 * {@link Unifier#unify(Equation, Equation)}: a side of the pattern without match
+	 * variables must be equal, and a composed side with match variables never
+	 * matches an atom. The list is live, so it must be iterated by index.
+	 *
+	 * @param pattern
+	 *          the premise
+	 * @return the candidate equations in insertion order
+	 */
+	List<Equation> candidates(Equation pattern) {
+		if (pattern.getType() != Equation.Type.RELATION) {
+			return relations;
+		}
+		if (!pattern.getOp1().isMatchVar()) {
+			return byOp1.getOrDefault(pattern.getOp1(), Collections.emptyList());
+		}
+		if (!pattern.getOp2().isMatchVar()) {
+			return byOp2.getOrDefault(pattern.getOp2(), Collections.emptyList());
+		}
+		if (pattern.getOp1().getType() == TermType.COMPOSITION) {
+			return compositeOp1;
+		}
+		if (pattern.getOp2().getType() == TermType.COMPOSITION) {
+			return compositeOp2;
+		}
+		return relations;
+	}
+
+	/**
+	 * Method to check whether an equation is indexed.
+	 *
+	 * @param eq
+	 *          the equation
+	 * @return true, if contained
+	 */
+	boolean contains(Equation eq) {
+		return known.contains(eq);
+	}
+
+	/**
+	 * Method to get all indexed equations in insertion order.
+	 *
+	 * @return the live list of equations
+	 */
+	List<Equation> getAll() {
+		return all;
+	}
+}
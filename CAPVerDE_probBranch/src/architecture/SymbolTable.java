@@ -0,0 +1,113 @@
+package architecture;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table that gives each element a dense integer id when it is added, i.e., its
+ * position in the backing list. Elements are only ever appended, so an id stays
+ * valid for the lifetime of the table and can be used to index plain arrays.
+ *
+ * @param <T>
+ *          the type of the elements, e.g., components, variables or equations
+ */
+public class SymbolTable<T> implements Iterable<T> {
+
+	// class fields
+	private final List<T> elements;
+	private final Map<T, Integer> ids;
+
+	/**
+	 * The constructor for a table over a list. The list is indexed as it is and
+	 * must only be changed by this table afterwards.
+	 *
+	 * @param elements
+	 *          the backing list
+	 */
+	public SymbolTable(List<T> elements) {
+		this.elements = elements;
+		ids = new HashMap<T, Integer>();
+		for (int i = 0; i < elements.size(); i++) {
+			// the first occurrence gets the id, just like indexOf
+			ids.putIfAbsent(elements.get(i), i);
+		}
+	}
+
+	/**
+	 * Method that adds an element if not already contained.
+	 *
+	 * @param element
+	 *          the element
+	 * @return the id of the element
+	 */
+	public int add(T element) {
+		Integer id = ids.get(element);
+		if (id != null) {
+			return id;
+		}
+		id = elements.size();
+		elements.add(element);
+		ids.put(element, id);
+		return id;
+	}
+
+	/**
+	 * Method to get the id of an element.
+	 *
+	 * @param element
+	 *          the element
+	 * @return the id, or -1 if the element is not contained
+	 */
+	public int id(Object element) {
+		Integer id = ids.get(element);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Method to check whether an element is contained.
+	 *
+	 * @param element
+	 *          the element
+	 * @return true, if contained
+	 */
+	public boolean contains(Object element) {
+		return ids.containsKey(element);
+	}
+
+	/**
+	 * Method to get the element with an id.
+	 *
+	 * @param id
+	 *          the id
+	 * @return the element
+	 */
+	public T get(int id) {
+		return elements.get(id);
+	}
+
+	/**
+	 * Method to get the number of elements, i.e., the next id.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Method to get all elements ordered by their ids.
+	 *
+	 * @return the unmodifiable list of elements
+	 */
+	public List<T> getElements() {
+		return Collections.unmodifiableList(elements);
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return getElements().iterator();
+	}
+}
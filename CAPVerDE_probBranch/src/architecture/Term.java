@@ -1,17 +1,19 @@
 package architecture;
 
-import architecture.Equation.Relation;
-import architecture.Equation.Type;
-
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 
 /**
  * Object describes a term containing more terms and/or atoms.
  * A term can be composed of 0-3 subterms.
+ * Terms are immutable and hash-consed: they are only created by the factory methods
+ * {@code Term.of(...)}, which return the same instance for structurally equal terms.
  */
 public class Term implements Serializable {
 
@@ -41,24 +43,30 @@ public class Term implements Serializable {
 		ADD, MULT, SUB, DIV, FUNC
 	}
 
+	// the canonical instances, separately for match variables as equals ignores that flag
+	private static final Map<Term, WeakReference<Term>> terms =
+			new WeakHashMap<Term, WeakReference<Term>>();
+	private static final Map<Term, WeakReference<Term>> matchTerms =
+			new WeakHashMap<Term, WeakReference<Term>>();
+
 	// CLass fields
-	private TermType type;
-	private OperatorType opType;
-	private Operator op;
-	private String funcName;
-	private Variable atom;
-	private Term t1;
-	private Term t2;
-	private Term t3;
-	private Set<Variable> atomSet;
-	private Set<Variable> completeSet;
-	private String callHistory;
-	private boolean matchVar;
-	private int depth;
+	private final TermType type;
+	private final OperatorType opType;
+	private final Operator op;
+	private final String funcName;
+	private final Variable atom;
+	private final Term t1;
+	private final Term t2;
+	private final Term t3;
+	private final Set<Variable> atomSet;
+	private final Set<Variable> completeSet;
+	private final boolean matchVar;
+	private final int depth;
+	private transient int hash;
 
 	/**
 	 * The full constructor for a term.
-	 * Typically only invoked inside this class by the specific constructors.
+	 * Only invoked by the factory methods, which intern the new term.
 	 * 
 	 * @param type
 	 *          the type of term: atom/composition
@@ -78,7 +86,7 @@ public class Term implements Serializable {
 	 *          a flag that indicates if the term is only a variable for pattern
 	 *          matching
 	 */
-	public Term(TermType type, OperatorType opType, Operator op, String funcName, Variable atom,
+	private Term(TermType type, OperatorType opType, Operator op, String funcName, Variable atom,
 			Term t1, Term t2, Term t3, boolean matchVar) {
 		// default Constructor
 		this.type = type;
@@ -89,15 +97,16 @@ public class Term implements Serializable {
 		this.t1 = t1;
 		this.t2 = t2;
 		this.t3 = t3;
-		this.atomSet = new LinkedHashSet<Variable>();
-		this.callHistory = "";
 		this.matchVar = matchVar;
 
 		// Collect all atom in this term
-		collectAtoms(this);
+		Set<Variable> atoms = new LinkedHashSet<Variable>();
+		collectAtoms(this, atoms);
+		this.atomSet = Collections.unmodifiableSet(atoms);
 		// Also collect the function-composed term, like f(x)
-		this.completeSet = new LinkedHashSet<Variable>(atomSet);
-		collectFuncs(this);
+		Set<Variable> complete = new LinkedHashSet<Variable>(atoms);
+		collectFuncs(this, "", complete);
+		this.completeSet = Collections.unmodifiableSet(complete);
 		// calculate the nested functions
 		if (!matchVar) {
 			depth = checkDepth(this);
@@ -107,19 +116,17 @@ public class Term implements Serializable {
 	}
 
 	/**
-	 * The copy constructor of a term.
+	 * Factory method for the full term.
 	 * 
-	 * @param original
-	 *          the term to copy
+	 * @return the canonical instance of the term
 	 */
-	public Term(Term original) {
-		this(original.getType(), original.getOpType(), original.getOp(), original.getFuncName(),
-				original.getAtom(), original.getT1(), original.getT2(), original.getT3(),
-				original.isMatchVar());
+	private static Term of(TermType type, OperatorType opType, Operator op, String funcName,
+			Variable atom, Term t1, Term t2, Term t3, boolean matchVar) {
+		return intern(new Term(type, opType, op, funcName, atom, t1, t2, t3, matchVar));
 	}
 
 	/**
-	 * Constructor called for type = atom.
+	 * Factory method called for type = atom.
 	 * 
 	 * @param type
 	 *          the type of term: atom
@@ -129,13 +136,13 @@ public class Term implements Serializable {
 	 *          a flag indicating if this variable is only used for pattern
 	 *          matching
 	 */
-	public Term(TermType type, Variable atom, boolean matchVar) {
+	public static Term of(TermType type, Variable atom, boolean matchVar) {
 		// When type = ATOM
-		this(type, null, null, null, atom, null, null, null, matchVar);
+		return of(type, null, null, null, atom, null, null, null, matchVar);
 	}
 
 	/**
-	 * Constructor called for type = unary.
+	 * Factory method called for type = unary.
 	 * 
 	 * @param type
 	 *          the type of term: composition
@@ -151,16 +158,16 @@ public class Term implements Serializable {
 	 *          a flag indicating if this variable is only used for pattern
 	 *          matching
 	 */
-	public Term(TermType type, OperatorType opType, Operator op, String funcName, Term t1,
-			boolean matchVar) {
+	public static Term of(TermType type, OperatorType opType, Operator op, String funcName,
+			Term t1, boolean matchVar) {
 		// When operatorType = UNARY
 		// Here is a custom function name needed, e.g. 'f'
 		// It should be defined whether the custom function is invertible
-		this(type, opType, op, funcName, null, t1, null, null, matchVar);
+		return of(type, opType, op, funcName, null, t1, null, null, matchVar);
 	}
 
 	/**
-	 * Constructor called for type = binary.
+	 * Factory method called for type = binary.
 	 * 
 	 * @param type
 	 *          the type of term: composition
@@ -176,15 +183,15 @@ public class Term implements Serializable {
 	 *          a flag indicating if this variable is only used for pattern
 	 *          matching
 	 */
-	public Term(TermType type, OperatorType opType, Operator op, String funcName, Term t1, Term t2,
-			boolean matchVar) {
+	public static Term of(TermType type, OperatorType opType, Operator op, String funcName,
+			Term t1, Term t2, boolean matchVar) {
 		// When operatorType = BINARY
 		// Binary operators are assumed to be non-invertible
-		this(type, opType, op, funcName, null, t1, t2, null, matchVar);
+		return of(type, opType, op, funcName, null, t1, t2, null, matchVar);
 	}
 
 	/**
-	 * Constructor called for type = tertiary.
+	 * Factory method called for type = tertiary.
 	 * 
 	 * @param type
 	 *          the type of term: composition
@@ -202,11 +209,41 @@ public class Term implements Serializable {
 	 *          a flag indicating if this variable is only used for pattern
 	 *          matching
 	 */
-	public Term(TermType type, OperatorType opType, Operator op, String funcName,
+	public static Term of(TermType type, OperatorType opType, Operator op, String funcName,
 			Term t1, Term t2, Term t3, boolean matchVar) {
-		// When operatorType = BINARY
-		// Binary operators are assumed to be non-invertible
-		this(type, opType, op, funcName, null, t1, t2, t3, matchVar);
+		// When operatorType = TERTIARY
+		// Tertiary operators are assumed to be non-invertible
+		return of(type, opType, op, funcName, null, t1, t2, t3, matchVar);
+	}
+
+	/**
+	 * Method that returns the canonical instance of a term. The tables only hold weak
+	 * references, so terms that are no longer used anywhere can be garbage collected.
+	 * 
+	 * @param term
+	 *          the term
+	 * @return the first instance created that is equal to the term
+	 */
+	private static Term intern(Term term) {
+		Map<Term, WeakReference<Term>> table = term.matchVar ? matchTerms : terms;
+		synchronized (table) {
+			WeakReference<Term> ref = table.get(term);
+			Term canonical = (ref == null) ? null : ref.get();
+			if (canonical == null) {
+				table.put(term, new WeakReference<Term>(term));
+				canonical = term;
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * Method that replaces a deserialized term by its canonical instance.
+	 * 
+	 * @return the canonical instance
+	 */
+	private Object readResolve() {
+		return intern(this);
 	}
 
 	@Override
@@ -216,15 +253,21 @@ public class Term implements Serializable {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((atom == null) ? 0 : atom.hashCode());
-		result = prime * result + ((funcName == null) ? 0 : funcName.hashCode());
-		result = prime * result + ((op == null) ? 0 : op.hashCode());
-		result = prime * result + ((opType == null) ? 0 : opType.hashCode());
-		result = prime * result + ((t1 == null) ? 0 : t1.hashCode());
-		result = prime * result + ((t2 == null) ? 0 : t2.hashCode());
-		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		// the hash is cached, as terms are immutable (0 means not computed yet)
+		int result = hash;
+		if (result == 0) {
+			final int prime = 31;
+			result = 1;
+			result = prime * result + ((atom == null) ? 0 : atom.hashCode());
+			result = prime * result + ((funcName == null) ? 0 : funcName.hashCode());
+			result = prime * result + ((op == null) ? 0 : op.hashCode());
+			result = prime * result + ((opType == null) ? 0 : opType.hashCode());
+			result = prime * result + ((t1 == null) ? 0 : t1.hashCode());
+			result = prime * result + ((t2 == null) ? 0 : t2.hashCode());
+			result = prime * result + ((t3 == null) ? 0 : t3.hashCode());
+			result = prime * result + ((type == null) ? 0 : type.hashCode());
+			hash = result;
+		}
 		return result;
 	}
 
@@ -240,6 +283,9 @@ public class Term implements Serializable {
 			return false;
 		}
 		Term other = (Term) obj;
+		if (hashCode() != other.hashCode()) {
+			return false;
+		}
 		if (atom == null) {
 			if (other.atom != null) {
 				return false;
@@ -274,6 +320,13 @@ public class Term implements Serializable {
 		} else if (!t2.equals(other.t2)) {
 			return false;
 		}
+		if (t3 == null) {
+			if (other.t3 != null) {
+				return false;
+			}
+		} else if (!t3.equals(other.t3)) {
+			return false;
+		}
 		if (type != other.type) {
 			return false;
 		}
@@ -339,26 +392,28 @@ public class Term implements Serializable {
 	 * 
 	 * @param term
 	 *          the term
+	 * @param atoms
+	 *          the list of atoms
 	 */
-	private void collectAtoms(Term term) {
+	private static void collectAtoms(Term term, Set<Variable> atoms) {
 		// Put all atom into the list
 		switch (term.type) {
 		case ATOM:
-			addAtom(term.atom);
+			atoms.add(term.atom);
 			break;
 		case COMPOSITION:
 			switch (term.opType) {
 			case UNARY:
-				collectAtoms(term.t1);
+				atoms.addAll(term.t1.atomSet);
 				break;
 			case BINARY:
-				collectAtoms(term.t1);
-				collectAtoms(term.t2);
+				atoms.addAll(term.t1.atomSet);
+				atoms.addAll(term.t2.atomSet);
 				break;
 			case TERTIARY:
-				collectAtoms(term.t1);
-				collectAtoms(term.t2);
-				collectAtoms(term.t3);
+				atoms.addAll(term.t1.atomSet);
+				atoms.addAll(term.t2.atomSet);
+				atoms.addAll(term.t3.atomSet);
 				break;
 			default:
 				break;
@@ -375,40 +430,34 @@ public class Term implements Serializable {
 	 * 
 	 * @param term
 	 *          the term
+	 * @param callHistory
+	 *          the names of the functions applied to the term
+	 * @param complete
+	 *          the list of function-composed terms
 	 */
-	private void collectFuncs(Term term) {
+	private static void collectFuncs(Term term, String callHistory, Set<Variable> complete) {
 		// Collect all function-composed terms, e.g. xf for f(x)
 		switch (term.type) {
 		case ATOM:
 			// Add the call history to the variable name
-			Variable tmp = new Variable(term.atom.getName() + term.callHistory);
-			addComplete(tmp);
+			complete.add(new Variable(term.atom.getName() + callHistory));
 			break;
 		case COMPOSITION:
 			switch (term.opType) {
 			case UNARY:
-				// Add function name to call history
-				term.t1.callHistory = term.funcName + term.callHistory;
-				// Recursive call
-				collectFuncs(term.t1);
+				// Add function name to call history and recursive call
+				collectFuncs(term.t1, term.funcName + callHistory, complete);
 				break;
 			case BINARY:
 				// Pass on call history
-				term.t1.callHistory = term.callHistory;
-				term.t2.callHistory = term.callHistory;
-				// Recursive call
-				collectFuncs(term.t1);
-				collectFuncs(term.t2);
+				collectFuncs(term.t1, callHistory, complete);
+				collectFuncs(term.t2, callHistory, complete);
 				break;
 			case TERTIARY:
 				// Pass on call history
-				term.t1.callHistory = term.callHistory;
-				term.t2.callHistory = term.callHistory;
-				term.t3.callHistory = term.callHistory;
-				// Recursive call
-				collectFuncs(term.t1);
-				collectFuncs(term.t2);
-				collectFuncs(term.t3);
+				collectFuncs(term.t1, callHistory, complete);
+				collectFuncs(term.t2, callHistory, complete);
+				collectFuncs(term.t3, callHistory, complete);
 				break;
 			default:
 				break;
@@ -426,7 +475,7 @@ public class Term implements Serializable {
 	 * @return
 	 * 		  the depth
 	 */
-	private int checkDepth(Term term) {
+	private static int checkDepth(Term term) {
 		// TODO test this
 		int d = 0;
 		if (term == null) {
@@ -444,140 +493,31 @@ public class Term implements Serializable {
 		return -1;
 	}
 
-	/**
-	 * Method that recursively matches a term and a pattern term.
-	 * 
-	 * @param pattern
-	 *          the pattern to match this equation with
-	 * @return a list of equations representing the matches
-	 */
-	public Set<Equation> match(Term pattern) {
-		// pattern term is matchVar
-		if (type != pattern.type) {
-			if (type == TermType.ATOM) {
-				return Collections.emptySet();
-			}
-			if (pattern.type == TermType.ATOM) {
-				return Set.of(
-						new Equation("subst", Type.RELATION, Relation.EQUALITY, pattern, this));
-			}
-			switch (opType) {
-			case BINARY:
-				// recursively match the sub-terms
-				Set<Equation> matches = new LinkedHashSet<Equation>();
-				matches.addAll(t1.match(pattern));
-				matches.addAll(t2.match(pattern));
-				return matches;
-			case UNARY:
-				// recursively match the sub-term
-				return t1.match(pattern);
-			case TERTIARY:
-				// recursively match the sub-terms
-				Set<Equation> matches2 = new LinkedHashSet<Equation>();
-				matches2.addAll(t1.match(pattern));
-				matches2.addAll(t2.match(pattern));
-				matches2.addAll(t3.match(pattern));
-				return matches2;
-			default:
-				break;
-			}
-		}
-		// recursively check the rest
-		switch (type) {
-		case ATOM:
-			return Set.of(
-					new Equation("subst", Type.RELATION, Relation.EQUALITY, pattern, this));
-		case COMPOSITION:
-			switch (opType) {
-			case BINARY:
-				// recursively match the sub-terms
-				Set<Equation> matches = new LinkedHashSet<Equation>();
-				matches.addAll(t1.match(pattern.t1));
-				matches.addAll(t2.match(pattern.t2));
-				return matches;
-			case UNARY:
-				// recursively match the sub-term
-				return t1.match(pattern.t1);
-			case TERTIARY:
-				// recursively match the sub-terms
-				Set<Equation> matches2 = new LinkedHashSet<Equation>();
-				matches2.addAll(t1.match(pattern.t1));
-				matches2.addAll(t2.match(pattern.t2));
-				matches2.addAll(t3.match(pattern.t3));
-				return matches2;
-			default:
-				break;
-			}
-			break;
-		default:
-			break;
-		}
-		return null;
-	}
-
-	// Getter and setter methods
+	// Getter methods
 	public Set<Variable> getAtomSet() {
 		return atomSet;
 	}
 
-	/*public void setAtomSet(Set<Variable> atomSet) {
-		this.atomSet = atomSet;
-	}*/
-
-	public void addAtom(Variable atom) {
-		this.atomSet.add(atom);
-	}
-
 	public TermType getType() {
 		return type;
 	}
 
-	public void setType(TermType type) {
-		this.type = type;
-	}
-
 	public OperatorType getOpType() {
 		return opType;
 	}
 
-	public void setOpType(OperatorType opType) {
-		this.opType = opType;
-	}
-
 	public Variable getAtom() {
 		return atom;
 	}
 
-	public void setAtom(Variable atom) {
-		this.atom = atom;
-	}
-
 	public Term getT1() {
 		return t1;
 	}
 
-	public void setT1(Term t1) {
-		this.t1 = t1;
-		// update the complexity
-		depth = checkDepth(this);
-	}
-
 	public Term getT2() {
 		return t2;
 	}
 
-	public void setT2(Term t2) {
-		this.t2 = t2;
-		// update the complexity
-		depth = checkDepth(this);
-	}
-
-	public void setT3(Term t3) {
-		this.t3 = t3;
-		// update the complexity
-		depth = checkDepth(this);
-	}
-
 	public Term getT3() {
 		return t3;
 	}
@@ -586,38 +526,18 @@ public class Term implements Serializable {
 		return op;
 	}
 
-	public void setOp(Operator op) {
-		this.op = op;
-	}
-
 	public String getFuncName() {
 		return funcName;
 	}
 
-	public void setFuncName(String funcName) {
-		this.funcName = funcName;
-	}
-
 	public Set<Variable> getCompleteSet() {
 		return completeSet;
 	}
 
-	/*public void setCompleteSet(Set<Variable> completeSet) {
-		this.completeSet = completeSet;
-	}*/
-
-	public void addComplete(Variable var) {
-		this.completeSet.add(var);
-	}
-
 	public boolean isMatchVar() {
 		return matchVar;
 	}
 
-	public void setMatchVar(boolean matchVar) {
-		this.matchVar = matchVar;
-	}
-
 	public int getDepth() {
 		return depth;
 	}
@@ -0,0 +1,313 @@
+package architecture;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.Term.TermType;
+
+/**
+ * Unifier for terms and equations. Atoms that are match variables can be bound to
+ * any term, everything else (including function names and operators) must be equal.
+ * The bindings are stored on a trail, so a search can go back to an earlier state
+ * with {@link #mark()} and {@link #undo(int)} instead of copying them. A variable
+ * that occurs more than once must be bound to the same term every time, and a
+ * variable is never bound to a term that contains it (occurs check).
+ */
+public class Unifier {
+
+	// class fields
+	private Term[] vars;
+	private Term[] values;
+	private int size;
+
+	/**
+	 * The constructor for a unifier without bindings.
+	 */
+	public Unifier() {
+		vars = new Term[8];
+		values = new Term[8];
+		size = 0;
+	}
+
+	/**
+	 * Method that unifies two equations, i.e., their relations and both sides.
+	 * Only simple relations are supported.
+	 *
+	 * @param eq1
+	 *          the first equation, e.g., the premise of a deduction
+	 * @param eq2
+	 *          the second equation, e.g., a known equation
+	 * @return true, if successful; otherwise the bindings are left unchanged
+	 */
+	public boolean unify(Equation eq1, Equation eq2) {
+		if (eq1.getType() != Type.RELATION || eq2.getType() != Type.RELATION
+				|| eq1.getRel() != eq2.getRel()) {
+			//TODO conjunctions are currently not supported
+			return false;
+		}
+		int mark = size;
+		if (unifyTerms(eq1.getOp1(), eq2.getOp1()) && unifyTerms(eq1.getOp2(), eq2.getOp2())) {
+			return true;
+		}
+		undo(mark);
+		return false;
+	}
+
+	/**
+	 * Method that unifies two terms.
+	 *
+	 * @param t1
+	 *          the first term
+	 * @param t2
+	 *          the second term
+	 * @return true, if successful; otherwise the bindings are left unchanged
+	 */
+	public boolean unify(Term t1, Term t2) {
+		int mark = size;
+		if (unifyTerms(t1, t2)) {
+			return true;
+		}
+		undo(mark);
+		return false;
+	}
+
+	/**
+	 * Helper method that unifies two terms and leaves partial bindings on failure.
+	 */
+	private boolean unifyTerms(Term t1, Term t2) {
+		t1 = deref(t1);
+		t2 = deref(t2);
+		if (t1 == t2) {
+			return true;
+		}
+		if (isVariable(t1)) {
+			return bind(t1, t2);
+		}
+		if (isVariable(t2)) {
+			return bind(t2, t1);
+		}
+		if (t1.getType() != t2.getType()) {
+			return false;
+		}
+		if (t1.getType() == TermType.ATOM) {
+			return t1.equals(t2);
+		}
+		// compositions need the same function
+		if (t1.getOpType() != t2.getOpType() || t1.getOp() != t2.getOp()
+				|| !Objects.equals(t1.getFuncName(), t2.getFuncName())) {
+			return false;
+		}
+		switch (t1.getOpType()) {
+		case UNARY:
+			return unifyTerms(t1.getT1(), t2.getT1());
+		case BINARY:
+			return unifyTerms(t1.getT1(), t2.getT1()) && unifyTerms(t1.getT2(), t2.getT2());
+		case TERTIARY:
+			return unifyTerms(t1.getT1(), t2.getT1()) && unifyTerms(t1.getT2(), t2.getT2())
+					&& unifyTerms(t1.getT3(), t2.getT3());
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Helper method that binds an unbound variable, unless the term contains it.
+	 */
+	private boolean bind(Term var, Term term) {
+		if (occurs(var, term)) {
+			return false;
+		}
+		if (size == vars.length) {
+			// grow the trail
+			Term[] newVars = new Term[size * 2];
+			Term[] newValues = new Term[size * 2];
+			System.arraycopy(vars, 0, newVars, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			vars = newVars;
+			values = newValues;
+		}
+		vars[size] = var;
+		values[size] = term;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Helper method to check if a variable occurs in a term under the current bindings.
+	 */
+	private boolean occurs(Term var, Term term) {
+		if (term == null) {
+			return false;
+		}
+		term = deref(term);
+		if (term == var) {
+			return true;
+		}
+		if (term.getType() == TermType.ATOM) {
+			return false;
+		}
+		return occurs(var, term.getT1()) || occurs(var, term.getT2()) || occurs(var, term.getT3());
+	}
+
+	/**
+	 * Method to follow the bindings of a variable.
+	 *
+	 * @param term
+	 *          the term
+	 * @return the term the variable is bound to, or the term itself
+	 */
+	public Term deref(Term term) {
+		while (isVariable(term)) {
+			Term value = lookup(term);
+			if (value == null) {
+				break;
+			}
+			term = value;
+		}
+		return term;
+	}
+
+	/**
+	 * Helper method to get the direct binding of a variable, the trail is short.
+	 */
+	private Term lookup(Term var) {
+		for (int i = size - 1; i >= 0; i--) {
+			if (vars[i] == var) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method that applies the bindings to a term. Sub-terms without bound variables are
+	 * shared with the original.
+	 *
+	 * @param term
+	 *          the term
+	 * @return the term with all bound variables replaced
+	 */
+	public Term apply(Term term) {
+		Term t = deref(term);
+		if (t.getType() == TermType.ATOM) {
+			return t;
+		}
+		switch (t.getOpType()) {
+		case UNARY:
+			Term t1 = apply(t.getT1());
+			if (t1 == t.getT1()) {
+				return t;
+			}
+			// also update the matchVar field from inside-out
+			return Term.of(t.getType(), t.getOpType(), t.getOp(), t.getFuncName(),
+					t1, t1.isMatchVar());
+		case BINARY:
+			Term b1 = apply(t.getT1());
+			Term b2 = apply(t.getT2());
+			if (b1 == t.getT1() && b2 == t.getT2()) {
+				return t;
+			}
+			return Term.of(t.getType(), t.getOpType(), t.getOp(), t.getFuncName(),
+					b1, b2, b1.isMatchVar() || b2.isMatchVar());
+		case TERTIARY:
+			Term c1 = apply(t.getT1());
+			Term c2 = apply(t.getT2());
+			Term c3 = apply(t.getT3());
+			if (c1 == t.getT1() && c2 == t.getT2() && c3 == t.getT3()) {
+				return t;
+			}
+			return Term.of(t.getType(), t.getOpType(), t.getOp(), t.getFuncName(),
+					c1, c2, c3, c1.isMatchVar() || c2.isMatchVar() || c3.isMatchVar());
+		default:
+			return t;
+		}
+	}
+
+	/**
+	 * Method that applies the bindings to an equation.
+	 *
+	 * @param eq
+	 *          the equation
+	 * @return a new equation with the same name, or the equation itself if no
+	 *         variable of it is bound
+	 */
+	public Equation apply(Equation eq) {
+		if (eq.getType() != Type.RELATION) {
+			return eq;
+		}
+		Term op1 = apply(eq.getOp1());
+		Term op2 = apply(eq.getOp2());
+		if (op1 == eq.getOp1() && op2 == eq.getOp2()) {
+			return eq;
+		}
+		return new Equation(eq.getName(), Type.RELATION, eq.getRel(), op1, op2);
+	}
+
+	/**
+	 * Method to get the bindings as substitution equations, e.g., x = cp.
+	 *
+	 * @return the substitutions in the order the variables were bound
+	 */
+	public Set<Equation> getSubstitutions() {
+		if (size == 0) {
+			return Collections.emptySet();
+		}
+		Set<Equation> substitutions = new LinkedHashSet<Equation>();
+		for (int i = 0; i < size; i++) {
+			substitutions.add(
+					new Equation("subst", Type.RELATION, Relation.EQUALITY, vars[i], apply(values[i])));
+		}
+		return substitutions;
+	}
+
+	/**
+	 * Method to check if a term is a variable for pattern matching.
+	 *
+	 * @param term
+	 *          the term
+	 * @return true, if the term is an atom marked as match variable
+	 */
+	public static boolean isVariable(Term term) {
+		return term.getType() == TermType.ATOM && term.isMatchVar();
+	}
+
+	/**
+	 * Method to get the current position on the trail.
+	 *
+	 * @return the mark to undo to
+	 */
+	public int mark() {
+		return size;
+	}
+
+	/**
+	 * Method that removes all bindings made after a mark.
+	 *
+	 * @param mark
+	 *          the mark
+	 */
+	public void undo(int mark) {
+		while (size > mark) {
+			size--;
+			vars[size] = null;
+			values[size] = null;
+		}
+	}
+
+	// getter methods for the bindings, in the order they were made
+	public int size() {
+		return size;
+	}
+
+	public Term getVariable(int index) {
+		return vars[index];
+	}
+
+	public Term getValue(int index) {
+		return values[index];
+	}
+}
@@ -0,0 +1,412 @@
+package cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import gui.ArchitectureFunctions;
+import properties.BatchResult;
+import properties.Property;
+import solver.ConfigReader;
+import utils.ResultStore;
+import utils.SaveLoadArch;
+
+/**
+ * Command line entry point that verifies the properties of saved or described
+ * architectures without a user interface, e.g., on a build server. The results are
+ * written as JSON or CSV, and the exit code tells whether all properties hold.
+ *
+ * <pre>
+ * java -jar capverde-cli.jar [options] model...
+ *   -t, --threads n       the number of worker threads (default: one per processor)
+ *   -f, --format json|csv the format of the results (default: json)
+ *   -o, --output file     the file for the results (default: standard output)
+ *   --store file          serve and keep the results in a result store
+ *   --lazy, --congruence  enable the deduction modes
+ *   -v, --verbose         print the traces of the verifiers to standard error
+ * </pre>
+ *
+ * A model is a binary (.arch), text (.cap) or serialized (.ser) architecture. The
+ * exit code is 0 if all properties hold, 1 if at least one does not hold, and 2 if
+ * the command line is not valid, a model cannot be loaded or verified, or the solver
+ * cannot be run for a property.
+ */
+public class BatchVerifier {
+
+	/**
+	 * The exit code if all properties hold.
+	 */
+	public static final int HOLDS = 0;
+	/**
+	 * The exit code if at least one property does not hold.
+	 */
+	public static final int DOES_NOT_HOLD = 1;
+	/**
+	 * The exit code if the command line is not valid, a model cannot be loaded or
+	 * verified, or the solver cannot be run.
+	 */
+	public static final int ERROR = 2;
+
+	private static final String USAGE = "Usage: java -jar capverde-cli.jar [-t threads] "
+			+ "[-f json|csv] [-o file] [--store file] [--lazy] [--congruence] [-v] "
+			+ "model...";
+
+	// class fields
+	private final List<Path> models;
+	private int threads;
+	private boolean csv;
+	private Path output;
+	private Path store;
+	private boolean lazy;
+	private boolean congruence;
+	private boolean verbose;
+
+	/**
+	 * The constructor for a verifier with the default options.
+	 */
+	public BatchVerifier() {
+		models = new ArrayList<Path>();
+		threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *          the options and the models to verify
+	 */
+	public static void main(String[] args) {
+		System.exit(new BatchVerifier().run(args));
+	}
+
+	/**
+	 * Method that verifies the models of a command line.
+	 *
+	 * @param args
+	 *          the options and the models to verify
+	 * @return the exit code
+	 */
+	public int run(String[] args) {
+		try {
+			if (!parse(args)) {
+				System.err.println(USAGE);
+				return ERROR;
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return ERROR;
+		}
+		if (!ConfigReader.readConfig()) {
+			System.err.println("Config file could not be read, properties that need the solver fail");
+		}
+		// the verifiers trace to standard output, which is kept for the results
+		PrintStream out = System.out;
+		System.setOut(verbose ? System.err : new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// drop the trace
+			}
+		}));
+		ResultStore results = store == null ? null : new ResultStore(store);
+		List<ModelResult> modelResults = new ArrayList<ModelResult>();
+		int code = HOLDS;
+		try {
+			for (Path model : models) {
+				ModelResult result = verify(model, results);
+				modelResults.add(result);
+				if (result.batch == null || !result.batch.getErrors().isEmpty()) {
+					code = ERROR;
+				} else if (code == HOLDS && result.batch.getResults().containsValue(false)) {
+					code = DOES_NOT_HOLD;
+				}
+			}
+		} finally {
+			System.setOut(out);
+		}
+		try (Writer writer = output == null ? new OutputStreamWriter(out, StandardCharsets.UTF_8)
+				: Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			if (csv) {
+				writeCsv(writer, modelResults);
+			} else {
+				writeJson(writer, modelResults);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return ERROR;
+		}
+		return code;
+	}
+
+	/**
+	 * Helper method that reads the command line.
+	 *
+	 * @param args
+	 *          the command line
+	 * @return false, if the usage should be shown instead
+	 */
+	private boolean parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-h":
+			case "--help":
+				return false;
+			case "-t":
+			case "--threads":
+				try {
+					threads = Integer.parseInt(value(args, ++i));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Not a number of threads: " + args[i]);
+				}
+				if (threads < 1) {
+					throw new IllegalArgumentException("At least one thread is needed");
+				}
+				break;
+			case "-f":
+			case "--format":
+				String format = value(args, ++i);
+				if (!format.equals("json") && !format.equals("csv")) {
+					throw new IllegalArgumentException("Unknown format: " + format);
+				}
+				csv = format.equals("csv");
+				break;
+			case "-o":
+			case "--output":
+				output = Paths.get(value(args, ++i));
+				break;
+			case "--store":
+				store = Paths.get(value(args, ++i));
+				break;
+			case "--lazy":
+				lazy = true;
+				break;
+			case "--congruence":
+				congruence = true;
+				break;
+			case "-v":
+			case "--verbose":
+				verbose = true;
+				break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+				models.add(Paths.get(args[i]));
+				break;
+			}
+		}
+		return !models.isEmpty();
+	}
+
+	/**
+	 * Helper method to get the value of an option.
+	 */
+	static String value(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+		}
+		return args[i];
+	}
+
+	/**
+	 * Helper method that loads and verifies one model.
+	 *
+	 * @param model
+	 *          the file of the model
+	 * @param results
+	 *          the result store, or null
+	 * @return the result, without a batch if the model could not be loaded or verified
+	 */
+	private ModelResult verify(Path model, ResultStore results) {
+		ModelResult result = new ModelResult(model);
+		if (!Files.isRegularFile(model)) {
+			result.error = "File not found";
+			return result;
+		}
+		ArchitectureFunctions archFunc = SaveLoadArch.loadFile(model);
+		if (archFunc == null) {
+			result.error = "Could not be loaded";
+			return result;
+		}
+		archFunc.setLazyDeduction(archFunc.isLazyDeduction() || lazy);
+		archFunc.setCongruenceClosure(archFunc.isCongruenceClosure() || congruence);
+		archFunc.setResultStore(results);
+		result.properties = new ArrayList<Property>(archFunc.getpSet());
+		try {
+			result.batch = archFunc.verifyAll(result.properties, threads);
+		} catch (IllegalStateException e) {
+			// also a CancellationException, a failed verification is not a verdict
+			e.printStackTrace();
+			result.error = "Verification failed: " + (e.getCause() != null ? e.getCause() : e);
+		}
+		return result;
+	}
+
+	/**
+	 * Helper method that writes the results as one JSON object.
+	 */
+	private static void writeJson(Writer writer, List<ModelResult> results) throws IOException {
+		int hold = 0;
+		int total = 0;
+		writer.write("{\n  \"models\": [");
+		for (int m = 0; m < results.size(); m++) {
+			ModelResult result = results.get(m);
+			writer.write(m == 0 ? "\n" : ",\n");
+			writer.write("    {\n      \"model\": " + json(result.model.toString()) + ",\n");
+			if (result.batch == null) {
+				writer.write("      \"error\": " + json(result.error) + "\n    }");
+				continue;
+			}
+			writer.write("      \"properties\": [");
+			int modelHold = 0;
+			for (int p = 0; p < result.properties.size(); p++) {
+				Property prop = result.properties.get(p);
+				String error = result.batch.getError(prop);
+				boolean holds = error == null && result.batch.getResult(prop);
+				if (holds) {
+					modelHold++;
+				}
+				writer.write(p == 0 ? "\n" : ",\n");
+				writer.write("        {\"property\": " + json(prop.toString()) + ", "
+						+ verdict(result.batch, prop) + ", \"timeMs\": " + millis(result.batch.getTimes().get(prop)) + ", \"bestProb\": "
+						+ number(result.batch.getBestProb(prop)) + ", \"core\": "
+						+ core(result.batch.getCore(prop)) + "}");
+			}
+			writer.write(result.properties.isEmpty() ? "],\n" : "\n      ],\n");
+			writer.write("      \"hold\": " + modelHold + ",\n");
+			writer.write("      \"total\": " + result.properties.size() + ",\n");
+			writer.write("      \"timeMs\": " + millis(result.batch.getTotalTime()) + "\n    }");
+			hold += modelHold;
+			total += result.properties.size();
+		}
+		writer.write(results.isEmpty() ? "],\n" : "\n  ],\n");
+		writer.write("  \"hold\": " + hold + ",\n  \"total\": " + total + "\n}\n");
+	}
+
+	/**
+	 * Helper method that writes the results as CSV with one line per property.
+	 */
+	private static void writeCsv(Writer writer, List<ModelResult> results) throws IOException {
+		writer.write("model,property,holds,time_ms,best_prob,core,error\r\n");
+		for (ModelResult result : results) {
+			String model = csv(result.model.toString());
+			if (result.batch == null) {
+				writer.write(model + ",,,,,," + csv(result.error) + "\r\n");
+				continue;
+			}
+			for (Property prop : result.properties) {
+				Double bestProb = result.batch.getBestProb(prop);
+				String core = result.batch.getCore(prop);
+				String error = result.batch.getError(prop);
+				writer.write(model + "," + csv(prop.toString()) + ","
+						+ (error == null ? String.valueOf(result.batch.getResult(prop)) : "") + ","
+						+ millis(result.batch.getTimes().get(prop)) + ","
+						+ (bestProb == null ? "" : number(bestProb)) + ","
+						+ (core == null ? "" : csv(core.trim())) + ","
+						+ (error == null ? "" : csv(error)) + "\r\n");
+			}
+		}
+	}
+
+	/**
+	 * Helper method that formats nanoseconds as milliseconds.
+	 */
+	static String millis(Long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos == null ? 0 : nanos / 1e6);
+	}
+
+	/**
+	 * Helper method that formats the verdict of a property for JSON, with the reason
+	 * instead if the property could not be verified.
+	 */
+	static String verdict(BatchResult batch, Property prop) {
+		String error = batch.getError(prop);
+		if (error != null) {
+			return "\"holds\": null, \"error\": " + json(error);
+		}
+		return "\"holds\": " + batch.getResult(prop);
+	}
+
+	/**
+	 * Helper method that formats a probability for JSON.
+	 */
+	static String number(Double number) {
+		return number == null || number.isNaN() || number.isInfinite() ? "null" : number.toString();
+	}
+
+	/**
+	 * Helper method that formats an unsat core for JSON.
+	 */
+	static String core(String core) {
+		return core == null ? "null" : json(core.trim());
+	}
+
+	/**
+	 * Helper method that quotes a string for JSON.
+	 */
+	static String json(String string) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			switch (c) {
+			case '"':
+				quoted.append("\\\"");
+				break;
+			case '\\':
+				quoted.append("\\\\");
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			case '\r':
+				quoted.append("\\r");
+				break;
+			case '\t':
+				quoted.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+				break;
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Helper method that quotes a field for CSV, if needed.
+	 */
+	private static String csv(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+				&& field.indexOf('\r') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * The outcome of one model: its properties and their results, or an error.
+	 */
+	private static final class ModelResult {
+
+		private final Path model;
+		private List<Property> properties;
+		private BatchResult batch;
+		private String error;
+
+		private ModelResult(Path model) {
+			this.model = model;
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package cli;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import architecture.Action;
+import architecture.Architecture;
+import gui.ArchitectureFunctions;
+import properties.BatchResult;
+import properties.Property;
+import properties.VerificationListener;
+import solver.ConfigReader;
+import utils.ResultStore;
+import utils.SaveLoadArch;
+
+/**
+ * Watch mode that verifies the models in a directory and verifies them again
+ * whenever their files change. Only the properties whose part of the architecture
+ * changed are verified again: the results of the session are kept in a
+ * {@link ResultStore} in memory, and a property is affected if the store has no
+ * result for the fingerprint of the new model. The results are printed as soon as
+ * they are known.
+ *
+ * <p>The verifiers of the last model of each file are kept, and used again if only
+ * the properties changed. Any other change finishes the whole model again, i.e.,
+ * the consistency check and the deductions of all components, and the properties
+ * decided by the solver depend on the whole model, so they are verified again after
+ * any such change.
+ *
+ * <pre>
+ * java -cp capverde-cli.jar cli.ModelWatcher [-t threads] [--debounce ms] [-v] directory
+ * </pre>
+ */
+public class ModelWatcher {
+
+	/**
+	 * The default time in milliseconds the directory has to be quiet before the
+	 * changed models are verified, as editors often write a file in several steps.
+	 */
+	public static final long DEFAULT_DEBOUNCE = 200;
+
+	private static final String USAGE = "Usage: java -cp capverde-cli.jar cli.ModelWatcher "
+			+ "[-t threads] [--debounce ms] [-v] directory";
+
+	// class fields
+	private final Path dir;
+	private final int threads;
+	private final long debounce;
+	private final PrintStream out;
+	private final ResultStore results;
+	private final Map<Path, Finished> finished;
+
+	/**
+	 * The constructor for a watcher of a directory.
+	 *
+	 * @param dir
+	 *          the directory with the models
+	 * @param threads
+	 *          the number of worker threads
+	 * @param debounce
+	 *          the time in milliseconds the directory has to be quiet after a change
+	 * @param out
+	 *          the stream for the results
+	 */
+	public ModelWatcher(Path dir, int threads, long debounce, PrintStream out) {
+		this.dir = dir;
+		this.threads = threads;
+		this.debounce = debounce;
+		this.out = out;
+		results = new ResultStore();
+		finished = new HashMap<Path, Finished>();
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *          the options and the directory to watch
+	 */
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long debounce = DEFAULT_DEBOUNCE;
+		boolean verbose = false;
+		Path dir = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-t":
+				case "--threads":
+					threads = Integer.parseInt(BatchVerifier.value(args, ++i));
+					break;
+				case "--debounce":
+					debounce = Long.parseLong(BatchVerifier.value(args, ++i));
+					break;
+				case "-v":
+				case "--verbose":
+					verbose = true;
+					break;
+				default:
+					if (args[i].startsWith("-") || dir != null) {
+						throw new IllegalArgumentException("Unknown option: " + args[i]);
+					}
+					dir = Paths.get(args[i]);
+					break;
+				}
+			}
+			if (dir == null || !Files.isDirectory(dir)) {
+				throw new IllegalArgumentException("Not a directory: " + dir);
+			}
+			if (threads < 1 || debounce < 0) {
+				throw new IllegalArgumentException("The threads must be positive and the debounce not negative");
+			}
+		} catch (IllegalArgumentException e) {
+			// also a NumberFormatException
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(BatchVerifier.ERROR);
+		}
+		if (!ConfigReader.readConfig()) {
+			System.err.println("Config file could not be read, properties that need the solver fail");
+		}
+		// the verifiers trace to standard output, which is kept for the results
+		PrintStream out = System.out;
+		System.setOut(verbose ? System.err : new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// drop the trace
+			}
+		}));
+		try {
+			new ModelWatcher(dir, threads, debounce, out).run();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(BatchVerifier.ERROR);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Method that verifies the models in the directory and then watches it until
+	 * the directory is gone or the thread is interrupted.
+	 *
+	 * @throws IOException
+	 *           if the directory cannot be watched
+	 * @throws InterruptedException
+	 *           if the thread is interrupted while waiting for changes
+	 */
+	public void run() throws IOException, InterruptedException {
+		try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+			dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+			for (Path file : models()) {
+				verify(file);
+			}
+			out.println("Watching " + dir + " for changes...");
+			while (true) {
+				WatchKey key = watcher.take();
+				Set<Path> changed = new TreeSet<Path>();
+				// collect the changes until the directory is quiet
+				while (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == OVERFLOW) {
+							// events were lost
+							changed.addAll(models());
+						} else {
+							Path file = dir.resolve((Path) event.context());
+							if (SaveLoadArch.isArchFile(file)) {
+								changed.add(file);
+							}
+						}
+					}
+					if (!key.reset()) {
+						out.println(dir + " cannot be watched anymore");
+						return;
+					}
+					key = watcher.poll(debounce, TimeUnit.MILLISECONDS);
+				}
+				for (Path file : changed) {
+					if (Files.isRegularFile(file)) {
+						verify(file);
+					} else {
+						finished.remove(file);
+						out.println(file.getFileName() + ": removed");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method that loads a model and verifies the properties that are affected by
+	 * the changes since it was verified last. If the architecture did not change,
+	 * the verifiers of the last model are used, so it is not finished again.
+	 *
+	 * @param file
+	 *          the file of the model
+	 */
+	public void verify(Path file) {
+		long start = System.nanoTime();
+		String name = file.getFileName().toString();
+		ArchitectureFunctions archFunc = SaveLoadArch.loadFile(file);
+		if (archFunc == null) {
+			out.println(name + ": could not be loaded");
+			return;
+		}
+		ResultStore.Fingerprint fingerprint = new ResultStore.Fingerprint(archFunc);
+		Set<Property> affected = new LinkedHashSet<Property>();
+		for (Property prop : archFunc.getpSet()) {
+			if (results.lookup(prop, fingerprint) == null) {
+				affected.add(prop);
+			}
+		}
+		out.println(name + ": " + affected.size() + " of " + archFunc.getpSet().size()
+				+ " properties affected");
+		if (affected.isEmpty()) {
+			return;
+		}
+		Finished last = finished.get(file);
+		if (last != null && last.fingerprint.sameArchitecture(fingerprint)) {
+			// only properties were added or changed
+			archFunc = last.archFunc;
+		} else {
+			finished.put(file, new Finished(archFunc, fingerprint));
+		}
+		archFunc.setResultStore(results);
+		archFunc.setListener(new VerificationListener() {
+			@Override
+			public void consistencyChecked(Architecture arch, Action invalid) {
+				if (invalid != null) {
+					out.println(name + ": not consistent, at least this action is not valid: " + invalid);
+				}
+			}
+
+			@Override
+			public void propertyVerified(Property property, boolean holds, int done, int total) {
+				out.println("  [" + done + "/" + total + "] [" + (holds ? "holds" : "does not hold")
+						+ "] " + property);
+			}
+
+			@Override
+			public void propertyFailed(Property property, String error, int done, int total) {
+				out.println("  [" + done + "/" + total + "] [error: " + error + "] " + property);
+			}
+		});
+		BatchResult batch;
+		try {
+			batch = archFunc.verifyAll(affected, threads);
+		} catch (IllegalStateException e) {
+			// also a CancellationException, a failed verification is not a verdict
+			e.printStackTrace();
+			out.println(name + ": verification failed: " + (e.getCause() != null ? e.getCause() : e));
+			return;
+		}
+		int hold = 0;
+		for (boolean holds : batch.getResults().values()) {
+			if (holds) {
+				hold++;
+			}
+		}
+		out.println(name + ": " + hold + " of " + affected.size() + " hold, "
+				+ (batch.getErrors().isEmpty() ? "" : batch.getErrors().size() + " failed, ")
+				+ BatchVerifier.millis(System.nanoTime() - start) + " ms");
+	}
+
+	/**
+	 * Helper method to get the models in the directory in the order of their names.
+	 */
+	private Set<Path> models() throws IOException {
+		Set<Path> models = new TreeSet<Path>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				if (SaveLoadArch.isArchFile(file) && Files.isRegularFile(file)) {
+					models.add(file);
+				}
+			}
+		}
+		return models;
+	}
+
+	/**
+	 * The last model of a file, whose verifiers are finished once it is verified.
+	 */
+	private static final class Finished {
+
+		private final ArchitectureFunctions archFunc;
+		private final ResultStore.Fingerprint fingerprint;
+
+		private Finished(ArchitectureFunctions archFunc, ResultStore.Fingerprint fingerprint) {
+			this.archFunc = archFunc;
+			this.fingerprint = fingerprint;
+		}
+	}
+}
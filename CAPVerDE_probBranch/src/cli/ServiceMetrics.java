@@ -0,0 +1,148 @@
+package cli;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, throughput and latencies of the {@link VerificationServer}. The
+ * latencies are kept for the most recent verification requests only, which is
+ * enough for the percentiles and the throughput of the last minute.
+ */
+public class ServiceMetrics {
+
+	// the number of recent requests the latencies are kept for
+	private static final int RECENT = 4096;
+	private static final long MINUTE = 60_000_000_000L;
+
+	// class fields
+	private final long start;
+	private final LongAdder accepted;
+	private final LongAdder completed;
+	private final LongAdder rejected;
+	private final LongAdder timedOut;
+	private final LongAdder failed;
+	private final long[] latencies;
+	private final long[] finished;
+	private long count;
+
+	/**
+	 * The constructor for metrics that start now.
+	 */
+	public ServiceMetrics() {
+		start = System.nanoTime();
+		accepted = new LongAdder();
+		completed = new LongAdder();
+		rejected = new LongAdder();
+		timedOut = new LongAdder();
+		failed = new LongAdder();
+		latencies = new long[RECENT];
+		finished = new long[RECENT];
+	}
+
+	/**
+	 * Method to count a request that was queued.
+	 */
+	public void accepted() {
+		accepted.increment();
+	}
+
+	/**
+	 * Method to count a request that was answered in time.
+	 *
+	 * @param latency
+	 *          the time from receiving to answering the request, in nanoseconds
+	 */
+	public void completed(long latency) {
+		completed.increment();
+		synchronized (latencies) {
+			int slot = (int) (count++ % RECENT);
+			latencies[slot] = latency;
+			finished[slot] = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Method to count a request that was refused because the queue was full.
+	 */
+	public void rejected() {
+		rejected.increment();
+	}
+
+	/**
+	 * Method to count a request that missed its deadline.
+	 */
+	public void timedOut() {
+		timedOut.increment();
+	}
+
+	/**
+	 * Method to count a request that failed with an error.
+	 */
+	public void failed() {
+		failed.increment();
+	}
+
+	/**
+	 * Method to get the metrics as a JSON object.
+	 *
+	 * @param queued
+	 *          the number of requests waiting in the queue
+	 * @param active
+	 *          the number of requests being verified
+	 * @return the JSON object
+	 */
+	public String toJson(int queued, int active) {
+		long now = System.nanoTime();
+		long[] recent;
+		int lastMinute = 0;
+		synchronized (latencies) {
+			int size = (int) Math.min(count, RECENT);
+			recent = Arrays.copyOf(latencies, size);
+			for (int i = 0; i < size; i++) {
+				if (now - finished[i] <= MINUTE) {
+					lastMinute++;
+				}
+			}
+		}
+		Arrays.sort(recent);
+		double uptime = (now - start) / 1e9;
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"uptimeS\": ").append(format(uptime)).append(",\n");
+		json.append("  \"accepted\": ").append(accepted.sum()).append(",\n");
+		json.append("  \"completed\": ").append(completed.sum()).append(",\n");
+		json.append("  \"rejected\": ").append(rejected.sum()).append(",\n");
+		json.append("  \"timedOut\": ").append(timedOut.sum()).append(",\n");
+		json.append("  \"failed\": ").append(failed.sum()).append(",\n");
+		json.append("  \"queued\": ").append(queued).append(",\n");
+		json.append("  \"active\": ").append(active).append(",\n");
+		json.append("  \"throughputPerS\": ").append(format(completed.sum() / Math.max(uptime, 1e-9)))
+				.append(",\n");
+		json.append("  \"lastMinutePerS\": ").append(format(lastMinute / Math.min(Math.max(uptime, 1e-9), 60)))
+				.append(",\n");
+		json.append("  \"latencyMs\": {\"p50\": ").append(percentile(recent, 50))
+				.append(", \"p90\": ").append(percentile(recent, 90))
+				.append(", \"p99\": ").append(percentile(recent, 99))
+				.append(", \"max\": ").append(percentile(recent, 100))
+				.append(", \"samples\": ").append(recent.length).append("}\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * Helper method to get a percentile of sorted latencies in milliseconds.
+	 */
+	private static String percentile(long[] sorted, int percent) {
+		if (sorted.length == 0) {
+			return "0.000";
+		}
+		int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return format(sorted[Math.max(0, index)] / 1e6);
+	}
+
+	/**
+	 * Helper method that formats a number with three decimals.
+	 */
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,595 @@
+package cli;
+
+import static java.net.HttpURLConnection.HTTP_BAD_METHOD;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_CREATED;
+import static java.net.HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import gui.ArchitectureFunctions;
+import properties.BatchResult;
+import properties.Property;
+import solver.ConfigReader;
+import utils.ArchReader;
+import utils.SaveLoadArch;
+
+/**
+ * Local HTTP service that verifies the properties of architectures which are kept
+ * warm in memory, i.e., they are loaded and finished only once. All answers are
+ * JSON objects.
+ *
+ * <pre>
+ * GET    /models          the loaded architectures
+ * GET    /models/name     the properties of an architecture
+ * PUT    /models/name     load an architecture from its text description in the body
+ * DELETE /models/name     remove an architecture
+ * POST   /verify?model=name[&amp;property=p][&amp;timeout=ms]
+ *                         verify one property, or all properties of the architecture
+ * GET    /metrics         counters, throughput and latencies
+ * </pre>
+ *
+ * Loads and verifications run through a bounded queue on a fixed pool of workers.
+ * If the queue is full, a request is refused with 503, and a request that misses
+ * its deadline is cancelled and answered with 504. The requests themselves wait for
+ * a handler in a bounded queue too, so the ones beyond it are refused with 503 as
+ * well, and the deadline starts before that wait. Run it with:
+ *
+ * <pre>
+ * java -cp capverde-cli.jar cli.VerificationServer [-p port] [-t threads]
+ *     [-q queue] [--timeout ms] [-v] model...
+ * </pre>
+ */
+public class VerificationServer {
+
+	/**
+	 * The default port of the service.
+	 */
+	public static final int DEFAULT_PORT = 8765;
+	/**
+	 * The default number of requests that wait for a worker.
+	 */
+	public static final int DEFAULT_QUEUE = 64;
+	/**
+	 * The default deadline of a request in milliseconds.
+	 */
+	public static final long DEFAULT_TIMEOUT = 60_000;
+
+	// the number of refused requests that may wait for their answer
+	private static final int REFUSALS = 1024;
+
+	private static final String USAGE = "Usage: java -cp capverde-cli.jar cli.VerificationServer "
+			+ "[-p port] [-t threads] [-q queue] [--timeout ms] [-v] model...";
+
+	// the time the request of a handler thread was received, and whether it is refused
+	private static final ThreadLocal<Long> receivedAt = new ThreadLocal<Long>();
+	private static final ThreadLocal<Boolean> refused = ThreadLocal.withInitial(() -> false);
+
+	// class fields
+	private final Map<String, ArchitectureFunctions> models;
+	private final ThreadPoolExecutor workers;
+	private final ThreadPoolExecutor handlers;
+	private final ThreadPoolExecutor refusals;
+	private final ServiceMetrics metrics;
+	private final long timeout;
+	private HttpServer server;
+
+	/**
+	 * The constructor for a service that is not started yet.
+	 *
+	 * @param threads
+	 *          the number of workers
+	 * @param queue
+	 *          the number of requests that may wait for a worker
+	 * @param timeout
+	 *          the default deadline of a request in milliseconds
+	 */
+	public VerificationServer(int threads, int queue, long timeout) {
+		models = new ConcurrentHashMap<String, ArchitectureFunctions>();
+		workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queue));
+		// each queued or running request holds a handler, the requests beyond are refused
+		handlers = new ThreadPoolExecutor(threads + queue + 2, threads + queue + 2, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queue), (request, pool) -> refuse(request));
+		// one thread answers the refused requests, the connections beyond its queue are closed
+		refusals = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(REFUSALS), new ThreadPoolExecutor.AbortPolicy());
+		metrics = new ServiceMetrics();
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *          the options and the models to load
+	 */
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue = DEFAULT_QUEUE;
+		long timeout = DEFAULT_TIMEOUT;
+		boolean verbose = false;
+		List<Path> files = new ArrayList<Path>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-p":
+				case "--port":
+					port = Integer.parseInt(BatchVerifier.value(args, ++i));
+					break;
+				case "-t":
+				case "--threads":
+					threads = Integer.parseInt(BatchVerifier.value(args, ++i));
+					break;
+				case "-q":
+				case "--queue":
+					queue = Integer.parseInt(BatchVerifier.value(args, ++i));
+					break;
+				case "--timeout":
+					timeout = Long.parseLong(BatchVerifier.value(args, ++i));
+					break;
+				case "-v":
+				case "--verbose":
+					verbose = true;
+					break;
+				default:
+					if (args[i].startsWith("-")) {
+						throw new IllegalArgumentException("Unknown option: " + args[i]);
+					}
+					files.add(Paths.get(args[i]));
+					break;
+				}
+			}
+			if (threads < 1 || queue < 1 || timeout < 1) {
+				throw new IllegalArgumentException("The threads, queue and timeout must be positive");
+			}
+		} catch (IllegalArgumentException e) {
+			// also a NumberFormatException
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(BatchVerifier.ERROR);
+		}
+		if (!ConfigReader.readConfig()) {
+			System.err.println("Config file could not be read, properties that need the solver fail");
+		}
+		// the verifiers trace to standard output, which is not needed here
+		System.setOut(verbose ? System.err : new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// drop the trace
+			}
+		}));
+		VerificationServer service = new VerificationServer(threads, queue, timeout);
+		for (Path file : files) {
+			ArchitectureFunctions archFunc = SaveLoadArch.loadFile(file);
+			if (archFunc == null) {
+				System.err.println("Could not load " + file);
+				System.exit(BatchVerifier.ERROR);
+			}
+			String name = file.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+			service.addModel(name, archFunc);
+			System.err.println("Loaded " + name);
+		}
+		try {
+			service.start(new InetSocketAddress("127.0.0.1", port));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(BatchVerifier.ERROR);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+		System.err.println("Listening on http://127.0.0.1:" + service.getPort() + "/");
+	}
+
+	/**
+	 * Method that starts to answer requests.
+	 *
+	 * @param address
+	 *          the address to listen on, port 0 for any free port
+	 * @throws IOException
+	 *           if the address cannot be bound
+	 */
+	public void start(InetSocketAddress address) throws IOException {
+		server = HttpServer.create(address, 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(request -> {
+			// the deadline also covers the wait for a handler
+			long received = System.nanoTime();
+			handlers.execute(() -> {
+				receivedAt.set(received);
+				try {
+					request.run();
+				} finally {
+					receivedAt.remove();
+				}
+			});
+		});
+		server.start();
+	}
+
+	/**
+	 * Method that stops the service and cancels the running verifications.
+	 */
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+		workers.shutdownNow();
+		handlers.shutdownNow();
+		refusals.shutdownNow();
+	}
+
+	/**
+	 * Method to get the port the service listens on.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Method to finish an architecture and keep it for verification.
+	 *
+	 * @param name
+	 *          the name of the architecture in the requests
+	 * @param archFunc
+	 *          the architecture
+	 */
+	public void addModel(String name, ArchitectureFunctions archFunc) {
+		archFunc.finish();
+		models.put(name, archFunc);
+	}
+
+	/**
+	 * Method to get the metrics of the service.
+	 *
+	 * @return the metrics
+	 */
+	public ServiceMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Helper method that dispatches a request by its path.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		Long queued = receivedAt.get();
+		long received = queued != null ? queued : System.nanoTime();
+		if (refused.get()) {
+			metrics.rejected();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, HTTP_UNAVAILABLE, error("Too many requests"));
+			return;
+		}
+		try {
+			String path = exchange.getRequestURI().getPath();
+			String method = exchange.getRequestMethod();
+			if (path.equals("/metrics")) {
+				if (!method.equals("GET")) {
+					respond(exchange, HTTP_BAD_METHOD, error("Use GET"));
+				} else {
+					respond(exchange, HTTP_OK,
+							metrics.toJson(workers.getQueue().size(), workers.getActiveCount()));
+				}
+			} else if (path.equals("/verify")) {
+				if (!method.equals("POST")) {
+					respond(exchange, HTTP_BAD_METHOD, error("Use POST"));
+				} else {
+					verify(exchange, received);
+				}
+			} else if (path.equals("/models") || path.equals("/models/")) {
+				if (!method.equals("GET")) {
+					respond(exchange, HTTP_BAD_METHOD, error("Use GET"));
+				} else {
+					respond(exchange, HTTP_OK, listModels());
+				}
+			} else if (path.startsWith("/models/")) {
+				model(exchange, path.substring("/models/".length()), received);
+			} else {
+				respond(exchange, HTTP_NOT_FOUND, error("Unknown path: " + path));
+			}
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			metrics.failed();
+			respond(exchange, HTTP_INTERNAL_ERROR, error(String.valueOf(e)));
+		}
+	}
+
+	/**
+	 * Helper method that answers the requests for one architecture.
+	 */
+	private void model(HttpExchange exchange, String name, long received) throws IOException {
+		if (!name.matches("[A-Za-z0-9_.-]+")) {
+			respond(exchange, HTTP_BAD_REQUEST, error("Not a valid name: " + name));
+			return;
+		}
+		switch (exchange.getRequestMethod()) {
+		case "GET":
+			ArchitectureFunctions archFunc = models.get(name);
+			if (archFunc == null) {
+				respond(exchange, HTTP_NOT_FOUND, error("Unknown model: " + name));
+				return;
+			}
+			StringBuilder json = new StringBuilder("{\"model\": " + BatchVerifier.json(name)
+					+ ", \"properties\": [");
+			String separator = "";
+			for (Property prop : archFunc.getpSet()) {
+				json.append(separator).append(BatchVerifier.json(prop.toString()));
+				separator = ", ";
+			}
+			respond(exchange, HTTP_OK, json.append("]}\n").toString());
+			break;
+		case "PUT":
+			ArchitectureFunctions loaded;
+			try {
+				loaded = ArchReader.read(
+						new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				respond(exchange, HTTP_BAD_REQUEST, error(e.getMessage()));
+				return;
+			}
+			// the consistency check of the architecture runs on a worker
+			answer(exchange, HTTP_CREATED, () -> {
+				addModel(name, loaded);
+				return "{\"model\": " + BatchVerifier.json(name) + ", \"properties\": "
+						+ loaded.getpSet().size() + "}\n";
+			}, received, received + TimeUnit.MILLISECONDS.toNanos(timeout));
+			break;
+		case "DELETE":
+			if (models.remove(name) == null) {
+				respond(exchange, HTTP_NOT_FOUND, error("Unknown model: " + name));
+			} else {
+				respond(exchange, HTTP_OK, "{\"removed\": " + BatchVerifier.json(name) + "}\n");
+			}
+			break;
+		default:
+			respond(exchange, HTTP_BAD_METHOD, error("Use GET, PUT or DELETE"));
+			break;
+		}
+	}
+
+	/**
+	 * Helper method that answers a verification request.
+	 */
+	private void verify(HttpExchange exchange, long received) throws IOException {
+		Map<String, String> params = parameters(exchange);
+		String name = params.get("model");
+		ArchitectureFunctions archFunc = name == null ? null : models.get(name);
+		if (archFunc == null) {
+			respond(exchange, HTTP_NOT_FOUND, error("Unknown model: " + name));
+			return;
+		}
+		String property = params.get("property");
+		if (property != null && !hasProperty(archFunc, property)) {
+			respond(exchange, HTTP_NOT_FOUND, error("Unknown property: " + property));
+			return;
+		}
+		long millis;
+		try {
+			millis = params.containsKey("timeout") ? Long.parseLong(params.get("timeout")) : timeout;
+		} catch (NumberFormatException e) {
+			respond(exchange, HTTP_BAD_REQUEST, error("Not a timeout: " + params.get("timeout")));
+			return;
+		}
+		long deadline = received + TimeUnit.MILLISECONDS.toNanos(millis);
+		if (property != null) {
+			answer(exchange, HTTP_OK, () -> {
+				Property prop = archFunc.getProperty(property);
+				BatchResult batch = archFunc.verifyAll(Collections.singletonList(prop), 1);
+				return "{\"model\": " + BatchVerifier.json(name) + ", \"property\": "
+						+ BatchVerifier.json(property) + ", " + BatchVerifier.verdict(batch, prop)
+						+ ", \"timeMs\": " + BatchVerifier.millis(batch.getTotalTime()) + ", \"bestProb\": "
+						+ BatchVerifier.number(batch.getBestProb(prop)) + ", \"core\": "
+						+ BatchVerifier.core(batch.getCore(prop)) + "}\n";
+			}, received, deadline);
+		} else {
+			answer(exchange, HTTP_OK, () -> {
+				List<Property> props = new ArrayList<Property>(archFunc.getpSet());
+				// the service already runs one verification per worker
+				BatchResult batch = archFunc.verifyAll(props, 1);
+				StringBuilder json = new StringBuilder("{\"model\": " + BatchVerifier.json(name)
+						+ ", \"properties\": [");
+				String separator = "\n  ";
+				for (Property prop : props) {
+					json.append(separator).append("{\"property\": ")
+							.append(BatchVerifier.json(prop.toString())).append(", ")
+							.append(BatchVerifier.verdict(batch, prop)).append(", \"timeMs\": ")
+							.append(BatchVerifier.millis(batch.getTimes().get(prop))).append(", \"bestProb\": ")
+							.append(BatchVerifier.number(batch.getBestProb(prop))).append(", \"core\": ")
+							.append(BatchVerifier.core(batch.getCore(prop))).append("}");
+					separator = ",\n  ";
+				}
+				return json.append(props.isEmpty() ? "" : "\n").append("], \"timeMs\": ")
+						.append(BatchVerifier.millis(batch.getTotalTime())).append("}\n").toString();
+			}, received, deadline);
+		}
+	}
+
+	/**
+	 * Helper method that runs a task through the queue and answers with its result,
+	 * unless the queue is full or the deadline passes first.
+	 *
+	 * @param exchange
+	 *          the request
+	 * @param status
+	 *          the status if the task succeeds
+	 * @param task
+	 *          the task that computes the answer
+	 * @param received
+	 *          the time the request was received
+	 * @param deadline
+	 *          the time the answer is due
+	 */
+	private void answer(HttpExchange exchange, int status, Callable<String> task, long received,
+			long deadline) throws IOException {
+		if (deadline - System.nanoTime() <= 0) {
+			// the request waited for a handler until it was too late
+			metrics.timedOut();
+			respond(exchange, HTTP_GATEWAY_TIMEOUT, error("The deadline has passed"));
+			return;
+		}
+		Future<String> future;
+		try {
+			future = workers.submit(task);
+		} catch (RejectedExecutionException e) {
+			metrics.rejected();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, HTTP_UNAVAILABLE, error("The queue is full"));
+			return;
+		}
+		metrics.accepted();
+		try {
+			String json = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			metrics.completed(System.nanoTime() - received);
+			respond(exchange, status, json);
+		} catch (TimeoutException e) {
+			// a queued task does not start anymore, a running one is interrupted
+			future.cancel(true);
+			metrics.timedOut();
+			respond(exchange, HTTP_GATEWAY_TIMEOUT, error("The deadline has passed"));
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			metrics.failed();
+			respond(exchange, HTTP_INTERNAL_ERROR, error(String.valueOf(e.getCause())));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			metrics.failed();
+			respond(exchange, HTTP_UNAVAILABLE, error("The service is stopping"));
+		}
+	}
+
+	/**
+	 * Helper method that hands a request for which there is no handler to the thread
+	 * that answers it with 503.
+	 *
+	 * @param request
+	 *          the request
+	 * @throws RejectedExecutionException
+	 *           if too many requests are refused already, then the connection is closed
+	 */
+	private void refuse(Runnable request) {
+		refusals.execute(() -> {
+			refused.set(true);
+			try {
+				request.run();
+			} finally {
+				refused.remove();
+			}
+		});
+	}
+
+	/**
+	 * Helper method that lists the loaded architectures.
+	 */
+	private String listModels() {
+		StringBuilder json = new StringBuilder("{\"models\": [");
+		String separator = "";
+		for (Map.Entry<String, ArchitectureFunctions> entry : new TreeMap<String, ArchitectureFunctions>(
+				models).entrySet()) {
+			json.append(separator).append("{\"model\": ").append(BatchVerifier.json(entry.getKey()))
+					.append(", \"properties\": ").append(entry.getValue().getpSet().size()).append("}");
+			separator = ", ";
+		}
+		return json.append("]}\n").toString();
+	}
+
+	/**
+	 * Helper method to check whether an architecture has a property of that name.
+	 */
+	private static boolean hasProperty(ArchitectureFunctions archFunc, String property) {
+		for (Property prop : archFunc.getpSet()) {
+			if (prop.toString().equals(property)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Helper method that reads the parameters of the query and of a form in the body.
+	 */
+	private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+		Map<String, String> params = new TreeMap<String, String>();
+		decode(exchange.getRequestURI().getRawQuery(), params);
+		String type = exchange.getRequestHeaders().getFirst("Content-Type");
+		if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+			StringBuilder body = new StringBuilder();
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					body.append(line);
+				}
+			}
+			decode(body.toString(), params);
+		}
+		return params;
+	}
+
+	/**
+	 * Helper method that decodes URL-encoded parameters.
+	 */
+	private static void decode(String encoded, Map<String, String> params)
+			throws UnsupportedEncodingException {
+		if (encoded == null || encoded.isEmpty()) {
+			return;
+		}
+		for (String pair : encoded.split("&")) {
+			int split = pair.indexOf('=');
+			String key = split < 0 ? pair : pair.substring(0, split);
+			String value = split < 0 ? "" : pair.substring(split + 1);
+			params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+		}
+	}
+
+	/**
+	 * Helper method to get an error as a JSON object.
+	 */
+	private static String error(String message) {
+		return "{\"error\": " + BatchVerifier.json(String.valueOf(message)) + "}\n";
+	}
+
+	/**
+	 * Helper method that sends an answer and closes the exchange.
+	 */
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(bytes);
+		}
+	}
+}
@@ -21,18 +21,34 @@ import architecture.Term.OperatorType;
 import architecture.Term.TermType;
 import architecture.Trust;
 import architecture.Variable;
-import gui.Gui.MessageType;
+import properties.BatchResult;
+import properties.KnowledgeMatrix;
 import properties.Property;
 import properties.RulesOfInferenceParserBottomup;
 import properties.RulesOfInferenceParserTopdown;
+import properties.VerificationListener;
+import solver.SolverHandler;
+import utils.ResultStore;
 import utils.SaveLoadArch;
 import utils.TraceBuffer;
 import utils.ArchLoader;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The class that is responsible for all architecture-related methods triggered by the GUI.
@@ -44,6 +60,9 @@ public class ArchitectureFunctions implements Serializable {
 	 */
 	private static final long serialVersionUID = 9132740232003863055L;
 
+	// the reason of a property whose solver run failed
+	private static final String SOLVER_FAILED = "The solver could not be run, check the config file";
+
 	/**
 	 * The three different case studies.
 	 * Electronic Toll Pricing, Smart Energy Metering,
@@ -92,6 +111,12 @@ public class ArchitectureFunctions implements Serializable {
 	private RulesOfInferenceParserTopdown parserTd;
 	private RulesOfInferenceParserBottomup parserBu;
 	private Set<Property> pSet;
+	private boolean lazyDeduction;
+	private boolean congruenceClosure;
+	private transient ResultStore resultStore;
+	private transient ResultStore.Fingerprint fingerprint;
+	private transient VerificationListener listener;
+	private transient Map<Property, String> traces;
 
 	/**
 	 * The constructor of the architecture functions.
@@ -120,80 +145,548 @@ public class ArchitectureFunctions implements Serializable {
 	 */
 	public boolean verify(String prop) {
 		// go through the Set and find the right property
+		Property property = getProperty(prop);
+		// verify the property
+		if (property != null) {
+			return verify(property);
+		}
+		// TODO
+		return false;
+	}
+
+	/**
+	 * Method to get a property by its name.
+	 * 
+	 * @param prop
+	 *          the name of the property
+	 * @return the property, or null if there is no such property
+	 */
+	public Property getProperty(String prop) {
 		Property property = null;
 		for (Property p : pSet) {
 			if (prop != null && p.toString().equals(prop)) {
 				property = p;
 			}
 		}
-		// verify the property
-		if (property != null) {
-			if (!parserBu.verifyStatement(property, 0)) {
-				return parserTd.verifyStatement(property, 0);
-			} else {
-				return true;
+		return property;
+	}
+
+	/**
+	 * Method to verify a property. This may run on another thread than the one editing
+	 * the architecture, as the verifiers work on the snapshot of the last finish, but
+	 * then the architecture has to be finished before, see {@link #isFinished()}. If the
+	 * thread is interrupted, e.g., because the user cancelled the verification, the
+	 * result is not stored.
+	 * 
+	 * @param property
+	 *          the property to verify
+	 * @return true, if the property holds
+	 * @throws IllegalStateException
+	 *           if the solver could not be run for the property
+	 */
+	public boolean verify(Property property) {
+		// the parsers and the fingerprint of one finish
+		Verifiers verifiers = verifiers();
+		if (resultStore != null) {
+			// serve the stored result, if the architecture did not change for it
+			ResultStore.Result stored = resultStore.lookup(property, verifiers.fingerprint);
+			if (stored != null) {
+				restoreTrace(property, stored);
+				verified(property, stored.holds(), 1, 1);
+				return stored.holds();
 			}
 		}
-		// TODO
-		return false;
+		// the traces of this verification only
+		TraceBuffer trace = new TraceBuffer();
+		TraceBuffer previous = trace.attach();
+		boolean result;
+		boolean solver;
+		try {
+			result = verifiers.bottomup.verifyStatement(property, 0);
+			solver = !result;
+			if (solver) {
+				synchronized (verifiers.topdown) {
+					SolverHandler.resetFailure();
+					result = verifiers.topdown.verifyStatement(property, 0);
+				}
+				if (SolverHandler.hasFailed()) {
+					throw new IllegalStateException(SOLVER_FAILED);
+				}
+			}
+		} finally {
+			TraceBuffer.detach(previous);
+		}
+		keepTrace(property, trace.getMessage(property));
+		if (resultStore != null && !Thread.currentThread().isInterrupted()) {
+			resultStore.store(property, verifiers.fingerprint,
+					resultOf(verifiers, trace, property, result), solver);
+			resultStore.flush();
+		}
+		verified(property, result, 1, 1);
+		return result;
 	}
 
 	/**
-	 * Method to finish the architecture creation. This will trigger the
-	 * consistency check.
+	 * Method to verify a whole batch of properties with one worker thread per processor.
+	 * 
+	 * @param props
+	 *          the properties to verify
+	 * @return the verdicts and timings of the batch
 	 */
-	public void finish() {
-		// set dependence relations
-		for (DependenceRelation dr : dSet) {
-			// add the dep to the comp
-			dr.getComp().addDependence(dr.getDep());
+	public BatchResult verifyAll(Collection<Property> props) {
+		return verifyAll(props, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Method to verify a whole batch of properties. All properties share the result
+	 * history of the bottom-up parser, and sub-properties that occur in several
+	 * properties are only verified once. The atomic sub-properties are verified in
+	 * parallel first, then the properties of the batch are evaluated on top of them.
+	 * Properties that cannot be proven bottom-up are handed to the top-down parser one
+	 * at a time, as the SMT solver works on a single buffer. With a result store, only
+	 * the properties without a stored result for the current architecture are verified.
+	 * 
+	 * @param props
+	 *          the properties to verify
+	 * @param threads
+	 *          the number of worker threads
+	 * @return the verdicts and timings of the batch
+	 * @throws CancellationException
+	 *           if the thread is interrupted before all properties are verified
+	 * @throws IllegalStateException
+	 *           if the verification of a property fails with an exception
+	 */
+	public BatchResult verifyAll(Collection<Property> props, int threads) {
+		long start = System.nanoTime();
+		Map<Property, Boolean> results = new LinkedHashMap<Property, Boolean>();
+		Map<Property, Long> times = new LinkedHashMap<Property, Long>();
+		Map<Property, Double> bestProbs = new LinkedHashMap<Property, Double>();
+		Map<Property, String> cores = new LinkedHashMap<Property, String>();
+		Map<Property, String> errors = new LinkedHashMap<Property, String>();
+		Collection<Property> stored = Collections.emptySet();
+		Collection<Property> all = props;
+		int total = props.size();
+		int done = 0;
+		if (resultStore != null) {
+			// serve the stored results, if the architecture did not change for them
+			ResultStore.Fingerprint current = currentFingerprint();
+			Collection<Property> pending = new ArrayList<Property>();
+			stored = new LinkedHashSet<Property>();
+			for (Property prop : props) {
+				ResultStore.Result result = resultStore.lookup(prop, current);
+				if (result != null) {
+					restoreTrace(prop, result);
+					results.put(prop, result.holds());
+					times.put(prop, 0L);
+					bestProbs.put(prop, result.getBestProb());
+					cores.put(prop, result.getCore());
+					stored.add(prop);
+					verified(prop, result.holds(), ++done, total);
+				} else {
+					pending.add(prop);
+				}
+			}
+			if (pending.isEmpty()) {
+				return new BatchResult(results, times, bestProbs, cores, errors, 0, 0, 0,
+						System.nanoTime() - start);
+			}
+			props = pending;
+		}
+		// the architecture is finished here if it was not yet
+		Verifiers verifiers = verifiers();
+		// collect the distinct sub-properties
+		Set<Property> atoms = new LinkedHashSet<Property>();
+		Set<Property> distinct = new LinkedHashSet<Property>();
+		for (Property prop : props) {
+			collectSubformulas(prop, atoms, distinct);
+		}
+		Map<Property, Long> bottomupTimes = new ConcurrentHashMap<Property, Long>();
+		// the traces of this batch only
+		TraceBuffer trace = new TraceBuffer();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			// fill the shared result history with the atomic properties
+			List<Future<Boolean>> warmup = new ArrayList<Future<Boolean>>();
+			for (Property atom : atoms) {
+				warmup.add(executor.submit(() -> verifyBottomup(verifiers, trace, atom, bottomupTimes)));
+			}
+			for (Future<Boolean> future : warmup) {
+				future.get();
+			}
+			// the properties of the batch now mostly consist of cached sub-properties
+			Map<Property, Future<Boolean>> batch = new LinkedHashMap<Property, Future<Boolean>>();
+			for (Property prop : props) {
+				if (!batch.containsKey(prop)) {
+					batch.put(prop, executor.submit(() -> verifyBottomup(verifiers, trace, prop, bottomupTimes)));
+				}
+			}
+			for (Map.Entry<Property, Future<Boolean>> entry : batch.entrySet()) {
+				boolean result = entry.getValue().get();
+				results.put(entry.getKey(), result);
+				if (result) {
+					// the others are only known after the top-down parser
+					verified(entry.getKey(), true, ++done, total);
+				}
+			}
+		} catch (InterruptedException e) {
+			// do not go on with the solver, the results would not be complete
+			Thread.currentThread().interrupt();
+			throw (CancellationException) new CancellationException("The verification was interrupted")
+					.initCause(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The verification of the batch failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		long bottomupTime = 0;
+		for (long time : bottomupTimes.values()) {
+			bottomupTime += time;
+		}
+		// fall back to the top-down parser for the properties that could not be proven
+		long topdownTime = 0;
+		for (Property prop : props) {
+			long time = bottomupTimes.getOrDefault(prop, 0L);
+			boolean solver = !results.getOrDefault(prop, false);
+			if (solver) {
+				long tdStart = System.nanoTime();
+				TraceBuffer previous = trace.attach();
+				try {
+					synchronized (verifiers.topdown) {
+						SolverHandler.resetFailure();
+						results.put(prop, verifiers.topdown.verifyStatement(prop, 0));
+					}
+				} finally {
+					TraceBuffer.detach(previous);
+				}
+				if (Thread.currentThread().isInterrupted()) {
+					// the solver was stopped, so its verdict is not one
+					throw new CancellationException("The verification was interrupted");
+				}
+				long tdTime = System.nanoTime() - tdStart;
+				topdownTime += tdTime;
+				time += tdTime;
+				if (SolverHandler.hasFailed()) {
+					// neither a verdict nor a result to store
+					errors.put(prop, SOLVER_FAILED);
+					if (listener != null) {
+						listener.propertyFailed(prop, SOLVER_FAILED, ++done, total);
+					}
+				} else {
+					verified(prop, results.get(prop), ++done, total);
+				}
+			}
+			times.put(prop, time);
+			if (!stored.contains(prop)) {
+				keepTrace(prop, trace.getMessage(prop));
+			}
+			if (!stored.contains(prop) && !errors.containsKey(prop)) {
+				ResultStore.Result result = resultOf(verifiers, trace, prop, results.get(prop));
+				bestProbs.put(prop, result.getBestProb());
+				cores.put(prop, result.getCore());
+				if (resultStore != null && !Thread.currentThread().isInterrupted()) {
+					resultStore.store(prop, verifiers.fingerprint, result, solver);
+				}
+			}
 		}
-		// add actions
-		Set<Action> interComponentActions = new LinkedHashSet<Action>();
-		for (Action ac : aSet) {
-			switch (ac.getAction()) {
-			case CHECK:
-				// fall through
+		if (!stored.isEmpty()) {
+			// report the results in the order of the batch
+			Map<Property, Boolean> ordered = new LinkedHashMap<Property, Boolean>();
+			for (Property prop : all) {
+				ordered.put(prop, results.get(prop));
+			}
+			results = ordered;
+		}
+		if (resultStore != null) {
+			resultStore.flush();
+		}
+		return new BatchResult(results, times, bestProbs, cores, errors, distinct.size(),
+				bottomupTime, topdownTime, System.nanoTime() - start);
+	}
+
+	/**
+	 * Helper method that reports the result of a property to the listener, if any.
+	 * 
+	 * @param prop
+	 *          the property
+	 * @param holds
+	 *          the verdict
+	 * @param done
+	 *          the number of properties with a result so far
+	 * @param total
+	 *          the number of properties to verify
+	 */
+	private void verified(Property prop, boolean holds, int done, int total) {
+		if (listener != null) {
+			listener.propertyVerified(prop, holds, done, total);
+		}
+	}
+
+	/**
+	 * Helper method to get the fingerprint of the architecture the properties are
+	 * verified on, which is the one of the next finish if there was none yet.
+	 * 
+	 * @return the fingerprint
+	 */
+	private synchronized ResultStore.Fingerprint currentFingerprint() {
+		return fingerprint != null ? fingerprint : new ResultStore.Fingerprint(this);
+	}
+
+	/**
+	 * Helper method to get the result of a property that was just verified, with the
+	 * best probability and the unsat core the verifiers found for it.
+	 * 
+	 * @param verifiers
+	 *          the verifiers of the property
+	 * @param trace
+	 *          the traces of the verification
+	 * @param prop
+	 *          the property
+	 * @param holds
+	 *          the verdict
+	 * @return the result
+	 */
+	private static ResultStore.Result resultOf(Verifiers verifiers, TraceBuffer trace, Property prop,
+			boolean holds) {
+		Double bestProb;
+		synchronized (verifiers.topdown) {
+			bestProb = verifiers.topdown.getBestProb(prop);
+		}
+		return new ResultStore.Result(holds, bestProb, trace.getMessage(prop));
+	}
+
+	/**
+	 * Helper method that makes the trace of a stored result available for
+	 * {@link #getTrace(String)}.
+	 * 
+	 * @param prop
+	 *          the property
+	 * @param result
+	 *          the stored result
+	 */
+	private void restoreTrace(Property prop, ResultStore.Result result) {
+		keepTrace(prop, result.getTrace());
+	}
+
+	/**
+	 * Helper method that keeps the trace of the last verification of a property for
+	 * {@link #getTrace(String)}, instead of the traces of earlier ones.
+	 * 
+	 * @param prop
+	 *          the property
+	 * @param trace
+	 *          the trace, or null if there is none
+	 */
+	private synchronized void keepTrace(Property prop, String trace) {
+		if (traces == null) {
+			traces = new HashMap<Property, String>();
+		}
+		if (trace == null) {
+			traces.remove(prop);
+		} else {
+			traces.put(prop, trace);
+		}
+	}
+
+	/**
+	 * Method to compute everything each component has, knows and shares in one pass.
+	 * The matrix is computed on a snapshot of its own, in which the deduction
+	 * capability of every component is instantiated with all equations used in the
+	 * architecture. The snapshot of the verifiers is not changed.
+	 *
+	 * @return the knowledge matrix of the architecture
+	 */
+	public KnowledgeMatrix knowledgeMatrix() {
+		Architecture snapshot = build();
+		Set<Equation> equations = new LinkedHashSet<Equation>(snapshot.getAllEquations());
+		for (Action action : snapshot.getAllActions()) {
+			switch (action.getAction()) {
 			case COMPUTE:
-				// fall through
-			case DELETE:
-				// fall through
-			case HAS:
-				// fall through
-			case TRUST:
-				// fall through
-			case VERIF_A:
-				// fall through
-			case VERIF_P:
-				// add the action to the comp
-				ac.getComponent().addAction(ac);
+				equations.add(action.getEq());
 				break;
-			case RECEIVE:
-				interComponentActions.add(ac);
+			case CHECK:
+				equations.addAll(action.getEqSet());
 				break;
 			default:
 				break;
 			}
 		}
+		for (Component comp : snapshot.getCompList()) {
+			comp.setEqSet(new LinkedHashSet<Equation>(equations));
+		}
+		snapshot.freeze();
+		return new KnowledgeMatrix(snapshot);
+	}
+
+	/**
+	 * Helper method that verifies a property with the bottom-up parser and records the
+	 * time it took.
+	 * 
+	 * @param verifiers
+	 *          the verifiers of the batch
+	 * @param trace
+	 *          the traces of the batch
+	 * @param prop
+	 *          the property to verify
+	 * @param times
+	 *          the map to record the time in
+	 * @return true, if the property holds
+	 */
+	private static boolean verifyBottomup(Verifiers verifiers, TraceBuffer trace, Property prop,
+			Map<Property, Long> times) {
+		long start = System.nanoTime();
+		TraceBuffer previous = trace.attach();
+		boolean result;
+		try {
+			result = verifiers.bottomup.verifyStatement(prop, 0);
+		} finally {
+			TraceBuffer.detach(previous);
+		}
+		times.merge(prop, System.nanoTime() - start, Long::sum);
+		return result;
+	}
+
+	/**
+	 * Helper method to collect all distinct sub-properties of a property.
+	 * 
+	 * @param prop
+	 *          the property
+	 * @param atoms
+	 *          the set to collect the sub-properties without any sub-properties in
+	 * @param distinct
+	 *          the set to collect all sub-properties in
+	 */
+	private void collectSubformulas(Property prop, Set<Property> atoms, Set<Property> distinct) {
+		if (!distinct.add(prop)) {
+			// already collected
+			return;
+		}
+		switch (prop.getType()) {
+		case CONJUNCTION:
+			collectSubformulas(prop.getSt1(), atoms, distinct);
+			collectSubformulas(prop.getSt2(), atoms, distinct);
+			break;
+		case NEGATION:
+			collectSubformulas(prop.getSt1(), atoms, distinct);
+			break;
+		default:
+			atoms.add(prop);
+			break;
+		}
+	}
+
+	/**
+	 * Method to finish the architecture creation. This will trigger the
+	 * consistency check. The verifiers work on a frozen snapshot with copies of
+	 * the components, so the architecture can be edited while they run. The method
+	 * reads the edited sets, so it has to run on the thread that edits them.
+	 */
+	public void finish() {
+		Architecture snapshot = build();
+		// create the verifier
+		RulesOfInferenceParserTopdown topdown = new RulesOfInferenceParserTopdown(snapshot);
+		RulesOfInferenceParserBottomup bottomup = new RulesOfInferenceParserBottomup(snapshot, listener);
+		// the verifiers only read the architecture from now on
+		snapshot.freeze();
+		// the results are stored for the model the snapshot was built from
+		ResultStore.Fingerprint finished = new ResultStore.Fingerprint(this);
+		synchronized (this) {
+			// running verifications keep the verifiers they started with
+			arch = snapshot;
+			parserTd = topdown;
+			parserBu = bottomup;
+			fingerprint = finished;
+		}
+	}
+
+	/**
+	 * Method to check whether the architecture was finished, i.e., whether there are
+	 * verifiers that {@link #verify(Property)} can use without finishing it first.
+	 * 
+	 * @return true, if finished
+	 */
+	public synchronized boolean isFinished() {
+		return parserBu != null;
+	}
+
+	/**
+	 * Helper method to get the verifiers of the last finish, which finishes the
+	 * architecture first if it was not finished yet.
+	 * 
+	 * @return the verifiers
+	 */
+	private synchronized Verifiers verifiers() {
+		if (parserBu == null) {
+			// the architecture was not finished yet, e.g., after loading it
+			finish();
+		}
+		return new Verifiers(parserTd, parserBu, fingerprint);
+	}
+
+	/**
+	 * Method to build a new snapshot of the architecture from the edited sets,
+	 * without setting up the verifiers.
+	 * 
+	 * @return the architecture, not yet frozen
+	 */
+	public Architecture build() {
+		Architecture.Builder builder = new Architecture.Builder();
+		for (Component comp : cSet) {
+			builder.addComponent(comp);
+		}
+		// set dependence relations
+		for (DependenceRelation dr : dSet) {
+			// add the dep to the comp
+			builder.addDependence(dr.getComp(), dr.getDep());
+		}
+		// add actions, the receive actions become inter-component actions
+		for (Action ac : aSet) {
+			builder.addAction(ac);
+		}
 		// add deduction capabilities
 		for (DeductionCapability ded : dedSet) {
 			// add the deds to the comp
-			ded.getComp().setDeducSet(ded.getDeducSet());
+			builder.setDeductions(ded.getComp(), ded.getDeducSet());
 		}
+		for (Trust trust : trustSet) {
+			builder.addTrust(trust);
+		}
+		builder.setDeductionModes(lazyDeduction, congruenceClosure);
 		// create arch
-		arch = new Architecture(cSet, interComponentActions, trustSet);
-		// create the verifier
-		parserTd = new RulesOfInferenceParserTopdown(arch);
-		parserBu = new RulesOfInferenceParserBottomup(arch);
+		return builder.build();
 	}
 
 	/**
-	 * Method that presents the verification trace of a selected property.
+	 * Method to choose whether the deductions of the components are instantiated
+	 * for all known equations when the architecture is finished, or only when a
+	 * property needs them. Takes effect with the next {@link #finish()}.
+	 * 
+	 * @param lazyDeduction
+	 *          true, to instantiate deductions on demand
+	 */
+	public void setLazyDeduction(boolean lazyDeduction) {
+		this.lazyDeduction = lazyDeduction;
+	}
+
+	/**
+	 * Method to choose whether equalities are derived by congruence closure instead
+	 * of instantiating the symmetry, transitivity and substitution deductions.
+	 * Takes effect with the next {@link #finish()}.
+	 * 
+	 * @param congruenceClosure
+	 *          true, to use congruence closure
+	 */
+	public void setCongruenceClosure(boolean congruenceClosure) {
+		this.congruenceClosure = congruenceClosure;
+	}
+
+	/**
+	 * Method to get the verification trace of a selected property.
 	 * 
 	 * @param property
-	 *          the name of the property
+	 *          the name of the property, prefixed with [holds] or [does not hold]
+	 * @return the trace with the outcome, or null if there is no such property
 	 */
-	public void showTrace(String property) {
+	public String getTrace(String property) {
 		// split the string to remove the [holds] or [does not hold] information
 		String[] splits = property.split("] ");
 		property = splits[1];
@@ -208,14 +701,16 @@ public class ArchitectureFunctions implements Serializable {
 		// get the right property
 		for (Property p : pSet) {
 			if (property != null && p.toString().equals(property)) {
-				// TODO do something with the property p
-				// get the trace
 				// DEBUG
 				System.out.println("Property to show trace for: " + p);
-				// This should work
-				Gui.showMessage(MessageType.LOG, TraceBuffer.getMessage(p) + holdP);
+				String trace;
+				synchronized (this) {
+					trace = traces == null ? null : traces.get(p);
+				}
+				return trace + holdP;
 			}
 		}
+		return null;
 	}
 
 	/**
@@ -251,15 +746,15 @@ public class ArchitectureFunctions implements Serializable {
 	private void createDefaultDeduc() {
 		// some variables and terms for the deduction equations
 		Variable varT = new Variable("t");
-		Term termT = new Term(TermType.ATOM, varT, true);
+		Term termT = Term.of(TermType.ATOM, varT, true);
 		Variable varU = new Variable("u");
-		Term termU = new Term(TermType.ATOM, varU, true);
+		Term termU = Term.of(TermType.ATOM, varU, true);
 		Variable varV = new Variable("v");
-		Term termV = new Term(TermType.ATOM, varV, true);
+		Term termV = Term.of(TermType.ATOM, varV, true);
 		Variable varX = new Variable("x");
 		Variable varY = new Variable("y");
-		Term termX = new Term(TermType.ATOM, varX, true);
-		Term termY = new Term(TermType.ATOM, varY, true);
+		Term termX = Term.of(TermType.ATOM, varX, true);
+		Term termY = Term.of(TermType.ATOM, varY, true);
 		Equation dedEq2 = new Equation("subst", Type.RELATION, Relation.EQUALITY, termT, termU);
 		Equation dedEq3 = new Equation("dedEq3", Type.RELATION, Relation.EQUALITY, termX, termY);
 		Set<Equation> dedEqSet1 = Set.of(dedEq2,
@@ -299,7 +794,7 @@ public class ArchitectureFunctions implements Serializable {
 	public void addVariable(String name) {
 		Variable var = new Variable(name, false);
 		vSet.add(var);
-		tSet.add(new Term(TermType.ATOM, var, false));
+		tSet.add(Term.of(TermType.ATOM, var, false));
 		// Debug
 		System.out.println(vSet);
 	}
@@ -338,19 +833,19 @@ public class ArchitectureFunctions implements Serializable {
 		case BINARY:
 			// add the new binary term
 			if (term1 != null && term2 != null) {
-				tSet.add(new Term(TermType.COMPOSITION, opType, op, funcName, term1, term2, false));
+				tSet.add(Term.of(TermType.COMPOSITION, opType, op, funcName, term1, term2, false));
 			}
 			break;
 		case UNARY:
 			// add the new unary term
 			if (term1 != null) {
-				tSet.add(new Term(TermType.COMPOSITION, opType, op, funcName, term1, false));
+				tSet.add(Term.of(TermType.COMPOSITION, opType, op, funcName, term1, false));
 			}
 			break;
 		case TERTIARY:
 			// add the new tertiary term
 			if (term1 != null && term2 != null && term3 != null) {
-				tSet.add(new Term(TermType.COMPOSITION, opType, op,
+				tSet.add(Term.of(TermType.COMPOSITION, opType, op,
 						funcName, term1, term2, term3, false));
 			}
 			break;
@@ -722,12 +1217,15 @@ public class ArchitectureFunctions implements Serializable {
 	 */
 	public void addDeduc(String name, Set<String> premises, String conclusion, String probability) {
 		Equation equation = null;
-		Set<Equation> eqSet = new LinkedHashSet<Equation>();
 		for (Equation eq : eSet) {
 			if (eq.toString().equals(conclusion)) {
 				equation = eq;
 			}
-			for (String e : premises) {
+		}
+		// keep the order of the premises, as the first one plays a special role
+		Set<Equation> eqSet = new LinkedHashSet<Equation>();
+		for (String e : premises) {
+			for (Equation eq : eSet) {
 				if (eq.toString().equals(e)) {
 					eqSet.add(eq);
 				}
@@ -1290,4 +1788,59 @@ public class ArchitectureFunctions implements Serializable {
 	public Architecture getArch() {
 		return arch;
 	}
+
+	public boolean isLazyDeduction() {
+		return lazyDeduction;
+	}
+
+	public boolean isCongruenceClosure() {
+		return congruenceClosure;
+	}
+
+	public ResultStore getResultStore() {
+		return resultStore;
+	}
+
+	/**
+	 * Method to keep the verification results in a store, so that they are served
+	 * from there as long as the architecture does not change for them.
+	 * 
+	 * @param resultStore
+	 *          the store, or null to always verify
+	 */
+	public void setResultStore(ResultStore resultStore) {
+		this.resultStore = resultStore;
+	}
+
+	public VerificationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Method to subscribe to the consistency check and the progress of the verification.
+	 * 
+	 * @param listener
+	 *          the listener, or null
+	 */
+	public void setListener(VerificationListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * The parsers of one finish and the fingerprint of the model they were finished
+	 * for, which a verification uses together.
+	 */
+	private static final class Verifiers {
+
+		private final RulesOfInferenceParserTopdown topdown;
+		private final RulesOfInferenceParserBottomup bottomup;
+		private final ResultStore.Fingerprint fingerprint;
+
+		private Verifiers(RulesOfInferenceParserTopdown topdown,
+				RulesOfInferenceParserBottomup bottomup, ResultStore.Fingerprint fingerprint) {
+			this.topdown = topdown;
+			this.bottomup = bottomup;
+			this.fingerprint = fingerprint;
+		}
+	}
 }
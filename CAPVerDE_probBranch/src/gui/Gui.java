@@ -2,9 +2,15 @@ package gui;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.draw2d.ChopboxAnchor;
 import org.eclipse.draw2d.ConnectionEndpointLocator;
@@ -38,6 +44,7 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Monitor;
+import org.eclipse.swt.widgets.ProgressBar;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.TabFolder;
 import org.eclipse.swt.widgets.TabItem;
@@ -64,6 +71,8 @@ import architecture.Term.OperatorType;
 import diagrams.ComponentFigure;
 import gui.ArchitectureFunctions.CaseStudy;
 import properties.Property;
+import properties.VerificationListener;
+import solver.SolverHandler;
 import utils.FileReader;
 import utils.SaveLoadArch;
 
@@ -91,16 +100,52 @@ public class Gui {
     COMP, VAR, TERM, EQ, TRUST, STMT, ACT, DEP, DED, PROP;
   }
 
+  /**
+   * The listener that shows the outcome of the consistency check.
+   */
+  private static final VerificationListener LISTENER = new VerificationListener() {
+    @Override
+    public void consistencyChecked(Architecture arch, Action invalid) {
+      // the message boxes can only be opened on the display thread
+      if (display.isDisposed()) {
+        return;
+      }
+      if (invalid != null) {
+        display.asyncExec(() -> showMessage(MessageType.ERR,
+            "Architecture is not consistent!\n" + "At least this action is not valid: "
+                + invalid + "\n"
+                + "All verification based on this architecture are not meaningful..."));
+      } else {
+        display.asyncExec(() -> showMessage(MessageType.INF,
+            "Architecture is consistent and can be used for verification of privacy properties"));
+      }
+    }
+  };
+
   // class fields
   private static ArchitectureFunctions archFunc = new ArchitectureFunctions();
   public static Display display = new Display();
   public Shell shell = new Shell(display);
+  // the verifications run in the background, so the display stays responsive
+  private final ExecutorService verifier = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable, "verifier");
+        thread.setDaemon(true);
+        return thread;
+      });
+  // the running verifications and their table items, only used on the display thread
+  private final Map<FutureTask<Boolean>, TableItem> running =
+      new LinkedHashMap<FutureTask<Boolean>, TableItem>();
+  private ProgressBar progress;
+  private Label progressLab;
+  private Button cancelBtn;
 
   /**
    * The constructor of the GUI that initializes the shell and its content,
    * displays the GUI and also contains the program loop.
    */
   public Gui() {
+    archFunc.setListener(LISTENER);
     shell.setText("CAPVerDE: Computer-Aided Privacy Verification and Design Engineering Tool");
     shell.setLayout(new FillLayout());
     // shell.setLayout(new GridLayout(2, true));
@@ -1187,6 +1232,21 @@ public class Gui {
     verifyBtn.setLayoutData(new GridData(SWT.MIN, SWT.FILL, false, false, 1, 1));
     verifyBtn.setText("Verify");
 
+    progress = new ProgressBar(verification, SWT.INDETERMINATE);
+    progress.setLayoutData(new GridData(SWT.MIN, SWT.FILL, false, false, 1, 1));
+    progress.setVisible(false);
+
+    progressLab = new Label(verification, SWT.CENTER);
+    progressLab.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false, 1, 1));
+
+    cancelBtn = new Button(verification, SWT.PUSH);
+    cancelBtn.setLayoutData(new GridData(SWT.MIN, SWT.FILL, false, false, 1, 1));
+    cancelBtn.setText("Cancel");
+    cancelBtn.setToolTipText("Cancel all running verifications");
+    cancelBtn.addListener(SWT.Selection, event -> cancelVerifications());
+    // nothing is running yet
+    updateProgress();
+
     // third line
     Group verified = new Group(left2, SWT.SHADOW_IN);
     verified.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false));
@@ -1259,6 +1319,7 @@ public class Gui {
         if (showMessage(MessageType.WARN,
             "The current architecture will be overwritten by the load. Continue?")) {
           archFunc = SaveLoadArch.loadArch(archName.getText());
+          archFunc.setListener(LISTENER);
           verifiedProps.removeAll();
         }
       }
@@ -1358,6 +1419,9 @@ public class Gui {
         display.sleep();
       }
     }
+    // stop the verifications that are still running
+    verifier.shutdownNow();
+    SolverHandler.cancelAll();
     display.dispose();
   }
 
@@ -1388,6 +1452,7 @@ public class Gui {
   private static void reset() {
     // reset the architecture objects and all properties
     archFunc = new ArchitectureFunctions();
+    archFunc.setListener(LISTENER);
     // TODO more to be reset?
   }
 
@@ -1666,41 +1731,126 @@ public class Gui {
   }
 
   /**
-   * Helper method that calls the {@link ArchitectureFunctions#showTrace(String) showTrace(String)}
-   * method for the selected proof.
+   * Helper method that shows the {@link ArchitectureFunctions#getTrace(String) trace}
+   * of the selected proof.
    * @param verifiedProps
    *          the table with the proof items
    */
   private void showTrace(Table verifiedProps) {
     // show the verification trace of a property
     for (TableItem i : verifiedProps.getItems()) {
-      if (i.getChecked()) {
-        archFunc.showTrace(i.getText());
+      if (i.getChecked() && i.getData() == null) {
+        String trace = archFunc.getTrace(i.getText());
+        if (trace != null) {
+          showMessage(MessageType.LOG, trace);
+        }
       }
     }
   }
 
   /**
-   * Helper method that calls the {@link ArchitectureFunctions#verify(String) verify(String)}
-   * method for the selected property. Also updates the table for verified properties.
+   * Helper method that starts the {@link ArchitectureFunctions#verify(Property) verification}
+   * of the selected property in the background. The table for verified properties gets an
+   * item right away, which shows the result once it is known.
    * @param property
    *          the name of the property to verify
    * @param verifiedProps
    *          the table with the verified property items
    */
   private void verifyProp(String property, Table verifiedProps) {
-    // verify the property
-    if (archFunc.verify(property)) {
+    Property prop = archFunc.getProperty(property);
+    if (prop == null) {
+      // no property selected
+      return;
+    }
+    if (!archFunc.isFinished()) {
+      // finish here, the verifier must not read the architecture while it is edited
+      archFunc.finish();
+    }
+    // the architecture may be reset or loaded while the verification runs
+    ArchitectureFunctions functions = archFunc;
+    TableItem item = new TableItem(verifiedProps, SWT.NONE);
+    item.setText("[verifying] " + property);
+    FutureTask<Boolean> task = new FutureTask<Boolean>(() -> functions.verify(prop)) {
+      @Override
+      protected void done() {
+        // show the result on the display thread
+        if (!display.isDisposed()) {
+          display.asyncExec(() -> showResult(this, property));
+        }
+      }
+    };
+    item.setData(task);
+    running.put(task, item);
+    updateProgress();
+    verifier.execute(task);
+  }
+
+  /**
+   * Helper method that shows the result of a verification that ended in its table item.
+   * @param task
+   *          the verification, which is done
+   * @param property
+   *          the name of the verified property
+   */
+  private void showResult(FutureTask<Boolean> task, String property) {
+    TableItem item = running.remove(task);
+    updateProgress();
+    if (item == null || item.isDisposed()) {
+      // the table was cleared by a reset or load
+      return;
+    }
+    if (task.isCancelled()) {
+      item.dispose();
+      return;
+    }
+    boolean holds;
+    try {
+      holds = task.get();
+    } catch (InterruptedException | ExecutionException e) {
+      // no verdict, e.g., because the solver could not be run
+      e.printStackTrace();
+      item.setData(null);
+      item.setText("[failed] " + property);
+      showMessage(MessageType.ERR, "The property " + property + " could not be verified:\n"
+          + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+      return;
+    }
+    item.setData(null);
+    if (holds) {
       // property successfully verified
-      TableItem item = new TableItem(verifiedProps, SWT.NONE);
       item.setText("[holds] " + property);
     } else {
       // property not verified
-      TableItem item = new TableItem(verifiedProps, SWT.NONE);
       item.setText("[does not hold] " + property);
     }
   }
 
+  /**
+   * Helper method that cancels all running verifications and kills their solvers.
+   */
+  private void cancelVerifications() {
+    for (FutureTask<Boolean> task : new ArrayList<FutureTask<Boolean>>(running.keySet())) {
+      task.cancel(true);
+    }
+    // the solver does not notice the interrupt
+    SolverHandler.cancelAll();
+  }
+
+  /**
+   * Helper method that shows how many verifications are running.
+   */
+  private void updateProgress() {
+    if (progress.isDisposed()) {
+      return;
+    }
+    boolean busy = !running.isEmpty();
+    progress.setVisible(busy);
+    progressLab.setText(busy ? "Verifying " + running.size() + " propert"
+        + (running.size() == 1 ? "y" : "ies") + "..." : "");
+    cancelBtn.setEnabled(busy);
+  }
+
   /**
    * Helper method that handles the selection via checkboxes.
    * @param e
@@ -0,0 +1,116 @@
+package properties;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Objects that hold the outcome of verifying a whole batch of properties,
+ * i.e., the verdict for each property and the aggregated timings.
+ */
+public class BatchResult {
+
+  // class fields
+  private final Map<Property, Boolean> results;
+  private final Map<Property, Long> times;
+  private final Map<Property, Double> bestProbs;
+  private final Map<Property, String> cores;
+  private final Map<Property, String> errors;
+  private final int subformulas;
+  private final long bottomupTime;
+  private final long topdownTime;
+  private final long totalTime;
+
+  /**
+   * The constructor for batch results.
+   *
+   * @param results
+   *          the verdict for each property of the batch
+   * @param times
+   *          the time in nanoseconds spent on each property of the batch
+   * @param bestProbs
+   *          the best probability a has or knows property was derived with, if any
+   * @param cores
+   *          the unsat core the solver reported for a property, if any
+   * @param errors
+   *          the reason a property could not be verified, if any
+   * @param subformulas
+   *          the number of distinct (sub-)properties that were verified
+   * @param bottomupTime
+   *          the accumulated time in nanoseconds spent in the bottom-up parser
+   * @param topdownTime
+   *          the accumulated time in nanoseconds spent in the top-down parser
+   * @param totalTime
+   *          the wall clock time in nanoseconds for the whole batch
+   */
+  public BatchResult(Map<Property, Boolean> results, Map<Property, Long> times,
+      Map<Property, Double> bestProbs, Map<Property, String> cores, Map<Property, String> errors,
+      int subformulas, long bottomupTime, long topdownTime, long totalTime) {
+    this.results = Collections.unmodifiableMap(results);
+    this.times = Collections.unmodifiableMap(times);
+    this.bestProbs = Collections.unmodifiableMap(bestProbs);
+    this.cores = Collections.unmodifiableMap(cores);
+    this.errors = Collections.unmodifiableMap(errors);
+    this.subformulas = subformulas;
+    this.bottomupTime = bottomupTime;
+    this.topdownTime = topdownTime;
+    this.totalTime = totalTime;
+  }
+
+  @Override
+  public String toString() {
+    int holds = 0;
+    for (Boolean result : results.values()) {
+      if (result) {
+        holds++;
+      }
+    }
+    return holds + "/" + results.size() + " properties hold (" + subformulas
+        + " distinct sub-properties), bottom-up: " + bottomupTime / 1000000 + "ms, top-down: "
+        + topdownTime / 1000000 + "ms, total: " + totalTime / 1000000 + "ms";
+  }
+
+  // getter methods
+  public Map<Property, Boolean> getResults() {
+    return results;
+  }
+
+  public Boolean getResult(Property property) {
+    return results.get(property);
+  }
+
+  public Map<Property, Long> getTimes() {
+    return times;
+  }
+
+  public Double getBestProb(Property property) {
+    return bestProbs.get(property);
+  }
+
+  public String getCore(Property property) {
+    return cores.get(property);
+  }
+
+  public String getError(Property property) {
+    return errors.get(property);
+  }
+
+  public Map<Property, String> getErrors() {
+    return errors;
+  }
+
+  public int getSubformulas() {
+    return subformulas;
+  }
+
+  public long getBottomupTime() {
+    return bottomupTime;
+  }
+
+  public long getTopdownTime() {
+    return topdownTime;
+  }
+
+  public long getTotalTime() {
+    return totalTime;
+  }
+}
@@ -0,0 +1,246 @@
+package properties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import architecture.Action;
+import architecture.Action.ActionType;
+import architecture.Component;
+import architecture.Equation;
+import architecture.Variable;
+import properties.Property.PropertyType;
+
+/**
+ * Objects that store the properties collected by the top-down parser together
+ * with hash indices, so that the rules of inference can look up facts and
+ * processed receive actions in constant time.
+ */
+public class FactStore implements Serializable {
+
+	/**
+	 * @serial Serial ID for storing architecture objects in files.
+	 */
+	private static final long serialVersionUID = 2508334657361542198L;
+
+	// class fields
+	private final List<Property> propertyList;
+	private final Set<Property> propertySet;
+	private final Map<Component, List<Property>> ownerIndex;
+	private final Map<Key, Double> bestProb;
+	private final Map<Component, Set<Variable>> received;
+	private final Map<Component, Set<Variable>> sent;
+	private final Map<Component, Map<Component, Set<Variable>>> receivedFrom;
+
+	/**
+	 * The constructor for an empty fact store.
+	 */
+	public FactStore() {
+		propertyList = new ArrayList<Property>();
+		propertySet = new HashSet<Property>();
+		ownerIndex = new LinkedHashMap<Component, List<Property>>();
+		bestProb = new HashMap<Key, Double>();
+		received = new HashMap<Component, Set<Variable>>();
+		sent = new HashMap<Component, Set<Variable>>();
+		receivedFrom = new HashMap<Component, Map<Component, Set<Variable>>>();
+	}
+
+	/**
+	 * Method that adds a property if not already contained.
+	 *
+	 * @param prop
+	 *          the property
+	 * @return true, if the property was added
+	 */
+	public boolean add(Property prop) {
+		if (!propertySet.add(prop)) {
+			return false;
+		}
+		propertyList.add(prop);
+		ownerIndex.computeIfAbsent(prop.getOwner(), k -> new ArrayList<Property>()).add(prop);
+		if (prop.getProb() != null
+				&& (prop.getType() == PropertyType.HAS || prop.getType() == PropertyType.KNOWS)) {
+			// remember the best probability for this fact
+			Object object = prop.getType() == PropertyType.HAS ? prop.getVar() : prop.getEq();
+			bestProb.merge(new Key(prop.getType(), prop.getOwner(), object), prop.getProb(), Math::max);
+		}
+		return true;
+	}
+
+	/**
+	 * Method to check whether a component has a variable with at least the given probability.
+	 *
+	 * @param comp
+	 *          the owner of the variable
+	 * @param var
+	 *          the variable
+	 * @param prob
+	 *          the minimal probability
+	 * @return true, if such a fact is stored
+	 */
+	public boolean containsHas(Component comp, Variable var, double prob) {
+		Double best = bestProb.get(new Key(PropertyType.HAS, comp, var));
+		return best != null && best >= prob;
+	}
+
+	/**
+	 * Method to check whether a component knows an equation with at least the given probability.
+	 *
+	 * @param comp
+	 *          the owner of the equation
+	 * @param eq
+	 *          the equation
+	 * @param prob
+	 *          the minimal probability
+	 * @return true, if such a fact is stored
+	 */
+	public boolean containsKnows(Component comp, Equation eq, double prob) {
+		Double best = bestProb.get(new Key(PropertyType.KNOWS, comp, eq));
+		return best != null && best >= prob;
+	}
+
+	/**
+	 * Method to get the best probability with which a has or knows fact is stored.
+	 *
+	 * @param prop
+	 *          the has or knows property, its own probability is ignored
+	 * @return the best probability, or null if no such fact is stored
+	 */
+	public Double getBestProb(Property prop) {
+		if (prop.getType() == PropertyType.HAS) {
+			return bestProb.get(new Key(PropertyType.HAS, prop.getOwner(), prop.getVar()));
+		} else if (prop.getType() == PropertyType.KNOWS) {
+			return bestProb.get(new Key(PropertyType.KNOWS, prop.getOwner(), prop.getEq()));
+		}
+		return null;
+	}
+
+	/**
+	 * Method that adds a processed action to the indexed action log.
+	 * Only receive actions are indexed, as no other rule looks them up.
+	 *
+	 * @param action
+	 *          the processed action
+	 */
+	public void logAction(Action action) {
+		if (action.getAction() != ActionType.RECEIVE) {
+			return;
+		}
+		Component receiver = action.getComponent();
+		Component sender = action.getComPartner();
+		received.computeIfAbsent(receiver, k -> new HashSet<Variable>()).addAll(action.getVarSet());
+		sent.computeIfAbsent(sender, k -> new HashSet<Variable>()).addAll(action.getVarSet());
+		receivedFrom.computeIfAbsent(receiver, k -> new HashMap<Component, Set<Variable>>())
+				.computeIfAbsent(sender, k -> new HashSet<Variable>()).addAll(action.getVarSet());
+	}
+
+	/**
+	 * Method to check in the action log whether a variable was already received
+	 * by a component.
+	 *
+	 * @param comp
+	 *          the receiving component
+	 * @param var
+	 *          the variable
+	 * @return true, if such an action was already processed
+	 */
+	public boolean isReceived(Component comp, Variable var) {
+		return received.getOrDefault(comp, Collections.emptySet()).contains(var);
+	}
+
+	/**
+	 * Method to check in the action log whether a variable was already sent by a
+	 * component.
+	 *
+	 * @param comp
+	 *          the sending component
+	 * @param var
+	 *          the variable
+	 * @return true, if such an action was already processed
+	 */
+	public boolean isSent(Component comp, Variable var) {
+		return sent.getOrDefault(comp, Collections.emptySet()).contains(var);
+	}
+
+	/**
+	 * Method to check in the action log whether a variable was already
+	 * transmitted between two components.
+	 *
+	 * @param comp
+	 *          the receiving component
+	 * @param compPartner
+	 *          the sending component
+	 * @param var
+	 *          the variable
+	 * @return true, if such an action was already processed
+	 */
+	public boolean isReceived(Component comp, Component compPartner, Variable var) {
+		Map<Component, Set<Variable>> senders = receivedFrom.get(comp);
+		return senders != null
+				&& senders.getOrDefault(compPartner, Collections.emptySet()).contains(var);
+	}
+
+	/**
+	 * Method to get all properties in the order they were added.
+	 * The list is live, i.e., it reflects properties added later on.
+	 *
+	 * @return the list of properties
+	 */
+	public List<Property> getProperties() {
+		return propertyList;
+	}
+
+	/**
+	 * Method to get the properties of one component in the order they were added.
+	 *
+	 * @param owner
+	 *          the component
+	 * @return the list of properties of the component
+	 */
+	public List<Property> getProperties(Component owner) {
+		return Collections.unmodifiableList(ownerIndex.getOrDefault(owner, Collections.emptyList()));
+	}
+
+	/**
+	 * The key of a fact: its type, its owner, and the variable or equation.
+	 */
+	private static final class Key implements Serializable {
+
+		private static final long serialVersionUID = -1740565618453920271L;
+
+		private final PropertyType type;
+		private final Component owner;
+		private final Object object;
+
+		private Key(PropertyType type, Component owner, Object object) {
+			this.type = type;
+			this.owner = owner;
+			this.object = object;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, owner, object);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return type == other.type && Objects.equals(owner, other.owner)
+					&& Objects.equals(object, other.object);
+		}
+	}
+}
@@ -0,0 +1,459 @@
+package properties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import architecture.Action;
+import architecture.Architecture;
+import architecture.Attest;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.Dep;
+import architecture.EGraph;
+import architecture.Equation;
+import architecture.P;
+import architecture.SymbolTable;
+import architecture.Variable;
+
+/**
+ * Objects that hold everything each component of an architecture has, knows and shares.
+ * The rules of inference are applied once for all components, variables and equations
+ * instead of verifying one property per combination.
+ * The matrices are stored row-major with one row per component.
+ */
+public class KnowledgeMatrix {
+
+	// class fields
+	private final SymbolTable<Component> components;
+	private final SymbolTable<Variable> variables;
+	private final SymbolTable<Equation> equations;
+	private final Map<Component, Set<Deduction>> deductions;
+	private final double[] has;
+	private final double[] knows;
+	private final boolean[] shares;
+
+	/**
+	 * The constructor that computes all three matrices for an architecture.
+	 *
+	 * @param arch
+	 *          the architecture
+	 */
+	public KnowledgeMatrix(Architecture arch) {
+		// the ids of the architecture come first, so they are the same here
+		components = new SymbolTable<Component>(new ArrayList<Component>());
+		variables = new SymbolTable<Variable>(new ArrayList<Variable>());
+		equations = new SymbolTable<Equation>(new ArrayList<Equation>());
+		deductions = new HashMap<Component, Set<Deduction>>();
+		collectIds(arch);
+		has = new double[components.size() * variables.size()];
+		knows = new double[components.size() * equations.size()];
+		shares = new boolean[components.size() * variables.size()];
+		// Rules H1-H3, K1-K5 and SH
+		applyActionRules(arch);
+		// Rules H4 and Kded
+		for (Component comp : components) {
+			applyDeps(comp);
+			applyDeductions(comp);
+			if (comp.isCongruenceClosure()) {
+				applyCongruence(comp);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that assigns an id to every component, variable and equation.
+	 *
+	 * @param arch
+	 *          the architecture
+	 */
+	private void collectIds(Architecture arch) {
+		for (Component comp : arch.getCompList()) {
+			components.add(comp);
+		}
+		for (Variable var : arch.getVariables()) {
+			addVariable(var);
+		}
+		for (Equation eq : arch.getAllEquations()) {
+			addEquation(eq);
+		}
+		// also add everything that is only mentioned by actions, deps and deductions
+		for (Action action : arch.getAllActions()) {
+			switch (action.getAction()) {
+			case RECEIVE:
+				for (Variable var : action.getVarSet()) {
+					addVariable(var);
+				}
+				break;
+			case COMPUTE:
+				addVariable(action.getEq().getLefthandSide());
+				addEquation(action.getEq());
+				break;
+			case CHECK:
+				for (Equation eq : action.getEqSet()) {
+					addEquation(eq);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		for (Component comp : components) {
+			for (Dep dep : comp.getDepSet()) {
+				addVariable(dep.getVar());
+				for (Variable var : dep.getVarSet()) {
+					addVariable(var);
+				}
+			}
+			// in lazy mode only the deductions for the equations collected so far
+			deductions.put(comp, comp.getRelevantDeductions(new ArrayList<Equation>(equations.getElements())));
+			for (Deduction ded : deductions.get(comp)) {
+				addEquation(ded.getConclusion());
+				for (Equation eq : ded.getPremises()) {
+					addEquation(eq);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that applies all rules based on single actions.
+	 *
+	 * @param arch
+	 *          the architecture
+	 */
+	private void applyActionRules(Architecture arch) {
+		for (Action action : arch.getAllActions()) {
+			Component comp = action.getComponent();
+			switch (action.getAction()) {
+			case HAS:
+				// Rule H1
+				setHas(comp, action.getVar(), 1);
+				break;
+			case RECEIVE:
+				for (Variable var : action.getVarSet()) {
+					// Rule H2
+					setHas(comp, var, 1);
+					// the sending component shares the variable
+					shares[index(comp(action.getComPartner()), variables.id(var), variables)] = true;
+				}
+				break;
+			case COMPUTE:
+				// Rules H3 and K1
+				setHas(comp, action.getEq().getLefthandSide(), 1);
+				setKnows(comp, action.getEq(), 1);
+				break;
+			case CHECK:
+				// Rule K2
+				for (Equation eq : action.getEqSet()) {
+					setKnows(comp, eq, 1);
+				}
+				break;
+			case VERIF_P:
+				for (P p : action.getPro().getpSet()) {
+					if (p instanceof Equation) {
+						// Rule K3
+						setKnows(comp, (Equation) p, 1);
+					} else if (p instanceof Attest
+							&& arch.trust(comp, ((Attest) p).getComponent())) {
+						// Rule K4
+						for (Equation eq : ((Attest) p).getEqSet()) {
+							setKnows(comp, eq, 1);
+						}
+					}
+				}
+				break;
+			case VERIF_A:
+				// Rule K5
+				if (arch.trust(comp, action.getAtt().getComponent())) {
+					for (Equation eq : action.getAtt().getEqSet()) {
+						setKnows(comp, eq, 1);
+					}
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that applies the dependence relations of a component until
+	 * no probability can be improved any more (Rule H4).
+	 *
+	 * @param comp
+	 *          the component
+	 */
+	private void applyDeps(Component comp) {
+		int row = comp(comp);
+		// every round fixes at least one more variable, so this terminates
+		for (int round = 0; round <= comp.getDepSet().size(); round++) {
+			boolean changed = false;
+			for (Dep dep : comp.getDepSet()) {
+				double prob = dep.getProb();
+				for (Variable var : dep.getVarSet()) {
+					prob *= has[index(row, variables.id(var), variables)];
+				}
+				int target = index(row, variables.id(dep.getVar()), variables);
+				if (prob > has[target]) {
+					has[target] = prob;
+					changed = true;
+				}
+			}
+			if (!changed) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that applies the deduction capability of a component until
+	 * no probability can be improved any more (Rule Kded).
+	 *
+	 * @param comp
+	 *          the component
+	 */
+	private void applyDeductions(Component comp) {
+		int row = comp(comp);
+		// every round fixes at least one more equation, so this terminates
+		for (int round = 0; round <= deductions.get(comp).size(); round++) {
+			boolean changed = false;
+			for (Deduction ded : deductions.get(comp)) {
+				double prob = ded.getProb();
+				for (Equation eq : ded.getPremises()) {
+					prob *= knows[index(row, equations.id(eq), equations)];
+				}
+				int target = index(row, equations.id(ded.getConclusion()), equations);
+				if (prob > knows[target]) {
+					knows[target] = prob;
+					changed = true;
+				}
+			}
+			if (!changed) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that applies the equality axioms by congruence closure over the
+	 * equations a component knows for sure, alternating with the other deductions
+	 * until no new equation is known.
+	 *
+	 * @param comp
+	 *          the component
+	 */
+	private void applyCongruence(Component comp) {
+		int row = comp(comp);
+		EGraph egraph = new EGraph();
+		boolean[] merged = new boolean[equations.size()];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int col = 0; col < equations.size(); col++) {
+				if (!merged[col] && knows[index(row, col, equations)] >= 1) {
+					merged[col] = true;
+					egraph.merge(equations.get(col));
+				}
+			}
+			for (int col = 0; col < equations.size(); col++) {
+				int pos = index(row, col, equations);
+				if (knows[pos] < 1 && !equations.get(col).isReflexive()
+						&& egraph.entails(equations.get(col))) {
+					knows[pos] = 1;
+					changed = true;
+				}
+			}
+			if (changed) {
+				applyDeductions(comp);
+			}
+		}
+	}
+
+	/**
+	 * Method that writes all three matrices into one CSV file with the columns
+	 * type, component, object and value.
+	 *
+	 * @param filePath
+	 *          the path of the file to write
+	 * @return true, if successful
+	 */
+	public boolean writeCsv(String filePath) {
+		try {
+			Files.write(Paths.get(filePath), toCsv().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Method that formats all three matrices as CSV with the columns
+	 * type, component, object and value.
+	 *
+	 * @return the CSV content
+	 */
+	public String toCsv() {
+		StringBuilder csv = new StringBuilder("type,component,object,value");
+		csv.append(System.lineSeparator());
+		for (int row = 0; row < components.size(); row++) {
+			String comp = quote(components.get(row).getName());
+			for (int col = 0; col < variables.size(); col++) {
+				csv.append("has,").append(comp).append(',').append(quote(variables.get(col).getName()))
+						.append(',').append(has[index(row, col, variables)]).append(System.lineSeparator());
+			}
+			for (int col = 0; col < equations.size(); col++) {
+				csv.append("knows,").append(comp).append(',').append(quote(equations.get(col).toString()))
+						.append(',').append(knows[index(row, col, equations)]).append(System.lineSeparator());
+			}
+			for (int col = 0; col < variables.size(); col++) {
+				csv.append("shares,").append(comp).append(',').append(quote(variables.get(col).getName()))
+						.append(',').append(shares[index(row, col, variables)] ? 1 : 0)
+						.append(System.lineSeparator());
+			}
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Helper method that quotes a CSV field.
+	 *
+	 * @param field
+	 *          the content of the field
+	 * @return the quoted field
+	 */
+	private static String quote(String field) {
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Helper method that adds a variable to the column ids if not already contained.
+	 *
+	 * @param var
+	 *          the variable
+	 */
+	private void addVariable(Variable var) {
+		if (var != null) {
+			variables.add(var);
+		}
+	}
+
+	/**
+	 * Helper method that adds an equation to the column ids if not already contained.
+	 *
+	 * @param eq
+	 *          the equation
+	 */
+	private void addEquation(Equation eq) {
+		if (eq != null) {
+			equations.add(eq);
+		}
+	}
+
+	private void setHas(Component comp, Variable var, double prob) {
+		int pos = index(comp(comp), variables.id(var), variables);
+		has[pos] = Math.max(has[pos], prob);
+	}
+
+	private void setKnows(Component comp, Equation eq, double prob) {
+		int pos = index(comp(comp), equations.id(eq), equations);
+		knows[pos] = Math.max(knows[pos], prob);
+	}
+
+	private int comp(Component comp) {
+		return components.id(comp);
+	}
+
+	private static int index(int row, int col, SymbolTable<?> columns) {
+		return row * columns.size() + col;
+	}
+
+	/**
+	 * Method to get the best probability with which a component has a variable.
+	 *
+	 * @param comp
+	 *          the component
+	 * @param var
+	 *          the variable
+	 * @return the probability, 0 if the component cannot have the variable
+	 */
+	public double getHas(Component comp, Variable var) {
+		int row = components.id(comp);
+		int col = variables.id(var);
+		return (row < 0 || col < 0) ? 0 : has[index(row, col, variables)];
+	}
+
+	/**
+	 * Method to get the best probability with which a component knows an equation.
+	 *
+	 * @param comp
+	 *          the component
+	 * @param eq
+	 *          the equation
+	 * @return the probability, 0 if the component cannot know the equation
+	 */
+	public double getKnows(Component comp, Equation eq) {
+		int row = components.id(comp);
+		int col = equations.id(eq);
+		return (row < 0 || col < 0) ? 0 : knows[index(row, col, equations)];
+	}
+
+	/**
+	 * Method to check if a component sends a variable to another component.
+	 *
+	 * @param comp
+	 *          the component
+	 * @param var
+	 *          the variable
+	 * @return true, if the variable is shared by the component
+	 */
+	public boolean getShares(Component comp, Variable var) {
+		int row = components.id(comp);
+		int col = variables.id(var);
+		return row >= 0 && col >= 0 && shares[index(row, col, variables)];
+	}
+
+	// getter methods
+	public List<Component> getComponents() {
+		return components.getElements();
+	}
+
+	public List<Variable> getVariables() {
+		return variables.getElements();
+	}
+
+	public List<Equation> getEquations() {
+		return equations.getElements();
+	}
+
+	public int getComponentId(Component comp) {
+		return components.id(comp);
+	}
+
+	public int getVariableId(Variable var) {
+		return variables.id(var);
+	}
+
+	public int getEquationId(Equation eq) {
+		return equations.id(eq);
+	}
+
+	public double[] getHasMatrix() {
+		return has;
+	}
+
+	public double[] getKnowsMatrix() {
+		return knows;
+	}
+
+	public boolean[] getSharesMatrix() {
+		return shares;
+	}
+}
@@ -1,12 +1,14 @@
 package properties;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import architecture.Action;
 import architecture.Architecture;
@@ -14,12 +16,11 @@ import architecture.Attest;
 import architecture.Component;
 import architecture.Deduction;
 import architecture.Dep;
+import architecture.EGraph;
 import architecture.Equation;
 import architecture.P;
 import architecture.Term;
 import architecture.Variable;
-import gui.Gui;
-import gui.Gui.MessageType;
 import properties.Property.PropertyType;
 import architecture.Action.ActionType;
 import utils.SuccessIndexPair;
@@ -40,7 +41,8 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 	// class fields
 	private Architecture arch;
 	private Map<Property, Boolean> resultHistory;
-	private List<Property> callHistory;
+	private transient ThreadLocal<List<Property>> callHistory;
+	private transient Map<Component, EGraph> egraphs;
 
 	/**
 	 * The constructor for this class. This already verifies the architecture for consistency.
@@ -49,26 +51,39 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 	 *          the architecture to parse
 	 */
 	public RulesOfInferenceParserBottomup(Architecture arch) {
+		this(arch, null);
+	}
+
+	/**
+	 * The constructor for this class. This already verifies the architecture for consistency
+	 * and reports the outcome to a listener.
+	 * 
+	 * @param arch
+	 *          the architecture to parse
+	 * @param listener
+	 *          the listener for the consistency check, or null
+	 */
+	public RulesOfInferenceParserBottomup(Architecture arch, VerificationListener listener) {
 		this.arch = arch;
-		resultHistory = new HashMap<Property, Boolean>();
-		callHistory = new ArrayList<Property>();
+		// the result history is shared by all threads verifying on this parser
+		resultHistory = new ConcurrentHashMap<Property, Boolean>();
+		callHistory = ThreadLocal.withInitial(ArrayList::new);
+		egraphs = new ConcurrentHashMap<Component, EGraph>();
 		SuccessIndexPair result = verifyArchitecture();
+		Action invalid = null;
 		if (!result.isSuccess()) {
 			// error?
+			invalid = new ArrayList<Action>(arch.getAllActions()).get(result.getIndex());
 			System.err.println("Warning: architecture not consistent!");
-			System.err.println("At least this action is not valid: "
-					+ new ArrayList<Action>(arch.getAllActions()).get(result.getIndex()));
+			System.err.println("At least this action is not valid: " + invalid);
 			System.err.println("All verification based on this architecture are not meaningful...");
-			Gui.showMessage(MessageType.ERR,
-					"Architecture is not consistent!\n" + "At least this action is not valid: "
-							+ new ArrayList<Action>(arch.getAllActions()).get(result.getIndex()) + "\n"
-							+ "All verification based on this architecture are not meaningful...");
 		} else {
 			// architecture is consistent
 			System.out.println(
 					"Architecture is consistent and can be used for verification of privacy properties");
-			Gui.showMessage(MessageType.INF,
-					"Architecture is consistent and can be used for verification of privacy properties");
+		}
+		if (listener != null) {
+			listener.consistencyChecked(arch, invalid);
 		}
 	}
 
@@ -120,16 +135,17 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 		// keep track of the owned variables/DBs for each component
 		boolean[][] variablesOwned = new boolean[arch.getCompList().size()][arch.getVariables().size()];
 		// go through list of actions and add owned variables and check used ones
-		for (Action action : actions) {
-			int actionIndex = actions.indexOf(action);
-			int compIndex = new ArrayList<Component>(arch.getCompList()).indexOf(action.getComponent());
+		for (int actionIndex = 0; actionIndex < actions.size(); actionIndex++) {
+			Action action = actions.get(actionIndex);
+			int compIndex = arch.getComponentId(action.getComponent());
+			int varIndex;
 			switch (action.getAction()) {
 			case CHECK:
 				for (Equation eq : action.getEqSet()) {
 					for (Term term : eq.getTermSet()) {
 						for (Variable var : term.getAtomSet()) {
-							if (new ArrayList<Variable>(arch.getVariables()).indexOf(var) < 0
-									|| !variablesOwned[compIndex][new ArrayList<Variable>(arch.getVariables()).indexOf(var)]) {
+							varIndex = arch.getVariableId(var);
+							if (varIndex < 0 || !variablesOwned[compIndex][varIndex]) {
 								// one of the used variables is not yet possessed by the
 								// component
 								return new SuccessIndexPair(false, actionIndex);
@@ -140,41 +156,39 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 				break;
 			case COMPUTE:
 				for (Variable var : action.getEq().getOp2().getAtomSet()) {
-					if (arch.getVariables().indexOf(var) < 0
-							|| !variablesOwned[compIndex][arch.getVariables().indexOf(var)]) {
+					varIndex = arch.getVariableId(var);
+					if (varIndex < 0 || !variablesOwned[compIndex][varIndex]) {
 						// one of the used variables is not yet possessed by the component
 						return new SuccessIndexPair(false, actionIndex);
 					}
 				}
 				// the variable is now owned
-				variablesOwned[compIndex][arch.getVariables().indexOf(
-						action.getEq().getLefthandSide())] = true;
+				variablesOwned[compIndex][arch.getVariableId(action.getEq().getLefthandSide())] = true;
 				break;
 			case DELETE:
 				// variable
-				if (arch.getVariables().indexOf(action.getVar()) < 0
-						|| !variablesOwned[compIndex][arch.getVariables().indexOf(action.getVar())]) {
+				varIndex = arch.getVariableId(action.getVar());
+				if (varIndex < 0 || !variablesOwned[compIndex][varIndex]) {
 					// the used variable is not yet possessed by the component
 					return new SuccessIndexPair(false, actionIndex);
 				}
 				break;
 			case HAS:
 				// the variable is now owned
-				variablesOwned[compIndex][arch.getVariables().indexOf(action.getVar())] = true;
+				variablesOwned[compIndex][arch.getVariableId(action.getVar())] = true;
 				break;
 			case RECEIVE:
 				// variables
+				int partnerIndex = arch.getComponentId(action.getComPartner());
 				for (Variable var : action.getVarSet()) {
-					if (arch.getVariables().indexOf(var) < 0
-							|| !variablesOwned[arch.getCompList().indexOf(
-									action.getComPartner())][arch.getVariables()
-									                         .indexOf(var)]) {
+					varIndex = arch.getVariableId(var);
+					if (varIndex < 0 || !variablesOwned[partnerIndex][varIndex]) {
 						// one of the used variables is not yet possessed by the sending
 						// component
 						return new SuccessIndexPair(false, actionIndex);
 					}
 					// the variable is now owned
-					variablesOwned[compIndex][arch.getVariables().indexOf(var)] = true;
+					variablesOwned[compIndex][varIndex] = true;
 				}
 				break;
 			case TRUST:
@@ -222,18 +236,18 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 		TraceBuffer.logMessage(
 				statement, "Current property to prove: " + statement, recurseDepth, LogType.START);
 		// recursion optimization: do not check the same statement twice
-		Boolean result = resultHistory.put(statement, null);
+		Boolean result = resultHistory.get(statement);
 		if (result != null) {
 			// return the cached value
-			resultHistory.put(statement, result);
 			String msg = "Current statement already checked: ";
 			msg += result ? "successfully verified" : "not successfully verified";
 			System.out.println(spacing + msg);
 			TraceBuffer.logMessage(statement, msg, recurseDepth, LogType.END);
 			return result;
 		}
-		if (!callHistory.contains(statement)) {
-			callHistory.add(statement);
+		List<Property> calls = getCallHistory();
+		if (!calls.contains(statement)) {
+			calls.add(statement);
 		} else { // break condition if in endless loop via substitution/transitivity
 			// this statement was already input but did not properly terminate (yet)
 			// thus it should not be evaluated again
@@ -291,8 +305,7 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 			// Rule H1
 			System.out.println(spacing + "Trying Rule H1...");
 			TraceBuffer.logMessage(statement, "Trying Rule H1...", recurseDepth, LogType.INFO);
-			if (arch.getAllActions().contains(new Action(
-					ActionType.HAS, statement.getOwner(), statement.getVar()))) {
+			if (isContainedHas(statement.getOwner(), statement.getVar())) {
 				resultHistory.put(statement, true);
 				System.out.println(spacing + "Rule H1 applied for statement: " + statement);
 				TraceBuffer.logMessage(statement, "Rule H1 applied for statement: "
@@ -351,8 +364,7 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 			// Rule K1
 			System.out.println(spacing + "Trying Rule K1...");
 			TraceBuffer.logMessage(statement, "Trying Rule K1...", recurseDepth, LogType.INFO);
-			if (arch.getAllActions().contains(new Action(
-					ActionType.COMPUTE, statement.getOwner(), statement.getEq()))) {
+			if (isContainedCompute(statement.getOwner(), statement.getEq())) {
 				resultHistory.put(statement, true);
 				System.out.println(spacing + "Rule K1 applied for statement: " + statement);
 				TraceBuffer.logMessage(statement, "Rule K1 applied for statement: "
@@ -636,6 +648,19 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 		return false;
 	}
 
+	/**
+	 * Helper method to check if the component computes the equation.
+	 * 
+	 * @param comp
+	 *          the acting component
+	 * @param eq
+	 *          the equation to look for
+	 * @return true, if there is a compute that fits
+	 */
+	private boolean isContainedCompute(Component comp, Equation eq) {
+		return arch.getAllActions().contains(new Action(ActionType.COMPUTE, comp, eq));
+	}
+
 	/**
 	 * Helper method to check if there is a fitting has in the action of the
 	 * architecture.
@@ -669,7 +694,7 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 	 */
 	private boolean isContainedDep(Component comp, Variable var, double prob, int recurseDepth) {
 		//TODO consider probabilities
-		for (Dep dep : comp.getDepSet()) {
+		for (Dep dep : arch.getComponent(comp).getDepSet()) {
 			if (dep.getVar().equals(var)) {
 				// check if all required variables are possessed
 				double allProbs = dep.getProb();
@@ -694,23 +719,48 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 	 * @return true, if there is a dep that fits
 	 */
 	private boolean isContainedDed(Component comp, Equation eq, double prob, int recurseDepth) {
+		// the owner of a property may be the edited component, not the one of the architecture
+		comp = arch.getComponent(comp);
+		if (comp.isCongruenceClosure() && !eq.isReflexive()
+				&& egraphs.computeIfAbsent(comp, this::buildEGraph).entails(eq)) {
+			// the equality follows from the equations the component knows without deductions
+			return true;
+		}
 		//TODO consider probabilities
-		for (Deduction ded : comp.getDeductionCapability()) {
-			if (ded.getConclusion().equals(eq)) {
-				// check if all required variables are possessed
-				double allProbs = ded.getProb();
-				for (Equation mustHave : ded.getPremises()) {
-					allProbs *= verifyKnowsProb(comp, mustHave, recurseDepth + 1);
-					if (allProbs < prob) {
-						break;
-					}
+		for (Deduction ded : comp.getDeductionsFor(eq)) {
+			// check if all required variables are possessed
+			double allProbs = ded.getProb();
+			for (Equation mustHave : ded.getPremises()) {
+				allProbs *= verifyKnowsProb(comp, mustHave, recurseDepth + 1);
+				if (allProbs < prob) {
+					break;
 				}
-				return true;
 			}
+			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Helper method that merges all equations a component knows by the rules K1 to
+	 * K5 into an e-graph.
+	 * 
+	 * @param comp
+	 *          the component
+	 * @return the e-graph of the component
+	 */
+	private EGraph buildEGraph(Component comp) {
+		EGraph egraph = new EGraph();
+		for (Equation eq : arch.getAllEquations()) {
+			if (isContainedCompute(comp, eq)
+					|| isContainedCheck(comp, eq) || isContainedProof(comp, eq)
+					|| isContainedProAtt(comp, eq) || isContainedAttest(comp, eq)) {
+				egraph.merge(eq);
+			}
+		}
+		return egraph;
+	}
+
 	/**
 	 * Helper method to check if there is a fitting check in the action of the
 	 * architecture.
@@ -811,6 +861,33 @@ public class RulesOfInferenceParserBottomup implements Parser, Serializable {
 		return false;
 	}
 
+	/**
+	 * Helper method to get the call history of the current thread.
+	 * The call history is only used to detect endless loops within one verification,
+	 * hence every thread keeps its own.
+	 *
+	 * @return the list of statements this thread already started to verify
+	 */
+	private List<Property> getCallHistory() {
+		return callHistory.get();
+	}
+
+	/**
+	 * Restores the transient call history after deserialization.
+	 *
+	 * @param in
+	 *          the stream to read from
+	 * @throws IOException
+	 *           if the stream cannot be read
+	 * @throws ClassNotFoundException
+	 *           if a class of a serialized object cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		callHistory = ThreadLocal.withInitial(ArrayList::new);
+		egraphs = new ConcurrentHashMap<Component, EGraph>();
+	}
+
 	// Setter and getter methods
 	public Architecture getArch() {
 		return arch;
@@ -1,8 +1,14 @@
 package properties;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import architecture.Action;
 import architecture.Architecture;
@@ -10,11 +16,11 @@ import architecture.Attest;
 import architecture.Component;
 import architecture.Deduction;
 import architecture.Dep;
+import architecture.EGraph;
 import architecture.Equation;
 import architecture.P;
 import architecture.Variable;
 import properties.Property.PropertyType;
-import architecture.Action.ActionType;
 import solver.SmtHandler;
 
 /**
@@ -30,10 +36,9 @@ public class RulesOfInferenceParserTopdown implements Parser, Serializable {
 
 	// class fields
 	private Architecture arch;
-	private List<Property> propertyList;
+	private FactStore facts;
 	private SmtHandler smt;
 	private int counter;
-	private List<Action> actionLog;
 
 	/**
 	 * The constructor that already collects all properties and generates all
@@ -45,32 +50,22 @@ public class RulesOfInferenceParserTopdown implements Parser, Serializable {
 	public RulesOfInferenceParserTopdown(Architecture arch) {
 		this.arch = arch;
 		counter = 0;
-		propertyList = new ArrayList<Property>();
-		actionLog = new ArrayList<Action>();
+		facts = new FactStore();
 		// Apply the rules to fill the Has, K and B property list
 		collectProperties();
 		// set the list of properties for the architecture and trigger the
 		// collection of equations
-		arch.setAllProperties(propertyList);
+		arch.setAllProperties(facts.getProperties());
 		arch.collectEquations();
 
 		// already produce the statements based on the architecture
-		// Apply the rules a second time to also apply the deduction properties
-		// based on later added equations
-		collectDeducProperties();
+		// Apply the deps and deductions until nothing new can be derived
+		saturate();
 		// instantiate the SMT-handler
 		smt = new SmtHandler(arch);
 		for (Component comp : arch.getCompList()) {
-			List<Property> compPropertyList = new ArrayList<Property>();
-			// sub-list with properties of one component only
-			for (Property prop : propertyList) {
-				if (prop.getOwner().equals(comp)) {
-					// add only the properties of the right component
-					compPropertyList.add(prop);
-				}
-			}
-			// add all necessary SMT-lines
-			smt.generateSmtfromPropList(comp, compPropertyList);
+			// add all necessary SMT-lines for the properties of this component
+			smt.generateSmtfromPropList(comp, facts.getProperties(comp));
 		}
 	}
 
@@ -121,7 +116,7 @@ public class RulesOfInferenceParserTopdown implements Parser, Serializable {
 						continue;
 					}
 					for (Variable var : action.getVarSet()) {
-						if (isContainedRec(action.getComPartner(), comp, var)) {
+						if (facts.isReceived(action.getComPartner(), comp, var)) {
 							// if this variable was shared more than once, it is considered
 							// as "SHARED" with a third party for the (second time) sharing
 							// component
@@ -185,216 +180,195 @@ public class RulesOfInferenceParserTopdown implements Parser, Serializable {
 				break;
 			}
 			// TODO good idea??
-			actionLog.add(action);
+			facts.logAction(action);
 		}
 
-		// Then go through the collected properties and apply the remaining rules
-		// for all components
-		// TODO complete
+		// Then apply the sharing rules for all components
 		for (Component comp : arch.getCompList()) {
-			// Rule H4
-			// add Has(i, p, X), for all l in [1,n], Has(i, q, Xl), Dep(i, r, X, Xl), p=r*mult(q)
-			//TODO
-			for (Dep dep : comp.getDepSet()) {
-				// for each dependence relation, check if all required variables are
-				// already in the property list
-				boolean all = true;
-				for (Variable var : dep.getVarSet()) {
-					// check if the variable is in the property list
-					if (!isContainedVar(comp, var, dep.getProb())) {
-						//TODO bullshit right here...
-						// Only if all variables are
-						all = false;
-						break;
-					}
-				}
-				if (all) {
-					// add the variable
-					addProperty(new Property(PropertyType.HAS, comp, dep.getProb(), dep.getVar()));
-				}
-			}
 			for (Variable var : arch.getVariables()) {
-				if (!isContainedReceive(comp, var)) {
+				if (!facts.isReceived(comp, var)) {
 					// Rule SH1
 					// add notShared(i, X)
 					addProperty(new Property(PropertyType.NOTSHARED, comp, var));
 				}
-				if (!isContainedReceive2(comp, var)) {
+				if (!facts.isSent(comp, var)) {
 					// Rule SH2
 					// add notShared(i, X)
 					addProperty(new Property(PropertyType.NOTSHARED, comp, var));
 				}
 			}
-			// Rule Kded
-			// add K(i, Eq1), Dedution(E, Eq1), for all Eq in E, K(i, Eq)
-			// TODO 
-			for (Deduction ded : comp.getDeductionCapability()) {
-				// only if the conclusion is something new
-				if (!isContainedEq(comp, ded.getConclusion(), ded.getProb())) {
-					boolean allK = true;
-					for (Equation eq : ded.getPremises()) {
-						// only if all equations are known
-						if (!isContainedEq(comp, eq, ded.getProb())) {
-							allK = false;
-						}
-						if (!(allK)) {
-							break;
-						}
-					}
-					if (allK) {
-						// add the equation
-						addProperty(new Property(PropertyType.KNOWS, comp, ded.getProb(), ded.getConclusion()));
-					}
-				}
-			}
 		}
 	}
 
 	/**
-	 * Helper method that only collects properties from deduction.
+	 * Helper method that applies the rules H4 and Kded until no new property can
+	 * be derived. Each new Has or K property only triggers the deps and deductions
+	 * that have it as a premise. With congruence closure, each new equation known
+	 * for sure is merged into an e-graph of the component instead of triggering the
+	 * equality axioms.
 	 */
-	private void collectDeducProperties() {
-		//TODO
+	private void saturate() {
+		// the equations of the architecture that an e-graph can derive
+		List<Equation> equalities = new ArrayList<Equation>();
+		for (Equation eq : arch.getAllEquations()) {
+			if (!eq.isReflexive()) {
+				equalities.add(eq);
+			}
+		}
 		for (Component comp : arch.getCompList()) {
-			for (Deduction ded : comp.getDeductionCapability()) {
-				// only if the conclusion is something new
-				if (!isContainedEq(comp, ded.getConclusion(), ded.getProb())) {
-					boolean allK = true;
-					for (Equation eq : ded.getPremises()) {
-						// only if all equations are known
-						if (!isContainedEq(comp, eq, ded.getProb())) {
-							allK = false;
-						}
-						if (!allK) {
-							break;
-						}
+			EGraph egraph = comp.isCongruenceClosure() ? new EGraph() : null;
+			// in lazy mode only the deductions for the equations of the architecture
+			Set<Deduction> deductions = comp.getRelevantDeductions(
+					new ArrayList<Equation>(arch.getAllEquations()));
+			// index the deps and deductions of the component by their premises
+			Map<Variable, List<Dep>> depIndex = new HashMap<Variable, List<Dep>>();
+			for (Dep dep : comp.getDepSet()) {
+				for (Variable var : dep.getVarSet()) {
+					depIndex.computeIfAbsent(var, k -> new ArrayList<Dep>()).add(dep);
+				}
+			}
+			Map<Equation, List<Deduction>> dedIndex = new HashMap<Equation, List<Deduction>>();
+			for (Deduction ded : deductions) {
+				for (Equation eq : ded.getPremises()) {
+					dedIndex.computeIfAbsent(eq, k -> new ArrayList<Deduction>()).add(ded);
+				}
+			}
+			// the rules without premises are applied once
+			for (Dep dep : comp.getDepSet()) {
+				if (dep.getVarSet().isEmpty()) {
+					applyDep(comp, dep);
+				}
+			}
+			for (Deduction ded : deductions) {
+				if (ded.getPremises().isEmpty()) {
+					applyDeduction(comp, ded);
+				}
+			}
+			// all properties of the component are premises that have not been processed yet
+			Deque<Property> worklist = new ArrayDeque<Property>(facts.getProperties(comp));
+			int processed = worklist.size();
+			while (!worklist.isEmpty()) {
+				Property prop = worklist.poll();
+				switch (prop.getType()) {
+				case HAS:
+					for (Dep dep : depIndex.getOrDefault(prop.getVar(), Collections.emptyList())) {
+						applyDep(comp, dep);
+					}
+					break;
+				case KNOWS:
+					for (Deduction ded : dedIndex.getOrDefault(prop.getEq(), Collections.emptyList())) {
+						applyDeduction(comp, ded);
 					}
-					if (allK) {
-						// add the equation
-						addProperty(new Property(PropertyType.KNOWS, comp, ded.getProb(), ded.getConclusion()));
+					if (egraph != null && prop.getProb() != null && prop.getProb() >= 1
+							&& egraph.merge(prop.getEq())) {
+						applyCongruence(comp, egraph, equalities);
 					}
+					break;
+				default:
+					break;
 				}
+				// enqueue the properties derived in the meantime
+				List<Property> compProps = facts.getProperties(comp);
+				worklist.addAll(compProps.subList(processed, compProps.size()));
+				processed = compProps.size();
 			}
 		}
 	}
 
 	/**
-	 * Method to check whether a variable is already in the property list.
+	 * Helper method that applies Rule H4 for a dep.
+	 * add Has(i, p, X), for all l in [1,n], Has(i, q, Xl), Dep(i, r, X, Xl), p=r*mult(q)
 	 * 
 	 * @param comp
-	 *          the owner of the variable
-	 * @param var
-	 *          the variable
-	 * @return true, if the variable is already in the property list (with the
-	 *         right owner)
+	 *          the component
+	 * @param dep
+	 *          the dep
 	 */
-	private boolean isContainedVar(Component comp, Variable var, double prob) {
-		// TODO 
-		// create temporary property to compare with list
-		Property tmpStmt = new Property(PropertyType.HAS, comp, prob, var);
-		for (Property stmt : propertyList) {
-			if (stmt.equals(tmpStmt)) {
-				return true;
+	private void applyDep(Component comp, Dep dep) {
+		//TODO p=r*mult(q)
+		for (Variable var : dep.getVarSet()) {
+			// check if the variable is in the property list
+			if (!isContainedVar(comp, var, dep.getProb())) {
+				// Only if all variables are
+				return;
 			}
 		}
-		return false;
+		// add the variable
+		addProperty(new Property(PropertyType.HAS, comp, dep.getProb(), dep.getVar()));
 	}
 
 	/**
-	 * Method to check whether an equation is already known.
+	 * Helper method that applies Rule Kded for a deduction.
+	 * add K(i, Eq1), Dedution(E, Eq1), for all Eq in E, K(i, Eq)
 	 * 
 	 * @param comp
-	 *          the owner of the statement
-	 * @param eq
-	 *          the equation
-	 * @param type
-	 *          knows
-	 * @return true, if the equation is known by the owner in the
-	 *         property list
+	 *          the component
+	 * @param ded
+	 *          the deduction
 	 */
-	private boolean isContainedEq(Component comp, Equation eq, double prob) {
-		// TODO
-		// create temporary property to compare with list
-		Property tmpStmt = new Property(PropertyType.KNOWS, comp, prob, eq);
-		boolean contained = false;
-		for (Property stmt : propertyList) {
-			if (stmt.equals(tmpStmt)) {
-				contained = true;
-				break;
+	private void applyDeduction(Component comp, Deduction ded) {
+		// only if the conclusion is something new
+		if (isContainedEq(comp, ded.getConclusion(), ded.getProb())) {
+			return;
+		}
+		for (Equation eq : ded.getPremises()) {
+			// only if all equations are known
+			if (!isContainedEq(comp, eq, ded.getProb())) {
+				return;
 			}
 		}
-		return contained;
+		// add the equation
+		addProperty(new Property(PropertyType.KNOWS, comp, ded.getProb(), ded.getConclusion()));
 	}
 
 	/**
-	 * Method to check in the action log whether a variable was already
-	 * transmitted between two components.
+	 * Helper method that applies the equality axioms by congruence closure.
+	 * add K(i, 1, Eq), Eq follows from the equations merged into the e-graph of i
 	 * 
 	 * @param comp
-	 *          the receiving component
-	 * @param compPartner
-	 *          the sending component
-	 * @param var
-	 *          the variable
-	 * @return true, if such an action was already processed
+	 *          the component
+	 * @param egraph
+	 *          the e-graph of the component
+	 * @param equalities
+	 *          the equations to check
 	 */
-	private boolean isContainedRec(Component comp, Component compPartner, Variable var) {
-		for (Action action : actionLog) {
-			if (action.getAction() == ActionType.RECEIVE) {
-				// only consider the ones with the correct sender/receiver pair
-				if (action.getComponent().equals(comp) && action.getComPartner().equals(compPartner)) {
-					// now check if the variable is contained in the list sent
-					if (action.getVarSet().contains(var)) {
-						return true;
-					}
-				}
+	private void applyCongruence(Component comp, EGraph egraph, List<Equation> equalities) {
+		double one = 1;
+		for (Equation eq : equalities) {
+			if (!isContainedEq(comp, eq, one) && egraph.entails(eq)) {
+				addProperty(new Property(PropertyType.KNOWS, comp, one, eq));
 			}
 		}
-		return false;
 	}
 
 	/**
-	 * Method to check in the action log whether a variable was already received
-	 * by a component.
+	 * Method to check whether a variable is already in the property list.
 	 * 
 	 * @param comp
-	 *          the receiving component
+	 *          the owner of the variable
 	 * @param var
 	 *          the variable
-	 * @return true, if such an action was already processed
+	 * @return true, if the variable is already in the property list (with the
+	 *         right owner and at least the given probability)
 	 */
-	private boolean isContainedReceive(Component comp, Variable var) {
-		for (Action action : actionLog) {
-			if (action.getAction() == ActionType.RECEIVE) {
-				// only consider the ones with the correct sender and variable
-				if (action.getComponent().equals(comp) && action.getVarSet().contains(var)) {
-					return true;
-				}
-			}
-		}
-		return false;
+	private boolean isContainedVar(Component comp, Variable var, double prob) {
+		return facts.containsHas(comp, var, prob);
 	}
 
 	/**
-	 * Method to check in the action log whether a variable was already sent by a
-	 * component.
+	 * Method to check whether an equation is already known.
 	 * 
 	 * @param comp
-	 *          the sending component
-	 * @param var
-	 *          the variable
-	 * @return true, if such an action was already processed
+	 *          the owner of the statement
+	 * @param eq
+	 *          the equation
+	 * @param type
+	 *          knows
+	 * @return true, if the equation is known by the owner in the
+	 *         property list (with at least the given probability)
 	 */
-	private boolean isContainedReceive2(Component comp, Variable var) {
-		for (Action action : actionLog) {
-			if (action.getAction() == ActionType.RECEIVE) {
-				// only consider the ones with the correct sender and variable
-				if (action.getComPartner().equals(comp) && action.getVarSet().contains(var)) {
-					return true;
-				}
-			}
-		}
-		return false;
+	private boolean isContainedEq(Component comp, Equation eq, double prob) {
+		return facts.containsKnows(comp, eq, prob);
 	}
 
 	/**
@@ -404,13 +378,24 @@ public class RulesOfInferenceParserTopdown implements Parser, Serializable {
 	 *          the property
 	 */
 	private void addProperty(Property prop) {
-		if (!propertyList.contains(prop)) {
-			propertyList.add(prop);
+		if (facts.add(prop)) {
 			// also update the list of equations of the arch
 			arch.addEquation(prop.getEq());
 		}
 	}
 
+	/**
+	 * Method to get the best probability with which the saturated facts derive a
+	 * has or knows property.
+	 * 
+	 * @param prop
+	 *          the property
+	 * @return the best probability, or null if the property is not derived
+	 */
+	public Double getBestProb(Property prop) {
+		return facts.getBestProb(prop);
+	}
+
 	// Setter and getter methods
 	public Architecture getArch() {
 		return arch;
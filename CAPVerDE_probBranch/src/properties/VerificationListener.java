@@ -0,0 +1,54 @@
+package properties;
+
+import architecture.Action;
+import architecture.Architecture;
+
+/**
+ * Callbacks of the verification engine, e.g., for a user interface. The engine does
+ * not depend on any user interface, it reports consistency warnings and progress
+ * to a listener instead. All methods do nothing by default.
+ */
+public interface VerificationListener {
+
+  /**
+   * Called after the consistency check of an architecture.
+   * @param arch
+   *          the architecture that was checked
+   * @param invalid
+   *          an action that is not valid in any order, or null if the architecture
+   *          is consistent
+   */
+  default void consistencyChecked(Architecture arch, Action invalid) {
+  }
+
+  /**
+   * Called when the result of a property is known. In a batch, this is called from
+   * the thread that verifies the batch, in the order the results become known.
+   * @param property
+   *          the property
+   * @param holds
+   *          true, if the property holds
+   * @param done
+   *          the number of properties with a result so far
+   * @param total
+   *          the number of properties to verify
+   */
+  default void propertyVerified(Property property, boolean holds, int done, int total) {
+  }
+
+  /**
+   * Called instead of {@link #propertyVerified(Property, boolean, int, int)} when a
+   * property could not be verified, e.g., because the solver could not be run.
+   * @param property
+   *          the property
+   * @param error
+   *          the reason
+   * @param done
+   *          the number of properties with a result so far
+   * @param total
+   *          the number of properties to verify
+   */
+  default void propertyFailed(Property property, String error, int done, int total) {
+  }
+
+}
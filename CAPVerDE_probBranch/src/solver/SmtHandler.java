@@ -171,17 +171,17 @@ public class SmtHandler implements Serializable {
     for (Property prop : compPropList) {
       switch (prop.getType()) {
         case HAS:
-          indexVar = arch.getVariables().indexOf(prop.getVar());
+          indexVar = arch.getVariableId(prop.getVar());
               hasAll[indexVar] = true;
         case KNOWS:
-          arch.addEquation(prop.getEq());
+          // the parser already added the equations of all properties to the architecture
           break;
         case NOTSHARED:
-          indexVar = arch.getVariables().indexOf(prop.getVar());
+          indexVar = arch.getVariableId(prop.getVar());
           notShared[indexVar] = true;
           break;
         case NOTSTORED:
-          indexVar = arch.getVariables().indexOf(prop.getVar());
+          indexVar = arch.getVariableId(prop.getVar());
           notStored[indexVar] = true;
           break;
         default:
@@ -198,7 +198,7 @@ public class SmtHandler implements Serializable {
       // go through properties a second time
       switch (prop.getType()) {
         case KNOWS:
-          indexEq = arch.getAllEquations().indexOf(prop.getEq());
+          indexEq = arch.getEquationId(prop.getEq());
           // set knowledge flag
           k[indexEq] = true;
           break;
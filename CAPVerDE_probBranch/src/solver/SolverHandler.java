@@ -3,11 +3,16 @@ package solver;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import properties.Property;
-import utils.FileHandler;
 import utils.TraceBuffer;
 import utils.TraceBuffer.LogType;
 
@@ -16,6 +21,11 @@ import utils.TraceBuffer.LogType;
  */
 public class SolverHandler {
 
+  // the solver processes that are running, so that they can be cancelled
+  private static final Set<Process> running = ConcurrentHashMap.newKeySet();
+  // whether the solver could not be run for a verification of the current thread
+  private static final ThreadLocal<Boolean> failed = ThreadLocal.withInitial(() -> false);
+
   // class fields
   private String solverPath;
   private String solverName;
@@ -31,9 +41,9 @@ public class SolverHandler {
    * @param solverName
    *          the name of the solver to exec
    * @param filePath
-   *          the path where the SMT2 file should be saved
+   *          the path where the SMT2 files should be saved
    * @param fileName
-   *          the name of the file to save as
+   *          the name the SMT2 files are derived from, each run writes its own file
    */
   public SolverHandler(String solverPath, String solverName, String filePath, String fileName) {
     this.solverPath = solverPath;
@@ -51,7 +61,8 @@ public class SolverHandler {
   }
 
   /**
-   * Method that runs the solver on the content of a string.
+   * Method that runs the solver on the content of a string. The content is written
+   * into a new file in the SMT2 path, which is deleted after the run.
    * 
    * @param buffer
    *          the string containing valid SMT lines
@@ -60,12 +71,43 @@ public class SolverHandler {
    * @return true, if successful
    */
   public boolean runSolver(String buffer, Property property) {
-    // create file handler
-    FileHandler file = new FileHandler(filePath, fileName);
-    byte[] lines = (buffer).getBytes();
+    if (filePath == null || fileName == null) {
+      // the config file could not be read
+      failed.set(true);
+      return false;
+    }
+    // each run has its own file, as verifications of other models may run the solver at once
+    int dot = fileName.lastIndexOf('.');
+    Path file;
+    try {
+      file = Files.createTempFile(Paths.get(filePath),
+          dot < 0 ? fileName : fileName.substring(0, dot), dot < 0 ? null : fileName.substring(dot));
+    } catch (IOException | InvalidPathException e) {
+      e.printStackTrace();
+      failed.set(true);
+      return false;
+    }
+    try {
+      return runSolver(file, buffer, property);
+    } finally {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
 
+  /**
+   * Helper method that writes the SMT lines into a file and runs the solver on it.
+   */
+  private boolean runSolver(Path file, String buffer, Property property) {
     // write into the file
-    if (!file.writeFile(lines)) {
+    try {
+      Files.write(file, buffer.getBytes());
+    } catch (IOException e) {
+      e.printStackTrace();
+      failed.set(true);
       return false;
     }
 
@@ -76,8 +118,21 @@ public class SolverHandler {
     try {
       Process mathsat;
       mathsat = Runtime.getRuntime().exec(
-          solverPath + solverName + " -input=smt2 " + filePath + fileName);
-      mathsat.waitFor();
+          solverPath + solverName + " -input=smt2 " + file);
+      running.add(mathsat);
+      try {
+        mathsat.waitFor();
+      } catch (InterruptedException e) {
+        // the verification was cancelled
+        running.remove(mathsat);
+        kill(mathsat);
+        throw e;
+      }
+      if (!running.remove(mathsat)) {
+        // killed by cancelAll
+        System.out.println("Solver cancelled");
+        return false;
+      }
       BufferedReader bufReader = new BufferedReader(
           new InputStreamReader(mathsat.getInputStream()));
       while ((line = bufReader.readLine()) != null) {
@@ -85,7 +140,12 @@ public class SolverHandler {
         history.add(line);
         lastLine = line;
       }
-      if (lastLine.equals("sat")) {
+      if (history.isEmpty() || lastLine.startsWith("(error")) {
+        // the solver did not answer, e.g., because the input or the config is wrong
+        System.out.println("The solver failed: " + lastLine);
+        failed.set(true);
+        return false;
+      } else if (lastLine.equals("sat")) {
         // Trace: pass on output
         System.out.println(lastLine);
         System.out.println("Property and Architecture are satisfiable");
@@ -97,14 +157,21 @@ public class SolverHandler {
         System.out.println("Property and Architecture are not satisfiable");
         return false;
       }
-    } catch (IOException | InterruptedException e) {
+    } catch (IOException e) {
       e.printStackTrace();
+      failed.set(true);
+      return false;
+    } catch (InterruptedException e) {
+      // keep the interrupt for the caller
+      Thread.currentThread().interrupt();
+      System.out.println("Solver cancelled");
       return false;
     }
     // Give more information
+    List<String> core = history.subList(Math.max(0, history.size() - 2), history.size());
     System.out.println(
         "The result was probably 'unsat', therefore the two conflicting statements are in:");
-    System.out.println(history.subList(history.size() - 2, history.size()));
+    System.out.println(core);
     System.out.println("Property and Architecture are probably not satisfiable");
     System.out.println("Property not proven!");
     // TODO trace
@@ -112,11 +179,51 @@ public class SolverHandler {
         property, "There is a conflict between an assertion and the property to prove: "
         + property, 0, LogType.START);
     TraceBuffer.logMessage(property, buffer, 0, LogType.INFO);
-    TraceBuffer.logMessage(property, "Unsat core: " + history.subList(history.size() - 2,
-        history.size()), 0, LogType.END);
+    TraceBuffer.logMessage(property, "Unsat core: " + core, 0, LogType.END);
     return false;
   }
 
+  /**
+   * Static method to forget the failures of the solver runs of the current thread,
+   * before a verification is started.
+   */
+  public static void resetFailure() {
+    failed.set(false);
+  }
+
+  /**
+   * Static method to check whether a solver run of the current thread failed since
+   * the last {@link #resetFailure()}, e.g., because the solver is not installed. Its
+   * result is not a verdict then.
+   * @return true, if the solver could not be run
+   */
+  public static boolean hasFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Static method that kills all running solver processes, e.g., when the user
+   * cancels the verification. The interrupted verifications do not hold.
+   */
+  public static void cancelAll() {
+    for (Process process : running) {
+      if (running.remove(process)) {
+        kill(process);
+      }
+    }
+  }
+
+  /**
+   * Helper method that kills a solver process, including the processes it started,
+   * e.g., if the solver is called by a script.
+   * @param process
+   *          the process
+   */
+  private static void kill(Process process) {
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
+
   // getter and setter methods
   public String getSolverPath() {
     return solverPath;
@@ -0,0 +1,1017 @@
+package utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import architecture.Action;
+import architecture.Action.ActionType;
+import architecture.Attest;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.DeductionCapability;
+import architecture.Dep;
+import architecture.DependenceRelation;
+import architecture.Equation;
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.P;
+import architecture.Proof;
+import architecture.Statement;
+import architecture.Term;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+import architecture.Trust;
+import architecture.Variable;
+import gui.ArchitectureFunctions;
+import properties.Property;
+import properties.Property.PropertyType;
+
+/**
+ * Class that reads and writes architectures in a compact binary format. Only the
+ * model the user edits is stored, i.e., the sets of the architecture functions,
+ * and not the architecture, the verifiers or their results, which are rebuilt by
+ * the next finish.
+ *
+ * <p>A file starts with the magic number "CAPV" and the version, followed by
+ * sections of a tag, the length of the payload and the payload. Readers skip
+ * sections with unknown tags, so later versions can add sections without breaking
+ * older readers, and the version is only increased for changes they cannot skip.
+ * Strings, variables, terms, equations, components, statements, deductions and
+ * properties are written once into pools, and everything else refers to them by
+ * their index plus one (zero is null). Objects are pooled by identity, just like
+ * with Java serialization, and a pool only refers to earlier entries.
+ */
+public final class ArchFormat {
+
+	// the magic number "CAPV" at the start of every file
+	private static final int MAGIC = 0x43415056;
+	/**
+	 * The version of the format that is written.
+	 */
+	public static final int VERSION = 1;
+
+	// the section tags, never reuse or renumber them
+	private static final int END = 0;
+	private static final int STRINGS = 1;
+	private static final int VARIABLES = 2;
+	private static final int TERMS = 3;
+	private static final int EQUATIONS = 4;
+	private static final int COMPONENTS = 5;
+	private static final int STATEMENTS = 6;
+	private static final int DEDUCTIONS = 7;
+	private static final int PROPERTIES = 8;
+	private static final int COMPONENT_SET = 9;
+	private static final int VARIABLE_SET = 10;
+	private static final int TERM_SET = 11;
+	private static final int EQUATION_SET = 12;
+	private static final int STATEMENT_SET = 13;
+	private static final int DEDUCTION_SET = 14;
+	private static final int PROPERTY_SET = 15;
+	private static final int TRUSTS = 16;
+	private static final int ACTIONS = 17;
+	private static final int DEPS = 18;
+	private static final int CAPABILITIES = 19;
+	private static final int OPTIONS = 20;
+
+	// the kinds of statements and proven objects
+	private static final int ATTEST = 0;
+	private static final int PROOF = 1;
+	private static final int EQUATION = 2;
+
+	// the size of the buffers between the model and the file
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private ArchFormat() {
+		// only static methods
+	}
+
+	/**
+	 * Method that writes the model of the architecture functions to a file.
+	 *
+	 * @param archFunc
+	 *          the architecture functions
+	 * @param path
+	 *          the file, which is replaced if it exists
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	public static void write(ArchitectureFunctions archFunc, Path path) throws IOException {
+		Pools pools = new Pools();
+		pools.index(archFunc);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output out = new Output(channel);
+			out.writeInt(MAGIC);
+			out.writeVarint(VERSION);
+			pools.write(out, archFunc);
+			out.writeVarint(END);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Method that reads the model of new architecture functions from a file. The
+	 * architecture is not finished yet.
+	 *
+	 * @param path
+	 *          the file
+	 * @return the architecture functions
+	 * @throws IOException
+	 *           if the file cannot be read or is not in this format
+	 */
+	public static ArchitectureFunctions read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			Input in = new Input(channel);
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not an architecture file: " + path);
+			}
+			int version = in.readVarint();
+			if (version > VERSION) {
+				throw new IOException("Unsupported version " + version + " of " + path);
+			}
+			return new Decoder(in).read();
+		}
+	}
+
+	/**
+	 * The pools of all objects of a model in the order they are written, each
+	 * entry after the entries it refers to.
+	 */
+	private static final class Pools {
+
+		// strings are pooled by equality, everything else by identity
+		private final Pool<String> strings = new Pool<String>(false);
+		private final Pool<Variable> variables = new Pool<Variable>(true);
+		private final Pool<Term> terms = new Pool<Term>(true);
+		private final Pool<Equation> equations = new Pool<Equation>(true);
+		private final Pool<Component> components = new Pool<Component>(true);
+		private final Pool<Statement> statements = new Pool<Statement>(true);
+		private final Pool<Deduction> deductions = new Pool<Deduction>(true);
+		private final Pool<Property> properties = new Pool<Property>(true);
+
+		/**
+		 * Method that adds everything the model refers to into the pools.
+		 */
+		private void index(ArchitectureFunctions archFunc) {
+			for (Component comp : archFunc.getcSet()) {
+				component(comp);
+			}
+			for (Variable var : archFunc.getvSet()) {
+				variable(var);
+			}
+			for (Term term : archFunc.gettSet()) {
+				term(term);
+			}
+			for (Equation eq : archFunc.geteSet()) {
+				equation(eq);
+			}
+			for (Statement st : archFunc.getstSet()) {
+				statement(st);
+			}
+			for (Deduction deduc : archFunc.getDeducs()) {
+				deduction(deduc);
+			}
+			for (Property prop : archFunc.getpSet()) {
+				property(prop);
+			}
+			for (Trust trust : archFunc.gettrustSet()) {
+				component(trust.getTruster());
+				component(trust.getTrustee());
+				variables(trust.getVars());
+			}
+			for (Action action : archFunc.getaSet()) {
+				component(action.getComponent());
+				variable(action.getVar());
+				equation(action.getEq());
+				component(action.getComPartner());
+				variables(action.getVarSet());
+				if (action.getEqSet() != null) {
+					for (Equation eq : action.getEqSet()) {
+						equation(eq);
+					}
+				}
+				if (action.getStSet() != null) {
+					for (Statement st : action.getStSet()) {
+						statement(st);
+					}
+				}
+				statement(action.getPro());
+				statement(action.getAtt());
+			}
+			for (DependenceRelation dr : archFunc.getdSet()) {
+				component(dr.getComp());
+				variable(dr.getDep().getVar());
+				variables(dr.getDep().getVarSet());
+			}
+			for (DeductionCapability ded : archFunc.getdedSet()) {
+				component(ded.getComp());
+				for (Deduction deduc : ded.getDeducSet()) {
+					deduction(deduc);
+				}
+			}
+		}
+
+		private void string(String string) {
+			if (string != null) {
+				strings.add(string);
+			}
+		}
+
+		private void variable(Variable var) {
+			if (var != null && !variables.contains(var)) {
+				string(var.getName());
+				variables.add(var);
+			}
+		}
+
+		private void variables(Set<Variable> vars) {
+			if (vars != null) {
+				for (Variable var : vars) {
+					variable(var);
+				}
+			}
+		}
+
+		private void component(Component comp) {
+			if (comp != null && !components.contains(comp)) {
+				string(comp.getName());
+				components.add(comp);
+			}
+		}
+
+		private void term(Term term) {
+			if (term == null || terms.contains(term)) {
+				return;
+			}
+			variable(term.getAtom());
+			string(term.getFuncName());
+			term(term.getT1());
+			term(term.getT2());
+			term(term.getT3());
+			terms.add(term);
+		}
+
+		private void equation(Equation eq) {
+			if (eq == null || equations.contains(eq)) {
+				return;
+			}
+			string(eq.getName());
+			term(eq.getOp1());
+			term(eq.getOp2());
+			equation(eq.getEq1());
+			equation(eq.getEq2());
+			equations.add(eq);
+		}
+
+		private void statement(Statement st) {
+			if (st == null || statements.contains(st)) {
+				return;
+			}
+			if (st instanceof Attest) {
+				Attest att = (Attest) st;
+				component(att.getComponent());
+				for (Equation eq : att.getEqSet()) {
+					equation(eq);
+				}
+			} else {
+				Proof pro = (Proof) st;
+				component(pro.getComponent());
+				for (P p : pro.getpSet()) {
+					if (p instanceof Attest) {
+						statement((Attest) p);
+					} else {
+						equation((Equation) p);
+					}
+				}
+			}
+			statements.add(st);
+		}
+
+		private void deduction(Deduction deduc) {
+			if (deduc == null || deductions.contains(deduc)) {
+				return;
+			}
+			string(deduc.getName());
+			for (Equation eq : deduc.getPremises()) {
+				equation(eq);
+			}
+			equation(deduc.getConclusion());
+			deductions.add(deduc);
+		}
+
+		private void property(Property prop) {
+			if (prop == null || properties.contains(prop)) {
+				return;
+			}
+			component(prop.getOwner());
+			variable(prop.getVar());
+			equation(prop.getEq());
+			property(prop.getSt1());
+			property(prop.getSt2());
+			properties.add(prop);
+		}
+
+		/**
+		 * Method that writes the pools and then the sets of the model.
+		 */
+		private void write(Output out, ArchitectureFunctions archFunc) throws IOException {
+			out.beginSection(STRINGS);
+			out.writeVarint(strings.size());
+			for (String string : strings.elements) {
+				out.writeString(string);
+			}
+			out.endSection();
+
+			out.beginSection(VARIABLES);
+			out.writeVarint(variables.size());
+			for (Variable var : variables.elements) {
+				out.writeVarint(strings.ref(var.getName()));
+				out.writeByte(var.isEncrypted() ? 1 : 0);
+			}
+			out.endSection();
+
+			out.beginSection(TERMS);
+			out.writeVarint(terms.size());
+			for (Term term : terms.elements) {
+				out.writeByte(term.getType().ordinal());
+				out.writeByte(term.isMatchVar() ? 1 : 0);
+				if (term.getType() == TermType.ATOM) {
+					out.writeVarint(variables.ref(term.getAtom()));
+				} else {
+					out.writeByte(term.getOpType().ordinal());
+					out.writeByte(term.getOp().ordinal());
+					out.writeVarint(strings.ref(term.getFuncName()));
+					out.writeVarint(terms.ref(term.getT1()));
+					out.writeVarint(terms.ref(term.getT2()));
+					out.writeVarint(terms.ref(term.getT3()));
+				}
+			}
+			out.endSection();
+
+			out.beginSection(EQUATIONS);
+			out.writeVarint(equations.size());
+			for (Equation eq : equations.elements) {
+				out.writeVarint(strings.ref(eq.getName()));
+				out.writeByte(eq.getType().ordinal());
+				switch (eq.getType()) {
+				case RELATION:
+					out.writeByte(eq.getRel().ordinal());
+					out.writeVarint(terms.ref(eq.getOp1()));
+					out.writeVarint(terms.ref(eq.getOp2()));
+					break;
+				case CONJUNCTION:
+					out.writeVarint(equations.ref(eq.getEq1()));
+					out.writeVarint(equations.ref(eq.getEq2()));
+					break;
+				default:
+					break;
+				}
+			}
+			out.endSection();
+
+			out.beginSection(COMPONENTS);
+			out.writeVarint(components.size());
+			for (Component comp : components.elements) {
+				out.writeVarint(strings.ref(comp.getName()));
+			}
+			out.endSection();
+
+			out.beginSection(STATEMENTS);
+			out.writeVarint(statements.size());
+			for (Statement st : statements.elements) {
+				if (st instanceof Attest) {
+					Attest att = (Attest) st;
+					out.writeByte(ATTEST);
+					out.writeVarint(components.ref(att.getComponent()));
+					writeRefs(out, equations, att.getEqSet());
+				} else {
+					Proof pro = (Proof) st;
+					out.writeByte(PROOF);
+					out.writeVarint(components.ref(pro.getComponent()));
+					out.writeVarint(pro.getpSet().size());
+					for (P p : pro.getpSet()) {
+						if (p instanceof Attest) {
+							out.writeByte(ATTEST);
+							out.writeVarint(statements.ref((Attest) p));
+						} else {
+							out.writeByte(EQUATION);
+							out.writeVarint(equations.ref((Equation) p));
+						}
+					}
+				}
+			}
+			out.endSection();
+
+			out.beginSection(DEDUCTIONS);
+			out.writeVarint(deductions.size());
+			for (Deduction deduc : deductions.elements) {
+				out.writeByte(deduc.getType().ordinal());
+				out.writeVarint(strings.ref(deduc.getName()));
+				out.writeDouble(deduc.getProb());
+				writeRefs(out, equations, deduc.getPremises());
+				out.writeVarint(equations.ref(deduc.getConclusion()));
+			}
+			out.endSection();
+
+			out.beginSection(PROPERTIES);
+			out.writeVarint(properties.size());
+			for (Property prop : properties.elements) {
+				out.writeByte(prop.getType().ordinal());
+				out.writeVarint(components.ref(prop.getOwner()));
+				out.writeByte(prop.getProb() == null ? 0 : 1);
+				if (prop.getProb() != null) {
+					out.writeDouble(prop.getProb());
+				}
+				out.writeByte(prop.getBound() == null ? 0 : 1);
+				if (prop.getBound() != null) {
+					out.writeVarint(prop.getBound());
+				}
+				out.writeVarint(variables.ref(prop.getVar()));
+				out.writeVarint(equations.ref(prop.getEq()));
+				out.writeVarint(properties.ref(prop.getSt1()));
+				out.writeVarint(properties.ref(prop.getSt2()));
+			}
+			out.endSection();
+
+			writeSet(out, COMPONENT_SET, components, archFunc.getcSet());
+			writeSet(out, VARIABLE_SET, variables, archFunc.getvSet());
+			writeSet(out, TERM_SET, terms, archFunc.gettSet());
+			writeSet(out, EQUATION_SET, equations, archFunc.geteSet());
+			writeSet(out, STATEMENT_SET, statements, archFunc.getstSet());
+			writeSet(out, DEDUCTION_SET, deductions, archFunc.getDeducs());
+			writeSet(out, PROPERTY_SET, properties, archFunc.getpSet());
+
+			out.beginSection(TRUSTS);
+			out.writeVarint(archFunc.gettrustSet().size());
+			for (Trust trust : archFunc.gettrustSet()) {
+				out.writeVarint(components.ref(trust.getTruster()));
+				out.writeVarint(components.ref(trust.getTrustee()));
+				writeRefs(out, variables, trust.getVars());
+			}
+			out.endSection();
+
+			out.beginSection(ACTIONS);
+			out.writeVarint(archFunc.getaSet().size());
+			for (Action action : archFunc.getaSet()) {
+				out.writeByte(action.getAction().ordinal());
+				out.writeVarint(components.ref(action.getComponent()));
+				out.writeVarint(variables.ref(action.getVar()));
+				out.writeVarint(equations.ref(action.getEq()));
+				out.writeVarint(components.ref(action.getComPartner()));
+				writeRefs(out, variables, action.getVarSet());
+				writeRefs(out, equations, action.getEqSet());
+				writeRefs(out, statements, action.getStSet());
+				out.writeVarint(statements.ref(action.getPro()));
+				out.writeVarint(statements.ref(action.getAtt()));
+			}
+			out.endSection();
+
+			out.beginSection(DEPS);
+			out.writeVarint(archFunc.getdSet().size());
+			for (DependenceRelation dr : archFunc.getdSet()) {
+				out.writeVarint(components.ref(dr.getComp()));
+				out.writeVarint(variables.ref(dr.getDep().getVar()));
+				writeRefs(out, variables, dr.getDep().getVarSet());
+				out.writeDouble(dr.getDep().getProb());
+			}
+			out.endSection();
+
+			out.beginSection(CAPABILITIES);
+			out.writeVarint(archFunc.getdedSet().size());
+			for (DeductionCapability ded : archFunc.getdedSet()) {
+				out.writeVarint(components.ref(ded.getComp()));
+				writeRefs(out, deductions, ded.getDeducSet());
+			}
+			out.endSection();
+
+			out.beginSection(OPTIONS);
+			out.writeVarint((archFunc.isLazyDeduction() ? 1 : 0)
+					| (archFunc.isCongruenceClosure() ? 2 : 0));
+			out.endSection();
+		}
+
+		private static <T> void writeSet(Output out, int tag, Pool<T> pool, Set<? extends T> set)
+				throws IOException {
+			out.beginSection(tag);
+			writeRefs(out, pool, set);
+			out.endSection();
+		}
+
+		/**
+		 * Helper method that writes a set as its size plus one (zero is null) and the
+		 * references of its elements.
+		 */
+		private static <T> void writeRefs(Output out, Pool<T> pool, Set<? extends T> set)
+				throws IOException {
+			if (set == null) {
+				out.writeVarint(0);
+				return;
+			}
+			out.writeVarint(set.size() + 1);
+			for (T element : set) {
+				out.writeVarint(pool.ref(element));
+			}
+		}
+	}
+
+	/**
+	 * The decoder of the sections of a file into a new model.
+	 */
+	private static final class Decoder {
+
+		private final Input in;
+		private String[] strings = new String[0];
+		private Variable[] variables = new Variable[0];
+		private Term[] terms = new Term[0];
+		private Equation[] equations = new Equation[0];
+		private Component[] components = new Component[0];
+		private Statement[] statements = new Statement[0];
+		private Deduction[] deductions = new Deduction[0];
+		private Property[] properties = new Property[0];
+
+		private Decoder(Input in) {
+			this.in = in;
+		}
+
+		private ArchitectureFunctions read() throws IOException {
+			ArchitectureFunctions archFunc = new ArchitectureFunctions();
+			Set<Component> cSet = new LinkedHashSet<Component>();
+			Set<Variable> vSet = new LinkedHashSet<Variable>();
+			Set<Term> tSet = new LinkedHashSet<Term>();
+			Set<Equation> eSet = new LinkedHashSet<Equation>();
+			Set<Statement> stSet = new LinkedHashSet<Statement>();
+			Set<Property> pSet = new LinkedHashSet<Property>();
+			Set<Trust> trustSet = new LinkedHashSet<Trust>();
+			Set<Action> aSet = new LinkedHashSet<Action>();
+			Set<DependenceRelation> dSet = new LinkedHashSet<DependenceRelation>();
+			Set<DeductionCapability> dedSet = new LinkedHashSet<DeductionCapability>();
+			for (int tag = in.readVarint(); tag != END; tag = in.readVarint()) {
+				long end = in.readInt() + in.position();
+				switch (tag) {
+				case STRINGS:
+					strings = new String[in.readVarint()];
+					for (int i = 0; i < strings.length; i++) {
+						strings[i] = in.readString();
+					}
+					break;
+				case VARIABLES:
+					variables = new Variable[in.readVarint()];
+					for (int i = 0; i < variables.length; i++) {
+						variables[i] = new Variable(ref(strings, in.readVarint()), in.readByte() == 1);
+					}
+					break;
+				case TERMS:
+					terms = new Term[in.readVarint()];
+					for (int i = 0; i < terms.length; i++) {
+						terms[i] = readTerm();
+					}
+					break;
+				case EQUATIONS:
+					equations = new Equation[in.readVarint()];
+					for (int i = 0; i < equations.length; i++) {
+						equations[i] = readEquation();
+					}
+					break;
+				case COMPONENTS:
+					components = new Component[in.readVarint()];
+					for (int i = 0; i < components.length; i++) {
+						components[i] = new Component(ref(strings, in.readVarint()));
+					}
+					break;
+				case STATEMENTS:
+					statements = new Statement[in.readVarint()];
+					for (int i = 0; i < statements.length; i++) {
+						statements[i] = readStatement();
+					}
+					break;
+				case DEDUCTIONS:
+					deductions = new Deduction[in.readVarint()];
+					for (int i = 0; i < deductions.length; i++) {
+						Deduction.Type type = constant(Deduction.Type.values(), in.readByte());
+						String name = ref(strings, in.readVarint());
+						double prob = in.readDouble();
+						Set<Equation> premises = readRefs(equations);
+						deductions[i] = new Deduction(type, premises, ref(equations, in.readVarint()),
+								name, prob);
+					}
+					break;
+				case PROPERTIES:
+					properties = new Property[in.readVarint()];
+					for (int i = 0; i < properties.length; i++) {
+						properties[i] = readProperty();
+					}
+					break;
+				case COMPONENT_SET:
+					cSet = readRefs(components);
+					break;
+				case VARIABLE_SET:
+					vSet = readRefs(variables);
+					break;
+				case TERM_SET:
+					tSet = readRefs(terms);
+					break;
+				case EQUATION_SET:
+					eSet = readRefs(equations);
+					break;
+				case STATEMENT_SET:
+					stSet = readRefs(statements);
+					break;
+				case DEDUCTION_SET:
+					archFunc.getDeducs().clear();
+					archFunc.getDeducs().addAll(readRefs(deductions));
+					break;
+				case PROPERTY_SET:
+					pSet = readRefs(properties);
+					break;
+				case TRUSTS:
+					for (int i = in.readVarint(); i > 0; i--) {
+						Component truster = ref(components, in.readVarint());
+						Component trustee = ref(components, in.readVarint());
+						trustSet.add(new Trust(truster, trustee, readRefs(variables)));
+					}
+					break;
+				case ACTIONS:
+					for (int i = in.readVarint(); i > 0; i--) {
+						aSet.add(readAction());
+					}
+					break;
+				case DEPS:
+					for (int i = in.readVarint(); i > 0; i--) {
+						Component comp = ref(components, in.readVarint());
+						Variable var = ref(variables, in.readVarint());
+						Set<Variable> premises = readRefs(variables);
+						dSet.add(new DependenceRelation(comp, new Dep(var, premises, in.readDouble())));
+					}
+					break;
+				case CAPABILITIES:
+					for (int i = in.readVarint(); i > 0; i--) {
+						Component comp = ref(components, in.readVarint());
+						dedSet.add(new DeductionCapability(comp, readRefs(deductions)));
+					}
+					break;
+				case OPTIONS:
+					int options = in.readVarint();
+					archFunc.setLazyDeduction((options & 1) != 0);
+					archFunc.setCongruenceClosure((options & 2) != 0);
+					break;
+				default:
+					// a section of a later version
+					break;
+				}
+				if (in.position() > end) {
+					throw new IOException("Section " + tag + " is longer than its length");
+				}
+				in.skip(end - in.position());
+			}
+			// set all the necessary lists, just like the ArchLoader
+			archFunc.setcSet(cSet);
+			archFunc.setvSet(vSet);
+			archFunc.settSet(tSet);
+			archFunc.seteSet(eSet);
+			archFunc.settrustSet(trustSet);
+			archFunc.setstSet(stSet);
+			archFunc.setaSet(aSet);
+			archFunc.setdSet(dSet);
+			archFunc.setdedSet(dedSet);
+			archFunc.setpSet(pSet);
+			return archFunc;
+		}
+
+		private Term readTerm() throws IOException {
+			TermType type = constant(TermType.values(), in.readByte());
+			boolean matchVar = in.readByte() == 1;
+			if (type == TermType.ATOM) {
+				return Term.of(type, ref(variables, in.readVarint()), matchVar);
+			}
+			OperatorType opType = constant(OperatorType.values(), in.readByte());
+			Operator op = constant(Operator.values(), in.readByte());
+			String funcName = ref(strings, in.readVarint());
+			Term t1 = ref(terms, in.readVarint());
+			Term t2 = ref(terms, in.readVarint());
+			Term t3 = ref(terms, in.readVarint());
+			switch (opType) {
+			case UNARY:
+				return Term.of(type, opType, op, funcName, t1, matchVar);
+			case BINARY:
+				return Term.of(type, opType, op, funcName, t1, t2, matchVar);
+			default:
+				return Term.of(type, opType, op, funcName, t1, t2, t3, matchVar);
+			}
+		}
+
+		private Equation readEquation() throws IOException {
+			String name = ref(strings, in.readVarint());
+			Type type = constant(Type.values(), in.readByte());
+			switch (type) {
+			case RELATION:
+				Relation rel = constant(Relation.values(), in.readByte());
+				Term op1 = ref(terms, in.readVarint());
+				return new Equation(name, type, rel, op1, ref(terms, in.readVarint()));
+			case CONJUNCTION:
+				Equation eq1 = ref(equations, in.readVarint());
+				return new Equation(name, type, eq1, ref(equations, in.readVarint()));
+			default:
+				return new Equation(name);
+			}
+		}
+
+		private Statement readStatement() throws IOException {
+			int kind = in.readByte();
+			Component comp = ref(components, in.readVarint());
+			if (kind == ATTEST) {
+				return new Attest(comp, readRefs(equations));
+			}
+			Set<P> pSet = new LinkedHashSet<P>();
+			for (int i = in.readVarint(); i > 0; i--) {
+				if (in.readByte() == ATTEST) {
+					pSet.add((Attest) ref(statements, in.readVarint()));
+				} else {
+					pSet.add(ref(equations, in.readVarint()));
+				}
+			}
+			return new Proof(comp, pSet);
+		}
+
+		private Property readProperty() throws IOException {
+			PropertyType type = constant(PropertyType.values(), in.readByte());
+			Component owner = ref(components, in.readVarint());
+			Double prob = in.readByte() == 1 ? in.readDouble() : null;
+			Integer bound = in.readByte() == 1 ? in.readVarint() : null;
+			Variable var = ref(variables, in.readVarint());
+			Equation eq = ref(equations, in.readVarint());
+			Property st1 = ref(properties, in.readVarint());
+			Property st2 = ref(properties, in.readVarint());
+			return new Property(type, owner, prob, bound, var, eq, st1, st2);
+		}
+
+		private Action readAction() throws IOException {
+			ActionType type = constant(ActionType.values(), in.readByte());
+			Component comp = ref(components, in.readVarint());
+			Variable var = ref(variables, in.readVarint());
+			Equation eq = ref(equations, in.readVarint());
+			Component partner = ref(components, in.readVarint());
+			Set<Variable> varSet = readRefs(variables);
+			Set<Equation> eqSet = readRefs(equations);
+			Set<Statement> stSet = readRefs(statements);
+			Proof pro = (Proof) ref(statements, in.readVarint());
+			Attest att = (Attest) ref(statements, in.readVarint());
+			return new Action(type, comp, var, eq, partner, varSet, eqSet, stSet, pro, att);
+		}
+
+		private <T> Set<T> readRefs(T[] pool) throws IOException {
+			int size = in.readVarint() - 1;
+			if (size < 0) {
+				return null;
+			}
+			Set<T> set = new LinkedHashSet<T>();
+			for (int i = 0; i < size; i++) {
+				set.add(ref(pool, in.readVarint()));
+			}
+			return set;
+		}
+
+		private static <T> T ref(T[] pool, int ref) throws IOException {
+			if (ref == 0) {
+				return null;
+			}
+			if (ref < 0 || ref > pool.length) {
+				throw new IOException("Reference " + ref + " outside of a pool of size " + pool.length);
+			}
+			return pool[ref - 1];
+		}
+
+		private static <E> E constant(E[] values, int ordinal) throws IOException {
+			if (ordinal < 0 || ordinal >= values.length) {
+				throw new IOException("Unknown constant " + ordinal + " of " + values[0].getClass());
+			}
+			return values[ordinal];
+		}
+	}
+
+	/**
+	 * A pool of objects with their references, i.e., the index plus one.
+	 */
+	private static final class Pool<T> {
+
+		private final List<T> elements = new ArrayList<T>();
+		private final Map<T, Integer> refs;
+
+		private Pool(boolean byIdentity) {
+			refs = byIdentity ? new IdentityHashMap<T, Integer>() : new HashMap<T, Integer>();
+		}
+
+		private boolean contains(T element) {
+			return refs.containsKey(element);
+		}
+
+		private void add(T element) {
+			if (!refs.containsKey(element)) {
+				elements.add(element);
+				refs.put(element, elements.size());
+			}
+		}
+
+		private int ref(T element) {
+			if (element == null) {
+				return 0;
+			}
+			Integer ref = refs.get(element);
+			if (ref == null) {
+				throw new IllegalStateException("Not indexed: " + element);
+			}
+			return ref;
+		}
+
+		private int size() {
+			return elements.size();
+		}
+	}
+
+	/**
+	 * Buffered output to a file channel. The lengths of sections are filled in
+	 * when they end.
+	 */
+	private static final class Output {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long lengthPosition;
+
+		private Output(FileChannel channel) {
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		private void writeByte(int value) throws IOException {
+			ensure(1);
+			buffer.put((byte) value);
+		}
+
+		private void writeInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		private void writeDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		private void writeVarint(int value) throws IOException {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		private void writeString(String string) throws IOException {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			if (bytes.length > buffer.capacity()) {
+				flush();
+				ByteBuffer large = ByteBuffer.wrap(bytes);
+				while (large.hasRemaining()) {
+					channel.write(large);
+				}
+			} else {
+				ensure(bytes.length);
+				buffer.put(bytes);
+			}
+		}
+
+		private void beginSection(int tag) throws IOException {
+			writeVarint(tag);
+			ensure(4);
+			lengthPosition = channel.position() + buffer.position();
+			// the length is filled in at the end of the section
+			buffer.putInt(0);
+		}
+
+		private void endSection() throws IOException {
+			long written = channel.position();
+			int length = (int) (written + buffer.position() - lengthPosition - 4);
+			if (lengthPosition >= written) {
+				// the section started in the buffer, so the length is filled in there
+				buffer.putInt((int) (lengthPosition - written), length);
+				return;
+			}
+			flush();
+			ByteBuffer field = ByteBuffer.allocate(4).putInt(0, length);
+			while (field.hasRemaining()) {
+				channel.write(field, lengthPosition + field.position());
+			}
+		}
+	}
+
+	/**
+	 * Buffered input from a file channel.
+	 */
+	private static final class Input {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+
+		private Input(FileChannel channel) {
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			// nothing read yet
+			buffer.flip();
+		}
+
+		private void require(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) {
+				return;
+			}
+			buffer.compact();
+			while (buffer.position() < bytes) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Unexpected end of the architecture file");
+				}
+			}
+			buffer.flip();
+		}
+
+		private long position() throws IOException {
+			return channel.position() - buffer.remaining();
+		}
+
+		private int readByte() throws IOException {
+			require(1);
+			return buffer.get() & 0xFF;
+		}
+
+		private int readInt() throws IOException {
+			require(4);
+			return buffer.getInt();
+		}
+
+		private double readDouble() throws IOException {
+			require(8);
+			return buffer.getDouble();
+		}
+
+		private int readVarint() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed number in the architecture file");
+		}
+
+		private String readString() throws IOException {
+			int length = readVarint();
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length) {
+				require(1);
+				int chunk = Math.min(buffer.remaining(), length - offset);
+				buffer.get(bytes, offset, chunk);
+				offset += chunk;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private void skip(long bytes) throws IOException {
+			if (bytes <= buffer.remaining()) {
+				buffer.position(buffer.position() + (int) bytes);
+				return;
+			}
+			long rest = bytes - buffer.remaining();
+			buffer.position(buffer.limit());
+			channel.position(channel.position() + rest);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import architecture.Action;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.DeductionCapability;
+import architecture.Dep;
+import architecture.DependenceRelation;
+import architecture.Equation;
+import architecture.Term;
+import architecture.Trust;
+import architecture.Variable;
+import properties.Property;
+import properties.Property.PropertyType;
+import architecture.Action.ActionType;
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+import gui.ArchitectureFunctions;
+
+/**
+ * Class that generates synthetic architectures of any size, e.g., for scaling
+ * experiments. The same seed and parameters always produce the same architecture.
+ * Each variable is owned by one component, which either has it or computes it from
+ * earlier variables it owns, and then sends it to other components. So the
+ * actions are consistent in the order they are generated.
+ */
+public class ArchGenerator {
+
+	/**
+	 * The distributions the probabilities of deps can be drawn from.
+	 */
+	public enum Distribution {
+		// always 1
+		CERTAIN,
+		// uniform between the minimum and 1
+		UNIFORM,
+		// uniform exponent between the minimum and 1, like the values of the case study
+		LOG_UNIFORM
+	}
+
+	// class fields
+	private final long seed;
+	private int components;
+	private int variables;
+	private int functions;
+	private double computeRatio;
+	private int fanOut;
+	private double depDensity;
+	private int depPremises;
+	private double deductionDensity;
+	private Distribution distribution;
+	private double minProb;
+	private int properties;
+	private Random random;
+
+	/**
+	 * The constructor for a generator with the default parameters, which produce
+	 * an architecture of about the size of the smart metering case study.
+	 *
+	 * @param seed
+	 *          the seed of the random generator
+	 */
+	public ArchGenerator(long seed) {
+		this.seed = seed;
+		components = 4;
+		variables = 8;
+		functions = 4;
+		computeRatio = 0.5;
+		fanOut = 1;
+		depDensity = 0.1;
+		depPremises = 2;
+		deductionDensity = 0.25;
+		distribution = Distribution.LOG_UNIFORM;
+		minProb = 0.00001;
+		properties = 2;
+	}
+
+	/**
+	 * Method that fills the architecture functions with a new architecture, just like
+	 * loading a case study.
+	 *
+	 * @param archFunc
+	 *          the architecture functions to fill
+	 */
+	public void generate(ArchitectureFunctions archFunc) {
+		random = new Random(seed);
+		Set<Component> cSet = new LinkedHashSet<Component>();
+		Set<Variable> vSet = new LinkedHashSet<Variable>();
+		Set<Term> tSet = new LinkedHashSet<Term>();
+		Set<Equation> eSet = new LinkedHashSet<Equation>();
+		Set<Action> aSet = new LinkedHashSet<Action>();
+		Set<DependenceRelation> dSet = new LinkedHashSet<DependenceRelation>();
+		Set<DeductionCapability> dedSet = new LinkedHashSet<DeductionCapability>();
+		Set<Property> pSet = new LinkedHashSet<Property>();
+		// components
+		List<Component> comps = new ArrayList<Component>();
+		for (int i = 0; i < components; i++) {
+			Component comp = new Component("C" + i);
+			comps.add(comp);
+			cSet.add(comp);
+		}
+		// variables, each with its owner and the atom term
+		List<Variable> vars = new ArrayList<Variable>();
+		List<Term> atoms = new ArrayList<Term>();
+		List<List<Integer>> owned = new ArrayList<List<Integer>>();
+		for (int i = 0; i < components; i++) {
+			owned.add(new ArrayList<Integer>());
+		}
+		List<Equation> equations = new ArrayList<Equation>();
+		for (int i = 0; i < variables; i++) {
+			Variable var = new Variable("v" + i, false);
+			Term atom = Term.of(TermType.ATOM, var, false);
+			vars.add(var);
+			atoms.add(atom);
+			vSet.add(var);
+			tSet.add(atom);
+			int owner = i % components;
+			List<Integer> earlier = owned.get(owner);
+			if (!earlier.isEmpty() && random.nextDouble() < computeRatio) {
+				// compute the variable from earlier variables of the same owner
+				Term term = composition(earlier, atoms);
+				addTerms(term, tSet);
+				Equation eq = new Equation("e" + i, Type.RELATION, Relation.EQUALITY, atom, term);
+				equations.add(eq);
+				eSet.add(eq);
+				aSet.add(new Action(ActionType.COMPUTE, comps.get(owner), eq));
+			} else {
+				aSet.add(new Action(ActionType.HAS, comps.get(owner), var));
+			}
+			earlier.add(i);
+		}
+		// receive actions, the owner sends each variable to other components
+		for (int i = 0; i < variables; i++) {
+			int owner = i % components;
+			for (int receiver : pick(components - 1, Math.min(fanOut, components - 1))) {
+				if (receiver >= owner) {
+					// skip the owner itself
+					receiver++;
+				}
+				aSet.add(new Action(ActionType.RECEIVE, comps.get(receiver), comps.get(owner),
+						Collections.emptySet(), Collections.singleton(vars.get(i))));
+			}
+		}
+		// deps for variables a component does not own
+		for (int c = 0; c < components; c++) {
+			for (int i = 0; i < variables; i++) {
+				if (i % components == c || random.nextDouble() >= depDensity) {
+					continue;
+				}
+				Set<Variable> premises = new LinkedHashSet<Variable>();
+				for (int premise : pick(variables, random.nextInt(depPremises + 1))) {
+					if (premise != i) {
+						premises.add(vars.get(premise));
+					}
+				}
+				dSet.add(new DependenceRelation(comps.get(c), new Dep(vars.get(i), premises, probability())));
+			}
+		}
+		// each default deduction is given to a component with the deduction density
+		for (Component comp : comps) {
+			Set<Deduction> deducSet = new LinkedHashSet<Deduction>();
+			for (Deduction deduc : archFunc.getDeducs()) {
+				if (random.nextDouble() < deductionDensity) {
+					deducSet.add(deduc);
+				}
+			}
+			if (!deducSet.isEmpty()) {
+				dedSet.add(new DeductionCapability(comp, deducSet));
+			}
+		}
+		// properties about random components, variables and equations
+		List<Property> props = new ArrayList<Property>();
+		for (int i = 0; i < properties; i++) {
+			Property prop = property(comps, vars, equations, props);
+			props.add(prop);
+			pSet.add(prop);
+		}
+		// set all the necessary lists, just like the ArchLoader
+		archFunc.setcSet(cSet);
+		archFunc.setvSet(vSet);
+		archFunc.settSet(tSet);
+		archFunc.seteSet(eSet);
+		archFunc.settrustSet(new LinkedHashSet<Trust>());
+		archFunc.setstSet(new LinkedHashSet<architecture.Statement>());
+		archFunc.setaSet(aSet);
+		archFunc.setdSet(dSet);
+		archFunc.setdedSet(dedSet);
+		archFunc.setpSet(pSet);
+	}
+
+	/**
+	 * Helper method that creates a composition of one of the functions over earlier
+	 * variables.
+	 */
+	private Term composition(List<Integer> earlier, List<Term> atoms) {
+		String funcName = "f" + random.nextInt(functions);
+		Term t1 = atoms.get(earlier.get(random.nextInt(earlier.size())));
+		Term t2 = atoms.get(earlier.get(random.nextInt(earlier.size())));
+		Term t3 = atoms.get(earlier.get(random.nextInt(earlier.size())));
+		switch (random.nextInt(3)) {
+		case 0:
+			return Term.of(TermType.COMPOSITION, OperatorType.UNARY, Operator.FUNC, funcName, t1, false);
+		case 1:
+			return Term.of(TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, funcName, t1, t2,
+					false);
+		default:
+			return Term.of(TermType.COMPOSITION, OperatorType.TERTIARY, Operator.FUNC, funcName, t1, t2,
+					t3, false);
+		}
+	}
+
+	/**
+	 * Helper method that adds a term and all its sub-terms.
+	 */
+	private static void addTerms(Term term, Set<Term> tSet) {
+		if (term == null) {
+			return;
+		}
+		addTerms(term.getT1(), tSet);
+		addTerms(term.getT2(), tSet);
+		addTerms(term.getT3(), tSet);
+		tSet.add(term);
+	}
+
+	/**
+	 * Helper method that picks distinct numbers below a bound.
+	 */
+	private List<Integer> pick(int bound, int count) {
+		List<Integer> picked = new ArrayList<Integer>();
+		while (picked.size() < Math.min(count, bound)) {
+			int candidate = random.nextInt(bound);
+			if (!picked.contains(candidate)) {
+				picked.add(candidate);
+			}
+		}
+		return picked;
+	}
+
+	/**
+	 * Helper method that draws a probability from the chosen distribution.
+	 */
+	private double probability() {
+		switch (distribution) {
+		case UNIFORM:
+			return minProb + random.nextDouble() * (1 - minProb);
+		case LOG_UNIFORM:
+			return Math.pow(10, Math.log10(minProb) * random.nextDouble());
+		default:
+			return 1;
+		}
+	}
+
+	/**
+	 * Helper method that creates a random property, possibly composed of earlier ones.
+	 */
+	private Property property(List<Component> comps, List<Variable> vars, List<Equation> equations,
+			List<Property> earlier) {
+		Component comp = comps.get(random.nextInt(comps.size()));
+		Variable var = vars.get(random.nextInt(vars.size()));
+		switch (random.nextInt(5)) {
+		case 0:
+			if (!equations.isEmpty()) {
+				return new Property(PropertyType.KNOWS, comp, (double) 1,
+						equations.get(random.nextInt(equations.size())));
+			}
+			return new Property(PropertyType.HAS, comp, (double) 1, var);
+		case 1:
+			return new Property(PropertyType.NEGATION,
+					new Property(PropertyType.HAS, comp, probability(), var));
+		case 2:
+			return new Property(PropertyType.NOTSHARED, comp, var);
+		case 3:
+			if (!earlier.isEmpty()) {
+				return new Property(PropertyType.CONJUNCTION,
+						earlier.get(random.nextInt(earlier.size())),
+						new Property(PropertyType.HAS, comp, (double) 1, var));
+			}
+			return new Property(PropertyType.HAS, comp, (double) 1, var);
+		default:
+			return new Property(PropertyType.HAS, comp, (double) 1, var);
+		}
+	}
+
+	// setter methods for the parameters
+	public ArchGenerator setComponents(int components) {
+		this.components = Math.max(1, components);
+		return this;
+	}
+
+	public ArchGenerator setVariables(int variables) {
+		this.variables = Math.max(1, variables);
+		return this;
+	}
+
+	public ArchGenerator setFunctions(int functions) {
+		this.functions = Math.max(1, functions);
+		return this;
+	}
+
+	public ArchGenerator setComputeRatio(double computeRatio) {
+		this.computeRatio = computeRatio;
+		return this;
+	}
+
+	public ArchGenerator setFanOut(int fanOut) {
+		this.fanOut = Math.max(0, fanOut);
+		return this;
+	}
+
+	public ArchGenerator setDepDensity(double depDensity) {
+		this.depDensity = depDensity;
+		return this;
+	}
+
+	public ArchGenerator setDepPremises(int depPremises) {
+		this.depPremises = Math.max(0, depPremises);
+		return this;
+	}
+
+	public ArchGenerator setDeductionDensity(double deductionDensity) {
+		this.deductionDensity = deductionDensity;
+		return this;
+	}
+
+	public ArchGenerator setDistribution(Distribution distribution, double minProb) {
+		this.distribution = distribution;
+		this.minProb = minProb;
+		return this;
+	}
+
+	public ArchGenerator setProperties(int properties) {
+		this.properties = Math.max(0, properties);
+		return this;
+	}
+}
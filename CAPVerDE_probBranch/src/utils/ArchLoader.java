@@ -50,29 +50,29 @@ public class ArchLoader {
 	private static Variable ppd = new Variable("ppd", false);
 	private static Set<Variable> vSet1 = Stream.of(readings, k, bill, pw, secret, encBill, encR, ppd).collect(Collectors.toCollection(LinkedHashSet::new));
 	// Terms
-	private static Term termReadings = new Term(TermType.ATOM, readings, false);
-	private static Term termK = new Term(TermType.ATOM, k, false);
-	private static Term termBill = new Term(TermType.ATOM, bill, false);
-	private static Term termPw = new Term(TermType.ATOM, pw, false);
-	private static Term termSecret = new Term(TermType.ATOM, secret, false);
-	private static Term termPpd = new Term(TermType.ATOM, ppd, false);
-	private static Term termEncB = new Term(TermType.ATOM, encBill, false);
-	private static Term termEncR = new Term(TermType.ATOM, encR, false);
-	private static Term termBetaReadings = new Term(
+	private static Term termReadings = Term.of(TermType.ATOM, readings, false);
+	private static Term termK = Term.of(TermType.ATOM, k, false);
+	private static Term termBill = Term.of(TermType.ATOM, bill, false);
+	private static Term termPw = Term.of(TermType.ATOM, pw, false);
+	private static Term termSecret = Term.of(TermType.ATOM, secret, false);
+	private static Term termPpd = Term.of(TermType.ATOM, ppd, false);
+	private static Term termEncB = Term.of(TermType.ATOM, encBill, false);
+	private static Term termEncR = Term.of(TermType.ATOM, encR, false);
+	private static Term termBetaReadings = Term.of(
 			TermType.COMPOSITION, OperatorType.UNARY, Operator.FUNC, "beta", termReadings, false);
-	private static Term termEncReadings = new Term(
+	private static Term termEncReadings = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "Enc", termReadings, termK, false);
-	private static Term termDecReadings = new Term(
+	private static Term termDecReadings = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "Dec", termEncR, termK, false);
-	private static Term termEncBill = new Term(
+	private static Term termEncBill = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "Enc", termBill, termK, false);
-	private static Term termDecBill = new Term(
+	private static Term termDecBill = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "Dec", termEncB, termK, false);
-	private static Term termPhiReadings = new Term(
+	private static Term termPhiReadings = Term.of(
 			TermType.COMPOSITION, OperatorType.TERTIARY, Operator.FUNC, "phi", termReadings, termBill, termPw, false);
-	private static Term termPhiInvReadings = new Term(
+	private static Term termPhiInvReadings = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "phi^-1", termPpd, termPw, false);
-	private static Term termPhiInvBill = new Term(
+	private static Term termPhiInvBill = Term.of(
 			TermType.COMPOSITION, OperatorType.BINARY, Operator.FUNC, "phi^-1", termPpd, termPw, false);
 	private static Set<Term> tSet1 = Stream.of(
 			termReadings, termK, termBill, termPw, termSecret, termPpd, termEncB, termEncR,
@@ -154,13 +154,13 @@ public class ArchLoader {
 			new DependenceRelation(HN, dep5)).collect(Collectors.toCollection(LinkedHashSet::new));
 	// Deductions
 	private static Variable varT = new Variable("t");
-	private static Term termT = new Term(TermType.ATOM, varT, true);
+	private static Term termT = Term.of(TermType.ATOM, varT, true);
 	private static Variable varU = new Variable("u");
-	private static Term termU = new Term(TermType.ATOM, varU, true);
+	private static Term termU = Term.of(TermType.ATOM, varU, true);
 	private static Variable varX = new Variable("x");
 	private static Variable varY = new Variable("y");
-	private static Term termX = new Term(TermType.ATOM, varX, true);
-	private static Term termY = new Term(TermType.ATOM, varY, true);
+	private static Term termX = Term.of(TermType.ATOM, varX, true);
+	private static Term termY = Term.of(TermType.ATOM, varY, true);
 	private static Equation dedEq2 = new Equation(
 			"subst", Type.RELATION, Relation.EQUALITY, termT, termU);
 	private static Equation dedEq3 = new Equation(
@@ -0,0 +1,767 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import architecture.Action;
+import architecture.Action.ActionType;
+import architecture.Attest;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.DeductionCapability;
+import architecture.Dep;
+import architecture.DependenceRelation;
+import architecture.Equation;
+import architecture.Equation.Relation;
+import architecture.Equation.Type;
+import architecture.P;
+import architecture.Proof;
+import architecture.Statement;
+import architecture.Term;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+import architecture.Trust;
+import architecture.Variable;
+import gui.ArchitectureFunctions;
+import properties.Property;
+import properties.Property.PropertyType;
+
+/**
+ * Class that reads architectures from their text description in a single pass.
+ * Every line declares one element, which can only refer to elements declared
+ * before it. Names consist of letters, digits, underscores and dots, other names
+ * are written in double quotes. Everything after a '#' is a comment.
+ *
+ * <pre>
+ * component SM
+ * variable readings
+ * variable k encrypted
+ * term beta(readings)
+ * equation encR_enc: encR = Enc(readings, k)
+ * equation both: encR_enc and bill_dec
+ * trust SM HN: readings
+ * attest a1: SM encR_enc, bill_dec
+ * proof p1: SM encR_enc, a1
+ * has SM readings
+ * delete SM readings
+ * compute SM encR_enc
+ * receive HN &lt;- SM: encR, ppd with a1
+ * check Re bill_beta
+ * verify HN a1
+ * trusts SM HN
+ * dep HN readings &lt;- encR, k: 0.00001
+ * deduction Substitution SUBST 1: t = u, x = y -&gt; t = u
+ * deductions SM Substitution, Symmetry
+ * property not has(HN, readings, 0.001) and knows(Re, bill_beta)
+ * option congruence
+ * </pre>
+ *
+ * A variable adds its atom and an equation all its terms to the set of terms. The
+ * variables of a deduction are match variables, which are not declared. A
+ * deduction replaces the default deduction of the same name. The probabilities of
+ * deps, deductions and properties are between 0 and 1. The written
+ * description of an architecture comes from the {@link ArchWriter}.
+ */
+public class ArchReader {
+
+	// class fields
+	private final ArchitectureFunctions archFunc;
+	private final Set<Component> cSet = new LinkedHashSet<Component>();
+	private final Set<Variable> vSet = new LinkedHashSet<Variable>();
+	private final Set<Term> tSet = new LinkedHashSet<Term>();
+	private final Set<Equation> eSet = new LinkedHashSet<Equation>();
+	private final Set<Trust> trustSet = new LinkedHashSet<Trust>();
+	private final Set<Statement> stSet = new LinkedHashSet<Statement>();
+	private final Set<Action> aSet = new LinkedHashSet<Action>();
+	private final Set<DependenceRelation> dSet = new LinkedHashSet<DependenceRelation>();
+	private final Set<DeductionCapability> dedSet = new LinkedHashSet<DeductionCapability>();
+	private final Set<Property> pSet = new LinkedHashSet<Property>();
+	private final Map<String, Component> components = new HashMap<String, Component>();
+	private final Map<String, Variable> variables = new HashMap<String, Variable>();
+	private final Map<String, Equation> equations = new HashMap<String, Equation>();
+	private final Map<String, Statement> statements = new HashMap<String, Statement>();
+	private final Map<String, Deduction> deductions = new HashMap<String, Deduction>();
+	private final Set<Deduction> defaults = new HashSet<Deduction>();
+	// the tokens of the current line, quoted tokens are always names
+	private final List<String> tokens = new ArrayList<String>();
+	private final List<Boolean> quoted = new ArrayList<Boolean>();
+	private int pos;
+	private int lineNo;
+	// the match variables of the current deduction
+	private Map<String, Variable> matchVars;
+
+	private ArchReader() {
+		archFunc = new ArchitectureFunctions();
+		for (Deduction deduc : archFunc.getDeducs()) {
+			deductions.put(deduc.getName(), deduc);
+			defaults.add(deduc);
+		}
+	}
+
+	/**
+	 * Method that reads an architecture from a file in UTF-8.
+	 *
+	 * @param path
+	 *          the file
+	 * @return the architecture functions, not finished yet
+	 * @throws IOException
+	 *           if the file cannot be read or has an error, with its line number
+	 */
+	public static ArchitectureFunctions read(Path path) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	/**
+	 * Method that reads an architecture line by line.
+	 *
+	 * @param reader
+	 *          the reader of the description
+	 * @return the architecture functions, not finished yet
+	 * @throws IOException
+	 *           if the description cannot be read or has an error, with its line number
+	 */
+	public static ArchitectureFunctions read(Reader reader) throws IOException {
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader
+				: new BufferedReader(reader);
+		ArchReader archReader = new ArchReader();
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			archReader.lineNo++;
+			archReader.tokenize(line);
+			if (!archReader.tokens.isEmpty()) {
+				archReader.declaration();
+			}
+		}
+		return archReader.finish();
+	}
+
+	/**
+	 * Helper method that sets all the necessary lists, just like the ArchLoader.
+	 */
+	private ArchitectureFunctions finish() {
+		archFunc.setcSet(cSet);
+		archFunc.setvSet(vSet);
+		archFunc.settSet(tSet);
+		archFunc.seteSet(eSet);
+		archFunc.settrustSet(trustSet);
+		archFunc.setstSet(stSet);
+		archFunc.setaSet(aSet);
+		archFunc.setdSet(dSet);
+		archFunc.setdedSet(dedSet);
+		archFunc.setpSet(pSet);
+		return archFunc;
+	}
+
+	/**
+	 * Helper method that parses the declaration of the current line.
+	 */
+	private void declaration() throws IOException {
+		String keyword = name("a keyword");
+		switch (keyword) {
+		case "component":
+			String compName = name("the name of the component");
+			if (components.containsKey(compName)) {
+				throw error("Component '" + compName + "' is already declared");
+			}
+			Component comp = new Component(compName);
+			components.put(compName, comp);
+			cSet.add(comp);
+			break;
+		case "variable":
+			String varName = name("the name of the variable");
+			if (variables.containsKey(varName)) {
+				throw error("Variable '" + varName + "' is already declared");
+			}
+			boolean encrypted = accept("encrypted");
+			Variable var = new Variable(varName, encrypted);
+			variables.put(varName, var);
+			vSet.add(var);
+			tSet.add(Term.of(TermType.ATOM, var, false));
+			break;
+		case "term":
+			addTerms(term());
+			break;
+		case "equation":
+			equationDeclaration();
+			break;
+		case "trust":
+			Component truster = component();
+			Component trustee = component();
+			Set<Variable> trusted = new LinkedHashSet<Variable>();
+			if (accept(":")) {
+				do {
+					trusted.add(variable());
+				} while (accept(","));
+			}
+			trustSet.add(new Trust(truster, trustee, trusted));
+			break;
+		case "attest":
+			String attLabel = label();
+			Component attComp = component();
+			Set<Equation> attested = new LinkedHashSet<Equation>();
+			do {
+				attested.add(equation());
+			} while (accept(","));
+			addStatement(attLabel, new Attest(attComp, attested));
+			break;
+		case "proof":
+			String proLabel = label();
+			Component proComp = component();
+			Set<P> proven = new LinkedHashSet<P>();
+			do {
+				String item = name("an equation or attestation");
+				if (equations.containsKey(item)) {
+					proven.add(equations.get(item));
+				} else if (statements.get(item) instanceof Attest) {
+					proven.add((Attest) statements.get(item));
+				} else {
+					throw error("Unknown equation or attestation '" + item + "'");
+				}
+			} while (accept(","));
+			addStatement(proLabel, new Proof(proComp, proven));
+			break;
+		case "has":
+			aSet.add(new Action(ActionType.HAS, component(), variable()));
+			break;
+		case "delete":
+			aSet.add(new Action(ActionType.DELETE, component(), variable()));
+			break;
+		case "compute":
+			aSet.add(new Action(ActionType.COMPUTE, component(), equation()));
+			break;
+		case "receive":
+			Component receiver = component();
+			expect("<-");
+			Component sender = component();
+			expect(":");
+			Set<Variable> received = new LinkedHashSet<Variable>();
+			if (!peek("with")) {
+				do {
+					received.add(variable());
+				} while (accept(","));
+			}
+			Set<Statement> sent = new LinkedHashSet<Statement>();
+			if (accept("with")) {
+				do {
+					sent.add(statement());
+				} while (accept(","));
+			}
+			aSet.add(new Action(ActionType.RECEIVE, receiver, sender, sent, received));
+			break;
+		case "check":
+			Component checker = component();
+			Set<Equation> checked = new LinkedHashSet<Equation>();
+			do {
+				checked.add(equation());
+			} while (accept(","));
+			aSet.add(new Action(ActionType.CHECK, checker, checked));
+			break;
+		case "verify":
+			Component verifier = component();
+			Statement st = statement();
+			if (st instanceof Proof) {
+				aSet.add(new Action(ActionType.VERIF_P, verifier, (Proof) st));
+			} else {
+				aSet.add(new Action(ActionType.VERIF_A, verifier, (Attest) st));
+			}
+			break;
+		case "trusts":
+			aSet.add(new Action(ActionType.TRUST, component(), component()));
+			break;
+		case "dep":
+			Component depComp = component();
+			Variable depVar = variable();
+			Set<Variable> premises = new LinkedHashSet<Variable>();
+			if (accept("<-")) {
+				do {
+					premises.add(variable());
+				} while (accept(","));
+			}
+			expect(":");
+			dSet.add(new DependenceRelation(depComp, new Dep(depVar, premises, probability())));
+			break;
+		case "deduction":
+			deductionDeclaration();
+			break;
+		case "deductions":
+			Component dedComp = component();
+			Set<Deduction> deducSet = new LinkedHashSet<Deduction>();
+			do {
+				String deducName = name("the name of a deduction");
+				Deduction deduc = deductions.get(deducName);
+				if (deduc == null) {
+					throw error("Unknown deduction '" + deducName + "'");
+				}
+				deducSet.add(deduc);
+			} while (accept(","));
+			dedSet.add(new DeductionCapability(dedComp, deducSet));
+			break;
+		case "property":
+			pSet.add(property());
+			break;
+		case "option":
+			String option = name("an option");
+			if (option.equals("lazy")) {
+				archFunc.setLazyDeduction(true);
+			} else if (option.equals("congruence")) {
+				archFunc.setCongruenceClosure(true);
+			} else {
+				throw error("Unknown option '" + option + "'");
+			}
+			break;
+		default:
+			throw error("Unknown declaration '" + keyword + "'");
+		}
+		if (pos < tokens.size()) {
+			throw error("Unexpected '" + tokens.get(pos) + "'");
+		}
+	}
+
+	/**
+	 * Helper method that parses the declaration of an equation, which is either a
+	 * relation of two terms, a conjunction of two equations or empty.
+	 */
+	private void equationDeclaration() throws IOException {
+		String eqName = name("the name of the equation");
+		if (equations.containsKey(eqName)) {
+			throw error("Equation '" + eqName + "' is already declared");
+		}
+		Equation eq;
+		if (!accept(":")) {
+			eq = new Equation(eqName);
+		} else if (pos + 1 < tokens.size() && tokens.get(pos + 1).equals("and")
+				&& !quoted.get(pos + 1)) {
+			Equation eq1 = equation();
+			expect("and");
+			eq = new Equation(eqName, Type.CONJUNCTION, eq1, equation());
+		} else {
+			eq = relation(eqName);
+			addTerms(eq.getOp1());
+			addTerms(eq.getOp2());
+		}
+		equations.put(eqName, eq);
+		eSet.add(eq);
+	}
+
+	/**
+	 * Helper method that parses the declaration of a deduction, whose premises and
+	 * conclusion are relations of match variables.
+	 */
+	private void deductionDeclaration() throws IOException {
+		String deducName = name("the name of the deduction");
+		Deduction.Type type = Deduction.Type.ELSE;
+		double prob = 1;
+		if (!peek(":")) {
+			String typeName = name("the type of the deduction");
+			try {
+				type = Deduction.Type.valueOf(typeName);
+			} catch (IllegalArgumentException e) {
+				throw error("Unknown type of deduction '" + typeName + "'");
+			}
+		}
+		if (!peek(":")) {
+			prob = probability();
+		}
+		expect(":");
+		matchVars = new HashMap<String, Variable>();
+		try {
+			Set<Equation> premises = new LinkedHashSet<Equation>();
+			if (!peek("->")) {
+				int i = 1;
+				do {
+					premises.add(relation(deducName + "_premise" + i++));
+				} while (accept(","));
+			}
+			expect("->");
+			Equation conclusion = relation(deducName + "_conclusion");
+			Deduction deduc = new Deduction(type, premises, conclusion, deducName, prob);
+			Deduction previous = deductions.put(deducName, deduc);
+			if (previous != null) {
+				if (!defaults.remove(previous)) {
+					throw error("Deduction '" + deducName + "' is already declared");
+				}
+				// a default deduction is replaced
+				archFunc.getDeducs().remove(previous);
+			}
+			archFunc.getDeducs().add(deduc);
+		} finally {
+			matchVars = null;
+		}
+	}
+
+	/**
+	 * Helper method that parses a relation of two terms.
+	 */
+	private Equation relation(String eqName) throws IOException {
+		Term op1 = term();
+		String symbol = pos < tokens.size() ? tokens.get(pos) : "";
+		Relation rel;
+		switch (symbol) {
+		case "=":
+			rel = Relation.EQUALITY;
+			break;
+		case "!=":
+			rel = Relation.INEQUALITY;
+			break;
+		case "<":
+			rel = Relation.LESSTHAN;
+			break;
+		case ">":
+			rel = Relation.GREATERTHAN;
+			break;
+		case "<=":
+			rel = Relation.LESSEQUAL;
+			break;
+		case ">=":
+			rel = Relation.GREATEREQUAL;
+			break;
+		default:
+			throw error("Expected a relation instead of '" + symbol + "'");
+		}
+		pos++;
+		return new Equation(eqName, Type.RELATION, rel, op1, term());
+	}
+
+	/**
+	 * Helper method that parses a sum of products.
+	 */
+	private Term term() throws IOException {
+		Term term = product();
+		while (peek("+") || peek("-")) {
+			Operator op = tokens.get(pos++).equals("+") ? Operator.ADD : Operator.SUB;
+			term = Term.of(TermType.COMPOSITION, OperatorType.BINARY, op, null, term, product(),
+					matchVars != null);
+		}
+		return term;
+	}
+
+	private Term product() throws IOException {
+		Term term = primary();
+		while (peek("*") || peek("/")) {
+			Operator op = tokens.get(pos++).equals("*") ? Operator.MULT : Operator.DIV;
+			term = Term.of(TermType.COMPOSITION, OperatorType.BINARY, op, null, term, primary(),
+					matchVars != null);
+		}
+		return term;
+	}
+
+	/**
+	 * Helper method that parses an atom, an application of a function or operator
+	 * to one, two or three terms, or a term in parentheses.
+	 */
+	private Term primary() throws IOException {
+		if (accept("(")) {
+			Term term = term();
+			expect(")");
+			return term;
+		}
+		Operator op = Operator.FUNC;
+		String funcName = null;
+		if (peek("+") || peek("-") || peek("*") || peek("/")) {
+			// an operator applied like a function
+			op = operator(tokens.get(pos++));
+		} else {
+			funcName = name("a term");
+			if (!peek("(")) {
+				return atom(funcName);
+			}
+		}
+		expect("(");
+		List<Term> args = new ArrayList<Term>(3);
+		do {
+			args.add(term());
+		} while (args.size() < 3 && accept(","));
+		expect(")");
+		boolean matchVar = matchVars != null;
+		switch (args.size()) {
+		case 1:
+			return Term.of(TermType.COMPOSITION, OperatorType.UNARY, op, funcName, args.get(0),
+					matchVar);
+		case 2:
+			return Term.of(TermType.COMPOSITION, OperatorType.BINARY, op, funcName, args.get(0),
+					args.get(1), matchVar);
+		default:
+			return Term.of(TermType.COMPOSITION, OperatorType.TERTIARY, op, funcName, args.get(0),
+					args.get(1), args.get(2), matchVar);
+		}
+	}
+
+	private Term atom(String varName) throws IOException {
+		if (matchVars != null) {
+			Variable var = matchVars.computeIfAbsent(varName, Variable::new);
+			return Term.of(TermType.ATOM, var, true);
+		}
+		Variable var = variables.get(varName);
+		if (var == null) {
+			throw error("Unknown variable '" + varName + "'");
+		}
+		return Term.of(TermType.ATOM, var, false);
+	}
+
+	private static Operator operator(String symbol) {
+		switch (symbol) {
+		case "+":
+			return Operator.ADD;
+		case "-":
+			return Operator.SUB;
+		case "*":
+			return Operator.MULT;
+		default:
+			return Operator.DIV;
+		}
+	}
+
+	/**
+	 * Helper method that adds a term and all its sub-terms.
+	 */
+	private void addTerms(Term term) {
+		if (term == null || !tSet.add(term)) {
+			return;
+		}
+		addTerms(term.getT1());
+		addTerms(term.getT2());
+		addTerms(term.getT3());
+	}
+
+	/**
+	 * Helper method that parses a conjunction of properties.
+	 */
+	private Property property() throws IOException {
+		Property prop = unaryProperty();
+		while (accept("and")) {
+			prop = new Property(PropertyType.CONJUNCTION, prop, unaryProperty());
+		}
+		return prop;
+	}
+
+	private Property unaryProperty() throws IOException {
+		if (accept("not")) {
+			return new Property(PropertyType.NEGATION, unaryProperty());
+		}
+		if (accept("(")) {
+			Property prop = property();
+			expect(")");
+			return prop;
+		}
+		String type = name("a property");
+		expect("(");
+		Component owner = component();
+		expect(",");
+		Property prop;
+		switch (type) {
+		case "has":
+			Variable var = variable();
+			prop = new Property(PropertyType.HAS, owner, accept(",") ? probability() : 1.0, var);
+			break;
+		case "knows":
+			Equation eq = equation();
+			prop = new Property(PropertyType.KNOWS, owner, accept(",") ? probability() : 1.0, eq);
+			break;
+		case "notshared":
+			prop = new Property(PropertyType.NOTSHARED, owner, variable());
+			break;
+		case "shared":
+			prop = new Property(PropertyType.SHARED, owner, variable());
+			break;
+		case "notstored":
+			Variable stored = variable();
+			expect(",");
+			double bound = number();
+			if (bound != Math.rint(bound)) {
+				throw error("The bound must be a whole number");
+			}
+			prop = new Property(PropertyType.NOTSTORED, owner, stored, (int) bound);
+			break;
+		default:
+			throw error("Unknown property '" + type + "'");
+		}
+		expect(")");
+		return prop;
+	}
+
+	private void addStatement(String label, Statement st) throws IOException {
+		if (statements.putIfAbsent(label, st) != null) {
+			throw error("Statement '" + label + "' is already declared");
+		}
+		stSet.add(st);
+	}
+
+	private String label() throws IOException {
+		String label = name("a label");
+		expect(":");
+		return label;
+	}
+
+	private Component component() throws IOException {
+		String compName = name("a component");
+		Component comp = components.get(compName);
+		if (comp == null) {
+			throw error("Unknown component '" + compName + "'");
+		}
+		return comp;
+	}
+
+	private Variable variable() throws IOException {
+		String varName = name("a variable");
+		Variable var = variables.get(varName);
+		if (var == null) {
+			throw error("Unknown variable '" + varName + "'");
+		}
+		return var;
+	}
+
+	private Equation equation() throws IOException {
+		String eqName = name("an equation");
+		Equation eq = equations.get(eqName);
+		if (eq == null) {
+			throw error("Unknown equation '" + eqName + "'");
+		}
+		return eq;
+	}
+
+	private Statement statement() throws IOException {
+		String label = name("a statement");
+		Statement st = statements.get(label);
+		if (st == null) {
+			throw error("Unknown statement '" + label + "'");
+		}
+		return st;
+	}
+
+	private double probability() throws IOException {
+		double prob = number();
+		// also false for NaN
+		if (!(prob >= 0 && prob <= 1)) {
+			throw error("The probability must be between 0 and 1 instead of " + prob);
+		}
+		return prob;
+	}
+
+	private double number() throws IOException {
+		String number = name("a number");
+		try {
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw error("Expected a number instead of '" + number + "'");
+		}
+	}
+
+	/**
+	 * Helper method that consumes a name, i.e., any token that is not a symbol.
+	 */
+	private String name(String expected) throws IOException {
+		if (pos >= tokens.size()) {
+			throw error("Expected " + expected + " at the end of the line");
+		}
+		String token = tokens.get(pos);
+		if (!quoted.get(pos) && isSymbol(token)) {
+			throw error("Expected " + expected + " instead of '" + token + "'");
+		}
+		pos++;
+		return token;
+	}
+
+	private boolean peek(String token) {
+		return pos < tokens.size() && !quoted.get(pos) && tokens.get(pos).equals(token);
+	}
+
+	private boolean accept(String token) {
+		if (peek(token)) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String token) throws IOException {
+		if (!accept(token)) {
+			String found = pos < tokens.size() ? "'" + tokens.get(pos) + "'" : "the end of the line";
+			throw error("Expected '" + token + "' instead of " + found);
+		}
+	}
+
+	private IOException error(String message) {
+		return new IOException("Line " + lineNo + ": " + message);
+	}
+
+	private static boolean isSymbol(String token) {
+		char c = token.charAt(0);
+		return !(Character.isLetterOrDigit(c) || c == '_' || c == '.');
+	}
+
+	/**
+	 * Helper method that splits a line into names, numbers, quoted names and symbols.
+	 */
+	private void tokenize(String line) throws IOException {
+		tokens.clear();
+		quoted.clear();
+		pos = 0;
+		int i = 0;
+		int length = line.length();
+		while (i < length) {
+			char c = line.charAt(i);
+			if (c == '#') {
+				// the rest of the line is a comment
+				return;
+			}
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			int start = i;
+			if (c == '"') {
+				StringBuilder sb = new StringBuilder();
+				for (i++; i < length && line.charAt(i) != '"'; i++) {
+					if (line.charAt(i) == '\\' && i + 1 < length) {
+						i++;
+					}
+					sb.append(line.charAt(i));
+				}
+				if (i >= length) {
+					throw error("Missing closing quote");
+				}
+				i++;
+				tokens.add(sb.toString());
+				quoted.add(true);
+				continue;
+			}
+			if (Character.isDigit(c)) {
+				// numbers may have a fraction and an exponent
+				while (i < length && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '.'
+						|| line.charAt(i) == '_' || (line.charAt(i) == '-' || line.charAt(i) == '+')
+						&& (line.charAt(i - 1) == 'e' || line.charAt(i - 1) == 'E'))) {
+					i++;
+				}
+			} else if (Character.isLetter(c) || c == '_' || c == '.') {
+				while (i < length && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_'
+						|| line.charAt(i) == '.')) {
+					i++;
+				}
+			} else if (i + 1 < length && isTwoCharSymbol(c, line.charAt(i + 1))) {
+				i += 2;
+			} else {
+				i++;
+			}
+			tokens.add(line.substring(start, i));
+			quoted.add(false);
+		}
+	}
+
+	private static boolean isTwoCharSymbol(char c1, char c2) {
+		return (c1 == '<' && (c2 == '-' || c2 == '=')) || (c1 == '>' && c2 == '=')
+				|| (c1 == '!' && c2 == '=') || (c1 == '-' && c2 == '>');
+	}
+}
@@ -0,0 +1,486 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import architecture.Action;
+import architecture.Attest;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.DeductionCapability;
+import architecture.DependenceRelation;
+import architecture.Equation;
+import architecture.Equation.Type;
+import architecture.P;
+import architecture.Proof;
+import architecture.Statement;
+import architecture.Term;
+import architecture.Term.Operator;
+import architecture.Term.OperatorType;
+import architecture.Term.TermType;
+import architecture.Trust;
+import architecture.Variable;
+import gui.ArchitectureFunctions;
+import properties.Property;
+
+/**
+ * Class that writes the text description of an architecture, which is read by
+ * the {@link ArchReader}. Elements that are referred to but not in the sets of the
+ * architecture are declared as well, equations and deductions with the same name
+ * but a different meaning are given distinct names.
+ */
+public class ArchWriter {
+
+	// names that need no quotes
+	private static final Pattern PLAIN = Pattern.compile("[A-Za-z_.][A-Za-z0-9_.]*");
+	// words with a meaning of their own where names are expected
+	private static final Set<String> KEYWORDS = Set.of("and", "not", "with", "encrypted");
+
+	// class fields
+	private final ArchitectureFunctions archFunc;
+	private final Writer out;
+	private final Set<Component> components = new LinkedHashSet<Component>();
+	private final Set<Variable> variables = new LinkedHashSet<Variable>();
+	private final Set<Term> terms = new HashSet<Term>();
+	private final Map<Equation, String> equations = new IdentityHashMap<Equation, String>();
+	private final Map<String, String> equationMeanings = new HashMap<String, String>();
+	private final Map<Statement, String> statements = new IdentityHashMap<Statement, String>();
+	private final Map<Deduction, String> deductions = new IdentityHashMap<Deduction, String>();
+	private final Map<String, String> deductionMeanings = new HashMap<String, String>();
+
+	private ArchWriter(ArchitectureFunctions archFunc, Writer out) {
+		this.archFunc = archFunc;
+		this.out = out;
+	}
+
+	/**
+	 * Method that writes the description of an architecture to a file in UTF-8.
+	 *
+	 * @param archFunc
+	 *          the architecture functions
+	 * @param path
+	 *          the file, which is replaced if it exists
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	public static void write(ArchitectureFunctions archFunc, Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			write(archFunc, writer);
+		}
+	}
+
+	/**
+	 * Method that writes the description of an architecture.
+	 *
+	 * @param archFunc
+	 *          the architecture functions
+	 * @param out
+	 *          the writer, which is not closed
+	 * @throws IOException
+	 *           if the description cannot be written
+	 */
+	public static void write(ArchitectureFunctions archFunc, Writer out) throws IOException {
+		new ArchWriter(archFunc, out).write();
+		out.flush();
+	}
+
+	private void write() throws IOException {
+		// declare everything in the order the reader needs it
+		for (Component comp : archFunc.getcSet()) {
+			component(comp);
+		}
+		for (Variable var : archFunc.getvSet()) {
+			variable(var);
+		}
+		for (Equation eq : archFunc.geteSet()) {
+			if (eq.getType() == Type.RELATION) {
+				// the reader adds these terms with the equation
+				markTerms(eq.getOp1());
+				markTerms(eq.getOp2());
+			}
+		}
+		for (Term term : archFunc.gettSet()) {
+			declareTerm(term);
+		}
+		for (Equation eq : archFunc.geteSet()) {
+			equation(eq);
+		}
+		for (Trust trust : archFunc.gettrustSet()) {
+			String truster = component(trust.getTruster());
+			String trustee = component(trust.getTrustee());
+			String vars = variables(trust.getVars());
+			line("trust " + truster + " " + trustee + (vars.isEmpty() ? "" : ": " + vars));
+		}
+		for (Statement st : archFunc.getstSet()) {
+			statement(st);
+		}
+		for (Action action : archFunc.getaSet()) {
+			action(action);
+		}
+		for (DependenceRelation dr : archFunc.getdSet()) {
+			String comp = component(dr.getComp());
+			String var = variable(dr.getDep().getVar());
+			String premises = variables(dr.getDep().getVarSet());
+			line("dep " + comp + " " + var + (premises.isEmpty() ? "" : " <- " + premises) + ": "
+					+ dr.getDep().getProb());
+		}
+		for (Deduction deduc : archFunc.getDeducs()) {
+			deduction(deduc);
+		}
+		for (DeductionCapability ded : archFunc.getdedSet()) {
+			String comp = component(ded.getComp());
+			StringBuilder sb = new StringBuilder();
+			for (Deduction deduc : ded.getDeducSet()) {
+				sb.append(sb.length() == 0 ? "" : ", ").append(deduction(deduc));
+			}
+			line("deductions " + comp + " " + sb);
+		}
+		for (Property prop : archFunc.getpSet()) {
+			declareProperty(prop);
+			line("property " + property(prop, false));
+		}
+		if (archFunc.isLazyDeduction()) {
+			line("option lazy");
+		}
+		if (archFunc.isCongruenceClosure()) {
+			line("option congruence");
+		}
+	}
+
+	private void action(Action action) throws IOException {
+		String comp = component(action.getComponent());
+		switch (action.getAction()) {
+		case HAS:
+			line("has " + comp + " " + variable(action.getVar()));
+			break;
+		case DELETE:
+			line("delete " + comp + " " + variable(action.getVar()));
+			break;
+		case COMPUTE:
+			line("compute " + comp + " " + equation(action.getEq()));
+			break;
+		case RECEIVE:
+			String sender = component(action.getComPartner());
+			String vars = variables(action.getVarSet());
+			StringBuilder sent = new StringBuilder();
+			if (action.getStSet() != null) {
+				for (Statement st : action.getStSet()) {
+					sent.append(sent.length() == 0 ? " with " : ", ").append(statement(st));
+				}
+			}
+			line("receive " + comp + " <- " + sender + ": " + vars + sent);
+			break;
+		case CHECK:
+			StringBuilder checked = new StringBuilder();
+			for (Equation eq : action.getEqSet()) {
+				checked.append(checked.length() == 0 ? "" : ", ").append(equation(eq));
+			}
+			line("check " + comp + " " + checked);
+			break;
+		case VERIF_P:
+			line("verify " + comp + " " + statement(action.getPro()));
+			break;
+		case VERIF_A:
+			line("verify " + comp + " " + statement(action.getAtt()));
+			break;
+		case TRUST:
+			line("trusts " + comp + " " + component(action.getComPartner()));
+			break;
+		default:
+			break;
+		}
+	}
+
+	private String component(Component comp) throws IOException {
+		if (components.add(comp)) {
+			line("component " + name(comp.getName()));
+		}
+		return name(comp.getName());
+	}
+
+	private String variable(Variable var) throws IOException {
+		if (variables.add(var)) {
+			line("variable " + name(var.getName()) + (var.isEncrypted() ? " encrypted" : ""));
+			terms.add(Term.of(TermType.ATOM, var, false));
+		}
+		return name(var.getName());
+	}
+
+	private String variables(Set<Variable> vars) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		if (vars != null) {
+			for (Variable var : vars) {
+				sb.append(sb.length() == 0 ? "" : ", ").append(variable(var));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Helper method that declares a term unless the reader adds it anyway.
+	 */
+	private void declareTerm(Term term) throws IOException {
+		if (terms.contains(term)) {
+			return;
+		}
+		String string = term(term);
+		if (terms.add(term)) {
+			line("term " + string);
+		}
+	}
+
+	/**
+	 * Helper method to get the description of a term, declaring its variables.
+	 */
+	private String term(Term term) throws IOException {
+		if (term.getType() == TermType.ATOM) {
+			if (term.isMatchVar()) {
+				return name(term.getAtom().getName());
+			}
+			return variable(term.getAtom());
+		}
+		if (term.getOp() != Operator.FUNC && term.getOpType() == OperatorType.BINARY
+				&& term.getFuncName() == null) {
+			return operand(term.getT1()) + " " + symbol(term.getOp()) + " " + operand(term.getT2());
+		}
+		String func = term.getOp() == Operator.FUNC ? name(term.getFuncName()) : symbol(term.getOp());
+		StringBuilder sb = new StringBuilder(func).append('(').append(term(term.getT1()));
+		if (term.getT2() != null) {
+			sb.append(", ").append(term(term.getT2()));
+		}
+		if (term.getT3() != null) {
+			sb.append(", ").append(term(term.getT3()));
+		}
+		return sb.append(')').toString();
+	}
+
+	private String operand(Term term) throws IOException {
+		String string = term(term);
+		if (term.getType() == TermType.COMPOSITION && term.getOp() != Operator.FUNC
+				&& term.getOpType() == OperatorType.BINARY && term.getFuncName() == null) {
+			return "(" + string + ")";
+		}
+		return string;
+	}
+
+	private static String symbol(Operator op) {
+		switch (op) {
+		case ADD:
+			return "+";
+		case SUB:
+			return "-";
+		case MULT:
+			return "*";
+		default:
+			return "/";
+		}
+	}
+
+	/**
+	 * Helper method to get the name of an equation, declaring it first.
+	 */
+	private String equation(Equation eq) throws IOException {
+		String known = equations.get(eq);
+		if (known != null) {
+			return known;
+		}
+		String body;
+		switch (eq.getType()) {
+		case RELATION:
+			body = relation(eq);
+			break;
+		case CONJUNCTION:
+			body = equation(eq.getEq1()) + " and " + equation(eq.getEq2());
+			break;
+		default:
+			body = null;
+			break;
+		}
+		String eqName = unique(eq.getName() == null ? "eq" : eq.getName(), String.valueOf(body),
+				equationMeanings);
+		equations.put(eq, eqName);
+		if (equationMeanings.put(eqName, String.valueOf(body)) == null) {
+			line("equation " + eqName + (body == null ? "" : ": " + body));
+			if (eq.getType() == Type.RELATION) {
+				markTerms(eq.getOp1());
+				markTerms(eq.getOp2());
+			}
+		}
+		return eqName;
+	}
+
+	private String relation(Equation eq) throws IOException {
+		String relation;
+		switch (eq.getRel()) {
+		case EQUALITY:
+			relation = "=";
+			break;
+		case INEQUALITY:
+			relation = "!=";
+			break;
+		case LESSTHAN:
+			relation = "<";
+			break;
+		case GREATERTHAN:
+			relation = ">";
+			break;
+		case LESSEQUAL:
+			relation = "<=";
+			break;
+		default:
+			relation = ">=";
+			break;
+		}
+		return term(eq.getOp1()) + " " + relation + " " + term(eq.getOp2());
+	}
+
+	/**
+	 * Helper method that remembers the terms the reader adds for an equation.
+	 */
+	private void markTerms(Term term) {
+		if (term != null && terms.add(term)) {
+			markTerms(term.getT1());
+			markTerms(term.getT2());
+			markTerms(term.getT3());
+		}
+	}
+
+	/**
+	 * Helper method to get the label of a statement, declaring it first.
+	 */
+	private String statement(Statement st) throws IOException {
+		String label = statements.get(st);
+		if (label != null) {
+			return label;
+		}
+		StringBuilder sb = new StringBuilder();
+		String comp;
+		if (st instanceof Attest) {
+			Attest att = (Attest) st;
+			comp = component(att.getComponent());
+			for (Equation eq : att.getEqSet()) {
+				sb.append(sb.length() == 0 ? "" : ", ").append(equation(eq));
+			}
+		} else {
+			Proof pro = (Proof) st;
+			comp = component(pro.getComponent());
+			for (P p : pro.getpSet()) {
+				String item = p instanceof Attest ? statement((Attest) p) : equation((Equation) p);
+				sb.append(sb.length() == 0 ? "" : ", ").append(item);
+			}
+		}
+		label = "st" + (statements.size() + 1);
+		statements.put(st, label);
+		line((st instanceof Attest ? "attest " : "proof ") + label + ": " + comp + " " + sb);
+		return label;
+	}
+
+	/**
+	 * Helper method to get the name of a deduction, declaring it first.
+	 */
+	private String deduction(Deduction deduc) throws IOException {
+		String known = deductions.get(deduc);
+		if (known != null) {
+			return known;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Equation premise : deduc.getPremises()) {
+			sb.append(sb.length() == 0 ? "" : ", ").append(relation(premise));
+		}
+		String body = deduc.getType() + " " + deduc.getProb() + ": " + sb
+				+ (sb.length() == 0 ? "-> " : " -> ") + relation(deduc.getConclusion());
+		String deducName = unique(deduc.getName(), body, deductionMeanings);
+		deductions.put(deduc, deducName);
+		if (deductionMeanings.put(deducName, body) == null) {
+			line("deduction " + deducName + " " + body);
+		}
+		return deducName;
+	}
+
+	/**
+	 * Helper method that declares what a property refers to.
+	 */
+	private void declareProperty(Property prop) throws IOException {
+		if (prop.getOwner() != null) {
+			component(prop.getOwner());
+		}
+		if (prop.getVar() != null) {
+			variable(prop.getVar());
+		}
+		if (prop.getEq() != null) {
+			equation(prop.getEq());
+		}
+		if (prop.getSt1() != null) {
+			declareProperty(prop.getSt1());
+		}
+		if (prop.getSt2() != null) {
+			declareProperty(prop.getSt2());
+		}
+	}
+
+	private String property(Property prop, boolean operand) throws IOException {
+		String owner = prop.getOwner() == null ? null : name(prop.getOwner().getName());
+		switch (prop.getType()) {
+		case HAS:
+			return "has(" + owner + ", " + variable(prop.getVar()) + probability(prop) + ")";
+		case KNOWS:
+			return "knows(" + owner + ", " + equation(prop.getEq()) + probability(prop) + ")";
+		case NOTSHARED:
+			return "notshared(" + owner + ", " + variable(prop.getVar()) + ")";
+		case SHARED:
+			return "shared(" + owner + ", " + variable(prop.getVar()) + ")";
+		case NOTSTORED:
+			return "notstored(" + owner + ", " + variable(prop.getVar()) + ", " + prop.getBound() + ")";
+		case NEGATION:
+			return "not " + property(prop.getSt1(), true);
+		case CONJUNCTION:
+			// conjunctions are read from left to right
+			String conj = property(prop.getSt1(), false) + " and " + property(prop.getSt2(), true);
+			return operand ? "(" + conj + ")" : conj;
+		default:
+			return "";
+		}
+	}
+
+	private static String probability(Property prop) {
+		return prop.getProb() == null ? "" : ", " + prop.getProb();
+	}
+
+	/**
+	 * Helper method to get a name that is not used for a different meaning yet.
+	 */
+	private static String unique(String name, String meaning, Map<String, String> meanings) {
+		String candidate = name(name);
+		for (int i = 2; meanings.containsKey(candidate)
+				&& !meanings.get(candidate).equals(meaning); i++) {
+			candidate = name(name + "_" + i);
+		}
+		return candidate;
+	}
+
+	/**
+	 * Helper method to get a name as it is written, in quotes if necessary.
+	 */
+	private static String name(String name) {
+		if (PLAIN.matcher(name).matches() && !KEYWORDS.contains(name)) {
+			return name;
+		}
+		return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private void line(String line) throws IOException {
+		out.write(line);
+		out.write(System.lineSeparator());
+	}
+}
@@ -0,0 +1,692 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import architecture.Action;
+import architecture.Action.ActionType;
+import architecture.Component;
+import architecture.Deduction;
+import architecture.DeductionCapability;
+import architecture.DependenceRelation;
+import architecture.Equation;
+import architecture.Trust;
+import architecture.Variable;
+import gui.ArchitectureFunctions;
+import properties.Property;
+
+/**
+ * Objects that keep verification results on disk, so that the properties of an
+ * architecture that was verified before are not verified again after loading it.
+ * Each result holds the verdict, the best probability, a summary of the trace and
+ * the unsat core of the solver, if any.
+ *
+ * <p>Results are stored under a {@link Fingerprint} of the part of the architecture
+ * they depend on. Apart from the equations, deductions and verified attestations of
+ * the whole architecture, the bottom-up parser only looks at the owners of a property,
+ * so its results are keyed by this slice and survive changes to other components.
+ * The solver of the top-down parser works on all components at once, so its results
+ * are keyed by the whole architecture. Both include the {@link #RULES_VERSION}.
+ *
+ * <p>The file starts with the magic number "CAPR" and the version, followed by the
+ * results in the order they were stored. New results are appended, and the file is
+ * rewritten without the outdated ones once they make up half of it.
+ */
+public class ResultStore {
+
+	// the magic number "CAPR" at the start of every file
+	private static final int MAGIC = 0x43415052;
+	/**
+	 * The version of the format that is written.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * The version of the rules of inference that produce the verdicts. It is part of
+	 * every fingerprint, so it must be increased whenever a change to the parsers,
+	 * the deductions or the solver encoding can change a verdict, and the stored
+	 * results of the old rules are not served anymore.
+	 */
+	public static final int RULES_VERSION = 1;
+
+	// the file of the store that is shared by the loaded architectures
+	private static final String DEFAULT_FILE = "./saves/results.store";
+	// the number of results kept, the least recently used ones are dropped
+	private static final int MAX_RESULTS = 1 << 16;
+	// the number of trace lines kept in a summary
+	private static final int SUMMARY_LINES = 64;
+	// the indentation of the trace per recursion depth, see TraceBuffer
+	private static final String INDENT = "     ";
+
+	private static ResultStore defaultStore;
+
+	// class fields
+	private final Path file;
+	private final Map<Key, Result> results;
+	private final List<Key> pending;
+	private int records;
+	private boolean rewrite;
+
+	/**
+	 * Method to get the store that is shared by the loaded architectures.
+	 *
+	 * @return the store in the saves directory
+	 */
+	public static synchronized ResultStore getDefault() {
+		if (defaultStore == null) {
+			defaultStore = new ResultStore(Paths.get(DEFAULT_FILE));
+		}
+		return defaultStore;
+	}
+
+	/**
+	 * The constructor for a store that keeps the results in memory only, e.g., for
+	 * the session of a watch mode.
+	 */
+	public ResultStore() {
+		this(null);
+	}
+
+	/**
+	 * The constructor that opens a store and reads the results stored so far. A
+	 * file that cannot be read is replaced with the next {@link #flush()}.
+	 *
+	 * @param file
+	 *          the file of the store, which does not need to exist yet, or null to
+	 *          keep the results in memory only
+	 */
+	@SuppressWarnings("serial")
+	public ResultStore(Path file) {
+		this.file = file;
+		results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+				return size() > MAX_RESULTS;
+			}
+		};
+		pending = new ArrayList<Key>();
+		if (file != null && Files.exists(file)) {
+			read();
+		}
+	}
+
+	/**
+	 * Method to look up the stored result of a property.
+	 *
+	 * @param prop
+	 *          the property
+	 * @param fingerprint
+	 *          the fingerprint of the architecture the property is verified on
+	 * @return the result, or null if the property has to be verified
+	 */
+	public synchronized Result lookup(Property prop, Fingerprint fingerprint) {
+		Result result = results.get(new Key(fingerprint.slice(prop)));
+		if (result == null) {
+			// maybe the result came from the solver
+			result = results.get(new Key(fingerprint.whole(prop)));
+		}
+		return result;
+	}
+
+	/**
+	 * Method to store the result of a property, which is written with the next
+	 * {@link #flush()}.
+	 *
+	 * @param prop
+	 *          the property
+	 * @param fingerprint
+	 *          the fingerprint of the architecture the property was verified on
+	 * @param result
+	 *          the result
+	 * @param solver
+	 *          true, if the result came from the solver of the top-down parser
+	 */
+	public synchronized void store(Property prop, Fingerprint fingerprint, Result result,
+			boolean solver) {
+		Key key = new Key(solver ? fingerprint.whole(prop) : fingerprint.slice(prop));
+		results.put(key, result);
+		pending.add(key);
+	}
+
+	/**
+	 * Method that writes the results stored since the last flush to the file.
+	 *
+	 * @return true, if successful
+	 */
+	public synchronized boolean flush() {
+		if (file == null) {
+			// nothing to write
+			pending.clear();
+			return true;
+		}
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			if (rewrite || records + pending.size() > 2 * results.size() + 1024) {
+				// drop the outdated results
+				writeAll();
+			} else if (!pending.isEmpty()) {
+				append();
+			}
+			pending.clear();
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Method that removes all results, e.g., after the rules of inference changed.
+	 *
+	 * @return true, if successful
+	 */
+	public synchronized boolean clear() {
+		results.clear();
+		pending.clear();
+		return flush();
+	}
+
+	/**
+	 * Method to get the number of stored results.
+	 *
+	 * @return the number of results
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * Helper method that reads the results from the file. A partly written last
+	 * result, e.g., after a crash, is dropped.
+	 */
+	private void read() {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				// not a store or one of another version
+				rewrite = true;
+				return;
+			}
+			int length;
+			while ((length = in.read()) >= 0) {
+				byte[] key = new byte[length];
+				in.readFully(key);
+				boolean holds = in.readBoolean();
+				double bestProb = in.readDouble();
+				String trace = readString(in);
+				String core = readString(in);
+				results.put(new Key(key),
+						new Result(holds, Double.isNaN(bestProb) ? null : bestProb, trace, core));
+				records++;
+			}
+		} catch (EOFException e) {
+			// the last result is incomplete, it is dropped by rewriting the file
+			rewrite = true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			rewrite = true;
+		}
+	}
+
+	/**
+	 * Helper method that appends the pending results to the file.
+	 *
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	private void append() throws IOException {
+		boolean header = !Files.exists(file) || Files.size(file) == 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+			if (header) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+			}
+			for (Key key : pending) {
+				Result result = results.get(key);
+				if (result != null) {
+					write(out, key, result);
+					records++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that replaces the file with one containing only the current
+	 * results.
+	 *
+	 * @throws IOException
+	 *           if the file cannot be written
+	 */
+	private void writeAll() throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (Map.Entry<Key, Result> entry : results.entrySet()) {
+				write(out, entry.getKey(), entry.getValue());
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		records = results.size();
+		rewrite = false;
+	}
+
+	/**
+	 * Helper method that writes one result.
+	 */
+	private static void write(DataOutputStream out, Key key, Result result) throws IOException {
+		out.writeByte(key.bytes.length);
+		out.write(key.bytes);
+		out.writeBoolean(result.holds);
+		out.writeDouble(result.bestProb == null ? Double.NaN : result.bestProb);
+		writeString(out, result.trace);
+		writeString(out, result.core);
+	}
+
+	/**
+	 * Helper method that writes a string that may be null or longer than
+	 * {@link DataOutputStream#writeUTF(String)} allows.
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Helper method that reads a string written by {@link #writeString}.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The stored result of verifying a property.
+	 */
+	public static class Result {
+
+		// class fields
+		private final boolean holds;
+		private final Double bestProb;
+		private final String trace;
+		private final String core;
+
+		/**
+		 * The constructor for a result of a verification that just finished. Only
+		 * the outer levels of the trace are kept, and the unsat core is taken from
+		 * the trace of the solver.
+		 *
+		 * @param holds
+		 *          the verdict
+		 * @param bestProb
+		 *          the best probability a has or knows property was derived with, or null
+		 * @param trace
+		 *          the trace of the verification, or null
+		 */
+		public Result(boolean holds, Double bestProb, String trace) {
+			this(holds, bestProb, summarize(trace), core(trace));
+		}
+
+		private Result(boolean holds, Double bestProb, String trace, String core) {
+			this.holds = holds;
+			this.bestProb = bestProb;
+			this.trace = trace;
+			this.core = core;
+		}
+
+		/**
+		 * Helper method that keeps the lines of the first two recursion depths.
+		 */
+		private static String summarize(String trace) {
+			if (trace == null) {
+				return null;
+			}
+			StringBuilder summary = new StringBuilder();
+			int lines = 0;
+			for (String line : trace.split("\\R")) {
+				if (!line.startsWith(INDENT + INDENT)) {
+					if (++lines > SUMMARY_LINES) {
+						summary.append("...").append(System.lineSeparator());
+						break;
+					}
+					summary.append(line).append(System.lineSeparator());
+				}
+			}
+			return summary.toString();
+		}
+
+		/**
+		 * Helper method that finds the unsat cores reported by the solver.
+		 */
+		private static String core(String trace) {
+			if (trace == null) {
+				return null;
+			}
+			StringBuilder core = new StringBuilder();
+			for (String line : trace.split("\\R")) {
+				line = line.trim();
+				if (line.startsWith("Unsat core: ")) {
+					core.append(line.substring("Unsat core: ".length())).append(System.lineSeparator());
+				}
+			}
+			return core.length() == 0 ? null : core.toString();
+		}
+
+		// getter methods
+		public boolean holds() {
+			return holds;
+		}
+
+		public Double getBestProb() {
+			return bestProb;
+		}
+
+		public String getTrace() {
+			return trace;
+		}
+
+		public String getCore() {
+			return core;
+		}
+	}
+
+	/**
+	 * Structural fingerprints of an architecture. They are taken from the sets of
+	 * the architecture functions, which the next finish builds the architecture from,
+	 * so a loaded architecture does not need to be finished to look up its results.
+	 * Names of equations and deductions are ignored, like their equality does.
+	 */
+	public static class Fingerprint {
+
+		// class fields
+		private final byte[] global;
+		private final byte[] whole;
+		private final Map<String, byte[]> digests;
+
+		/**
+		 * The constructor that takes the fingerprints of the current model.
+		 *
+		 * @param archFunc
+		 *          the architecture functions
+		 */
+		public Fingerprint(ArchitectureFunctions archFunc) {
+			// the parts every verification may depend on
+			Set<String> common = new TreeSet<String>();
+			common.add("rules " + RULES_VERSION);
+			common.add("lazy " + archFunc.isLazyDeduction());
+			common.add("congruence " + archFunc.isCongruenceClosure());
+			for (Variable var : archFunc.getvSet()) {
+				common.add("variable " + var + (var.isEncrypted() ? " encrypted" : ""));
+			}
+			for (Equation eq : archFunc.geteSet()) {
+				common.add("equation " + eq);
+			}
+			for (Deduction deduc : archFunc.getDeducs()) {
+				common.add("deduction " + deduc);
+			}
+			// the rules for attestations look at the verifications of all components
+			Set<Component> verifiers = new HashSet<Component>();
+			for (Action action : archFunc.getaSet()) {
+				if (action.getAction() == ActionType.VERIF_A || action.getAction() == ActionType.VERIF_P) {
+					common.add("verification " + action);
+					verifiers.add(action.getComponent());
+				}
+			}
+			for (Trust trust : archFunc.gettrustSet()) {
+				if (verifiers.contains(trust.getTruster())) {
+					common.add("trust " + trust);
+				}
+			}
+			global = digest(common);
+			// the parts of each component
+			Map<String, List<String>> actions = new HashMap<String, List<String>>();
+			Map<String, Set<String>> parts = new HashMap<String, Set<String>>();
+			for (Component comp : archFunc.getcSet()) {
+				component(comp, actions, parts);
+			}
+			// the order of the actions matters, e.g., for the storage bound
+			for (Action action : archFunc.getaSet()) {
+				actions.get(component(action.getComponent(), actions, parts)).add("action " + action);
+				if (action.getComPartner() != null) {
+					// the partner sends something or is trusted
+					actions.get(component(action.getComPartner(), actions, parts))
+							.add("partner " + action);
+				}
+			}
+			for (Trust trust : archFunc.gettrustSet()) {
+				parts.get(component(trust.getTruster(), actions, parts)).add("trust " + trust);
+			}
+			for (DependenceRelation dr : archFunc.getdSet()) {
+				parts.get(component(dr.getComp(), actions, parts)).add("dep " + dr.getDep());
+			}
+			for (DeductionCapability ded : archFunc.getdedSet()) {
+				parts.get(component(ded.getComp(), actions, parts)).add("deductions " + ded);
+			}
+			digests = new HashMap<String, byte[]>();
+			for (Map.Entry<String, List<String>> entry : actions.entrySet()) {
+				List<String> content = new ArrayList<String>(entry.getValue());
+				content.addAll(parts.get(entry.getKey()));
+				digests.put(entry.getKey(), digest(content));
+			}
+			MessageDigest md = newDigest();
+			for (String name : new TreeSet<String>(digests.keySet())) {
+				update(md, name);
+				md.update(digests.get(name));
+			}
+			whole = md.digest();
+		}
+
+		/**
+		 * Helper method that registers a component and returns its name.
+		 */
+		private String component(Component comp, Map<String, List<String>> actions,
+				Map<String, Set<String>> parts) {
+			String name = comp.getName();
+			if (!actions.containsKey(name)) {
+				actions.put(name, new ArrayList<String>());
+				parts.put(name, new TreeSet<String>());
+			}
+			return name;
+		}
+
+		/**
+		 * Method to get the fingerprint of the slice of the architecture that the
+		 * bottom-up parser needs to verify a property: the parts every verification
+		 * depends on, and the actions, trust relations, dependences and deduction
+		 * capabilities of the owners of the property, including the actions that
+		 * receive from them.
+		 *
+		 * @param prop
+		 *          the property
+		 * @return the fingerprint
+		 */
+		public byte[] slice(Property prop) {
+			Set<String> owners = new TreeSet<String>();
+			owners(prop, owners);
+			MessageDigest md = newDigest();
+			update(md, "slice");
+			md.update(global);
+			update(md, describe(prop));
+			for (String name : owners) {
+				update(md, name);
+				byte[] digest = digests.get(name);
+				if (digest != null) {
+					md.update(digest);
+				}
+			}
+			return md.digest();
+		}
+
+		/**
+		 * Method to get the fingerprint of the whole architecture for a property.
+		 *
+		 * @param prop
+		 *          the property
+		 * @return the fingerprint
+		 */
+		public byte[] whole(Property prop) {
+			MessageDigest md = newDigest();
+			update(md, "whole");
+			md.update(global);
+			update(md, describe(prop));
+			md.update(whole);
+			return md.digest();
+		}
+
+		/**
+		 * Method to check whether two fingerprints are taken from the same
+		 * architecture, i.e., whether the verifiers finished for one also verify the
+		 * properties of the other.
+		 *
+		 * @param other
+		 *          the other fingerprint
+		 * @return true, if only the properties may differ
+		 */
+		public boolean sameArchitecture(Fingerprint other) {
+			return Arrays.equals(global, other.global) && Arrays.equals(whole, other.whole);
+		}
+
+		/**
+		 * Helper method to collect the owners of the atomic sub-properties.
+		 */
+		private static void owners(Property prop, Set<String> owners) {
+			switch (prop.getType()) {
+			case CONJUNCTION:
+				owners(prop.getSt1(), owners);
+				owners(prop.getSt2(), owners);
+				break;
+			case NEGATION:
+				owners(prop.getSt1(), owners);
+				break;
+			default:
+				owners.add(prop.getOwner().getName());
+				break;
+			}
+		}
+
+		/**
+		 * Helper method that describes a property completely, as the string of a
+		 * property does not show the probabilities of its sub-properties.
+		 */
+		private static String describe(Property prop) {
+			switch (prop.getType()) {
+			case HAS:
+				return "has(" + prop.getOwner() + "," + prop.getVar() + "," + prop.getProb() + ")";
+			case KNOWS:
+				return "knows(" + prop.getOwner() + "," + prop.getEq() + "," + prop.getProb() + ")";
+			case NOTSHARED:
+				return "notshared(" + prop.getOwner() + "," + prop.getVar() + ")";
+			case SHARED:
+				return "shared(" + prop.getOwner() + "," + prop.getVar() + ")";
+			case NOTSTORED:
+				return "notstored(" + prop.getOwner() + "," + prop.getVar() + "," + prop.getBound() + ")";
+			case CONJUNCTION:
+				return "and(" + describe(prop.getSt1()) + "," + describe(prop.getSt2()) + ")";
+			case NEGATION:
+				return "not(" + describe(prop.getSt1()) + ")";
+			default:
+				return prop.getType().toString();
+			}
+		}
+
+		/**
+		 * Helper method to hash a collection of strings in its order.
+		 */
+		private static byte[] digest(Iterable<String> content) {
+			MessageDigest md = newDigest();
+			for (String string : content) {
+				update(md, string);
+			}
+			return md.digest();
+		}
+
+		/**
+		 * Helper method that hashes a string with its length, so that the strings of
+		 * a sequence cannot run into each other.
+		 */
+		private static void update(MessageDigest md, String string) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			int length = bytes.length;
+			md.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16),
+					(byte) (length >>> 8), (byte) length});
+			md.update(bytes);
+		}
+
+		/**
+		 * Helper method to create the hash function of the fingerprints.
+		 */
+		private static MessageDigest newDigest() {
+			try {
+				return MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				// every Java platform supports SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * The key of a result, i.e., a fingerprint.
+	 */
+	private static final class Key {
+
+		private final byte[] bytes;
+		private final int hash;
+
+		private Key(byte[] bytes) {
+			this.bytes = bytes;
+			hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			return Arrays.equals(bytes, ((Key) obj).bytes);
+		}
+	}
+}
@@ -2,18 +2,27 @@ package utils;
 
 import gui.ArchitectureFunctions;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
- * Class that helps with the serialization of architectures.
+ * Class that helps with the serialization of architectures. Architectures are
+ * saved in the binary {@link ArchFormat} or exported as text description, files
+ * of the former Java serialization can still be loaded. Loaded architectures keep
+ * their verification results in the {@link ResultStore}.
  */
 public class SaveLoadArch {
 
+  // the directory and the file extensions of saved architectures
+  private static final String SAVES = "./saves/";
+  private static final String EXTENSION = ".arch";
+  private static final String TEXT_EXTENSION = ".cap";
+  private static final String LEGACY_EXTENSION = ".ser";
+
   /**
-   * Static method that saves an architecture with all its objects for the GUI.
+   * Static method that saves the model of an architecture for the GUI.
    * @param archFunc
    *          the architecture from the GUI
    * @param name
@@ -21,13 +30,12 @@ public class SaveLoadArch {
    */
   public static void saveArch(ArchitectureFunctions archFunc, String name) {
 
-    // save all objects into the 'saves' directory
-    String path = "./saves/" + name + ".ser";
+    // save the model into the 'saves' directory
+    Path path = Paths.get(SAVES + name + EXTENSION);
 
-    // single line version
-    try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
-      // write the arch object to disk
-      oos.writeObject(archFunc);
+    try {
+      // write the arch model to disk
+      ArchFormat.write(archFunc, path);
 
       // Debug
       System.out.println("Written to disk");
@@ -56,19 +64,67 @@ public class SaveLoadArch {
   }
 
   /**
-   * Static method that loads a saved architecture for the GUI.
+   * Static method that exports an architecture as text description, which can be
+   * edited and loaded again.
+   * @param archFunc
+   *          the architecture from the GUI
+   * @param name
+   *          a name to save the file as
+   */
+  public static void exportArch(ArchitectureFunctions archFunc, String name) {
+    try {
+      ArchWriter.write(archFunc, Paths.get(SAVES + name + TEXT_EXTENSION));
+
+      // Debug
+      System.out.println("Written to disk");
+
+    } catch (Exception ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  /**
+   * Static method that loads a saved or exported architecture for the GUI. The
+   * architecture is finished by the first verification that has no stored result.
    * @param fileName
    *          the name of the file to load from
    * @return the architecture for the GUI
    */
   public static ArchitectureFunctions loadArch(String fileName) {
-    ArchitectureFunctions archFunc = null;
-    String filePath = "./saves/" + fileName + ".ser";
+    Path path = Paths.get(SAVES + fileName + EXTENSION);
+    if (!Files.exists(path)) {
+      path = Paths.get(SAVES + fileName + TEXT_EXTENSION);
+    }
+    if (!Files.exists(path)) {
+      // fall back to the former Java serialization
+      path = Paths.get(SAVES + fileName + LEGACY_EXTENSION);
+    }
+    return attachResults(loadFile(path));
+  }
 
-    // single line version
-    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-      // read the object from file
-      archFunc = (ArchitectureFunctions) ois.readObject();
+  /**
+   * Static method that loads an architecture from any file, the format is chosen
+   * by the file extension: binary, text description or Java serialization.
+   * @param path
+   *          the file to load from
+   * @return the architecture, or null if it could not be loaded
+   */
+  public static ArchitectureFunctions loadFile(Path path) {
+    ArchitectureFunctions archFunc = null;
+    String name = path.getFileName().toString();
+    try {
+      if (name.endsWith(EXTENSION)) {
+        // read the model from file
+        archFunc = ArchFormat.read(path);
+      } else if (name.endsWith(TEXT_EXTENSION)) {
+        // read the text description from file
+        archFunc = ArchReader.read(path);
+      } else {
+        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(path))) {
+          // read the object from file
+          archFunc = (ArchitectureFunctions) ois.readObject();
+        }
+      }
 
       // Debug
       System.out.println("Read from file");
@@ -76,7 +132,33 @@ public class SaveLoadArch {
     } catch (Exception ex) {
       ex.printStackTrace();
     }
+    return archFunc;
+  }
 
+  /**
+   * Static method to check whether a file has the extension of one of the formats
+   * {@link #loadFile(Path)} reads.
+   * @param path
+   *          the file
+   * @return true, if the file is a binary, text or serialized architecture
+   */
+  public static boolean isArchFile(Path path) {
+    String name = path.getFileName().toString();
+    return name.endsWith(EXTENSION) || name.endsWith(TEXT_EXTENSION)
+        || name.endsWith(LEGACY_EXTENSION);
+  }
+
+  /**
+   * Helper method that lets a loaded architecture serve the results of former
+   * verifications from the result store in the 'saves' directory.
+   * @param archFunc
+   *          the loaded architecture, or null
+   * @return the architecture
+   */
+  private static ArchitectureFunctions attachResults(ArchitectureFunctions archFunc) {
+    if (archFunc != null) {
+      archFunc.setResultStore(ResultStore.getDefault());
+    }
     return archFunc;
   }
 
@@ -8,6 +8,10 @@ import properties.Property;
 
 /**
  * Objects that represent a buffer for tracing and logging messages.
+ * Each verification run collects its traces in a buffer of its own, which the
+ * threads of the run attach to, so properties can be verified concurrently and the
+ * traces of other runs and other architectures are not mixed in. Messages logged
+ * by a thread without a buffer are dropped.
  */
 public class TraceBuffer {
 
@@ -18,25 +22,55 @@ public class TraceBuffer {
     START, END, INFO;
   }
 
+  // the buffer each thread logs into, and the trace it is writing
+  private static final ThreadLocal<TraceBuffer> attached = new ThreadLocal<TraceBuffer>();
+  private static final ThreadLocal<StringBuilder> current = new ThreadLocal<StringBuilder>();
+
   // class fields
-  private static String[] buffer = new String[100];
-  private static Map<Property, Integer> lookUp = new HashMap<Property, Integer>();
-  private static int position = 0;
+  private final Map<Property, String> lookUp = new HashMap<Property, String>();
 
   /**
    * Method to get a logging information for a specific property.
-   * 
+   *
    * @param property
    *          the property to get the message for
-   * @return the logging message
+   * @return the logging message, or null if the run did not trace the property
+   */
+  public synchronized String getMessage(Property property) {
+    return lookUp.get(property);
+  }
+
+  /**
+   * Method that makes the current thread log into this buffer until it detaches.
+   *
+   * @return the buffer the thread was attached to before, or null
    */
-  public static String getMessage(Property property) {
-    return buffer[lookUp.get(property)];
+  public TraceBuffer attach() {
+    TraceBuffer previous = attached.get();
+    attached.set(this);
+    current.remove();
+    return previous;
   }
 
   /**
-   * Method to add a logging message to the buffer.
-   * 
+   * Static method that makes the current thread log into the buffer it was attached
+   * to before, see {@link #attach()}.
+   *
+   * @param previous
+   *          the buffer the thread was attached to before, or null
+   */
+  public static void detach(TraceBuffer previous) {
+    if (previous == null) {
+      attached.remove();
+    } else {
+      attached.set(previous);
+    }
+    current.remove();
+  }
+
+  /**
+   * Method to add a logging message to the buffer of the current thread.
+   *
    * @param property
    *          the property the log is intended for
    * @param message
@@ -47,19 +81,27 @@ public class TraceBuffer {
    *          the kind of logging, e.g. start or end
    */
   public static void logMessage(Property property, String message, int recurseDepth, LogType type) {
-    if (recurseDepth == 0 && type == LogType.START) {
-      position++;
-      buffer[position] = "";
+    TraceBuffer buffer = attached.get();
+    if (buffer == null) {
+      // not part of a verification run
+      return;
+    }
+    if ((recurseDepth == 0 && type == LogType.START) || current.get() == null) {
+      // start a new trace for this thread
+      current.set(new StringBuilder());
     }
     String spacing = String.join("", Collections.nCopies(recurseDepth, "     "));
-    buffer[position] += spacing + message + System.lineSeparator();
+    current.get().append(spacing).append(message).append(System.lineSeparator());
     if (recurseDepth == 0 && type == LogType.END) {
-      if (lookUp.get(property) != null) {
-        // entry already exists, so update the buffer of the value
-        buffer[lookUp.get(property)] += System.lineSeparator()
-            + buffer[position] + System.lineSeparator();
-      } else {
-        lookUp.put(property, position);
+      String trace = current.get().toString();
+      synchronized (buffer) {
+        if (buffer.lookUp.get(property) != null) {
+          // entry already exists, e.g., the top-down trace after the bottom-up one
+          buffer.lookUp.put(property, buffer.lookUp.get(property) + System.lineSeparator()
+              + trace + System.lineSeparator());
+        } else {
+          buffer.lookUp.put(property, trace);
+        }
       }
     }
   }